@@ -207,10 +207,22 @@ public class CharVLA implements RandomAccess, Cloneable, java.io.Serializable, L
         return a[index];
     }
 
+    /**
+     * Gets the code point starting at index, combining a high surrogate there with a low surrogate after it if both
+     * are present; otherwise this returns the char at index, even if it is a lone surrogate.
+     * @param index the index of the first char of a code point
+     * @return the code point starting at index
+     */
     public int getCodePoint(final int index) {
         if (index >= size)
             throw new IndexOutOfBoundsException("Index (" + index + ") is greater than or equal to list size (" + size + ")");
-        return a[index];
+        final char c = a[index];
+        if (c >= '\uD800' && c <= '\uDBFF' && index + 1 < size) {
+            final char d = a[index + 1];
+            if (d >= '\uDC00' && d <= '\uDFFF')
+                return (c - 0xD800 << 10 | d - 0xDC00) + 0x10000;
+        }
+        return c;
     }
 
     public int indexOf(final char k) {
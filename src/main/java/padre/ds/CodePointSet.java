@@ -0,0 +1,292 @@
+package padre.ds;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of Unicode code points, from 0 to 0x10FFFF, stored as sorted, non-overlapping [start, end) ranges.
+ * Unlike ComBit, this can hold supplementary code points (such as emoji), and it can split itself into the BMP part,
+ * as a ComBit, and the low surrogates that can follow each high surrogate, which is how matchers that read UTF-16
+ * chars handle supplementary code points.
+ */
+public class CodePointSet {
+    /**
+     * One past the largest code point.
+     */
+    public static final int LIMIT = 0x110000;
+    private static final CodePointSet NONE = new CodePointSet(new int[0]);
+
+    /**
+     * The start (inclusive) and end (exclusive) of each range, alternating; sorted, with no ranges touching.
+     */
+    private final int[] bounds;
+    public final int cardinality;
+
+    private CodePointSet(int[] bounds)
+    {
+        this.bounds = bounds;
+        int card = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            card += bounds[i + 1] - bounds[i];
+        }
+        cardinality = card;
+    }
+
+    /**
+     * Creates a CodePointSet from [start, end) pairs of code points, which may be in any order and may overlap.
+     * @param ranges start and end values, alternating; ends are exclusive and are clamped to {@link #LIMIT}
+     * @return a new CodePointSet containing every code point in any of the ranges
+     */
+    public static CodePointSet ofRanges(int... ranges)
+    {
+        final int n = ranges.length >>> 1;
+        long[] pairs = new long[n];
+        for (int i = 0; i < n; i++) {
+            pairs[i] = (long) Math.max(0, ranges[i << 1]) << 32 | Math.min(LIMIT, ranges[i << 1 | 1]);
+        }
+        Arrays.sort(pairs);
+        int[] b = new int[n << 1];
+        int c = 0;
+        for (int i = 0; i < n; i++) {
+            final int start = (int) (pairs[i] >>> 32), end = (int) pairs[i];
+            if(end <= start)
+                continue;
+            if(c > 0 && start <= b[c - 1])
+                b[c - 1] = Math.max(b[c - 1], end);
+            else
+            {
+                b[c++] = start;
+                b[c++] = end;
+            }
+        }
+        return new CodePointSet(c == b.length ? b : Arrays.copyOf(b, c));
+    }
+
+    /**
+     * Creates a CodePointSet containing exactly the given code points.
+     * @param codePoints an array or vararg of code points, in any order
+     * @return a new CodePointSet containing each of codePoints
+     */
+    public static CodePointSet of(int... codePoints)
+    {
+        int[] ranges = new int[codePoints.length << 1];
+        for (int i = 0; i < codePoints.length; i++) {
+            ranges[i << 1] = codePoints[i];
+            ranges[i << 1 | 1] = codePoints[i] + 1;
+        }
+        return ofRanges(ranges);
+    }
+
+    /**
+     * Creates a CodePointSet containing exactly the chars in a ComBit, as BMP code points.
+     * @param bits a ComBit to convert
+     * @return a new CodePointSet with the same contents as bits
+     */
+    public static CodePointSet from(ComBit bits)
+    {
+        IntVLA b = new IntVLA(16);
+        ComBit.RunCursor rc = bits.runs();
+        while (rc.next())
+        {
+            b.add(rc.start);
+            b.add(rc.end);
+        }
+        return new CodePointSet(b.toArray());
+    }
+
+    public static CodePointSet none()
+    {
+        return NONE;
+    }
+
+    public static CodePointSet all()
+    {
+        return new CodePointSet(new int[]{0, LIMIT});
+    }
+
+    public boolean contains(int codePoint)
+    {
+        int low = 0, high = (bounds.length >>> 1) - 1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if(bounds[mid << 1] > codePoint)
+                high = mid - 1;
+            else if(bounds[mid << 1 | 1] <= codePoint)
+                low = mid + 1;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return how many separate ranges this contains
+     */
+    public int rangeCount()
+    {
+        return bounds.length >>> 1;
+    }
+
+    /**
+     * @param range the index of a range, from 0 to {@link #rangeCount()} - 1
+     * @return the first code point in that range
+     */
+    public int rangeStart(int range)
+    {
+        return bounds[range << 1];
+    }
+
+    /**
+     * @param range the index of a range, from 0 to {@link #rangeCount()} - 1
+     * @return one past the last code point in that range
+     */
+    public int rangeEnd(int range)
+    {
+        return bounds[range << 1 | 1];
+    }
+
+    /**
+     * @return true if this contains any code point at or above 0x10000
+     */
+    public boolean hasSupplementary()
+    {
+        return bounds.length > 0 && bounds[bounds.length - 1] > 0x10000;
+    }
+
+    /**
+     * Gets the part of this in the BMP, including any lone surrogates, as a new ComBit.
+     * @return a new ComBit containing every code point in this below 0x10000
+     */
+    public ComBit bmp()
+    {
+        int n = 0;
+        while (n < bounds.length && bounds[n] < 0x10000)
+            n += 2;
+        return ComBit.fromRuns(bounds, 0, n);
+    }
+
+    /**
+     * Gets, for each of the 1024 high surrogates, the low surrogates that can follow it to form a code point in this,
+     * or null where that high surrogate starts no code point in this. High surrogates that allow the same low
+     * surrogates share the same ComBit, so callers can group them by identity; none of the ComBits should be changed.
+     * @return an array of 1024 ComBits or nulls, indexed by (high surrogate - 0xD800)
+     */
+    public ComBit[] surrogateLows()
+    {
+        ComBit[] lows = new ComBit[1024];
+        ComBit full = null, previous = null;
+        IntVLA partial = new IntVLA(8);
+        int partialHigh = -1;
+        for (int i = 0; i < bounds.length; i += 2) {
+            final int start = Math.max(bounds[i], 0x10000), last = bounds[i + 1] - 1;
+            if(last < start)
+                continue;
+            final int hs = (start - 0x10000) >>> 10, he = (last - 0x10000) >>> 10;
+            for (int h = hs; h <= he; h++) {
+                final int lo = (h == hs) ? (start & 0x3FF) : 0, hi = (h == he) ? (last & 0x3FF) + 1 : 0x400;
+                if(lo == 0 && hi == 0x400)
+                {
+                    if(full == null)
+                        full = ComBit.fromRuns(new int[]{0xDC00, 0xE000}, 0, 2);
+                    lows[h] = full;
+                    continue;
+                }
+                if(h != partialHigh)
+                {
+                    previous = finishLows(lows, partialHigh, partial, previous);
+                    partial.clear();
+                    partialHigh = h;
+                }
+                partial.add(0xDC00 + lo);
+                partial.add(0xDC00 + hi);
+            }
+        }
+        finishLows(lows, partialHigh, partial, previous);
+        return lows;
+    }
+
+    private static ComBit finishLows(ComBit[] lows, int high, IntVLA partial, ComBit previous)
+    {
+        if(high < 0 || partial.size == 0)
+            return previous;
+        ComBit made = ComBit.fromRuns(partial.items, 0, partial.size);
+        // neighboring high surrogates often allow the same lows, such as when a range's start and end are both
+        // partway through a high surrogate's block
+        if(previous != null && previous.equals(made))
+            made = previous;
+        lows[high] = made;
+        return made;
+    }
+
+    public CodePointSet union(CodePointSet other)
+    {
+        return combine(other, 0);
+    }
+
+    public CodePointSet intersection(CodePointSet other)
+    {
+        return combine(other, 1);
+    }
+
+    public CodePointSet difference(CodePointSet other)
+    {
+        return combine(other, 2);
+    }
+
+    /**
+     * @return a new CodePointSet containing every code point from 0 to 0x10FFFF that this does not contain
+     */
+    public CodePointSet negate()
+    {
+        return all().combine(this, 2);
+    }
+
+    private CodePointSet combine(CodePointSet other, int op)
+    {
+        final int[] a = bounds, b = other.bounds;
+        int[] out = new int[a.length + b.length + 2];
+        int i = 0, j = 0, n = 0, pos = 0;
+        boolean on = false;
+        while (pos < LIMIT)
+        {
+            while (i < a.length && a[i] <= pos) i++;
+            while (j < b.length && b[j] <= pos) j++;
+            // an odd index means pos is inside a range
+            final boolean inA = (i & 1) == 1, inB = (j & 1) == 1,
+                    v = op == 0 ? inA || inB : op == 1 ? inA && inB : inA && !inB;
+            if(v != on)
+            {
+                out[n++] = pos;
+                on = v;
+            }
+            pos = Math.min(i < a.length ? a[i] : LIMIT, j < b.length ? b[j] : LIMIT);
+        }
+        if(on)
+            out[n++] = LIMIT;
+        return new CodePointSet(Arrays.copyOf(out, n));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(bounds, ((CodePointSet) o).bounds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bounds);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CodePointSet{");
+        for (int i = 0; i < bounds.length; i += 2) {
+            if(i > 0) sb.append(',');
+            sb.append(Integer.toHexString(bounds[i]));
+            if(bounds[i + 1] - bounds[i] > 1)
+                sb.append('-').append(Integer.toHexString(bounds[i + 1] - 1));
+        }
+        return sb.append('}').toString();
+    }
+}
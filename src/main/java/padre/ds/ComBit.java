@@ -1,6 +1,7 @@
 package padre.ds;
 
 import java.util.Arrays;
+import java.util.Collection;
 
 /**
  * Compressed Bit-set that builds on CharVLA to support checking the on/off status of 65536 bits, but typically
@@ -10,6 +11,20 @@ import java.util.Arrays;
  */
 public class ComBit extends CharVLA {
     public int windowStart, cardinality;
+    /**
+     * What this ComBit has cached about its contents; see {@link Lookup}.
+     */
+    private Lookup lookup;
+    /**
+     * Frozen ComBits throw an exception instead of changing through ComBit's own methods; interned ComBits are also the
+     * single canonical instance for their contents, so two different interned ComBits are never equal.
+     */
+    private boolean frozen, interned;
+    /**
+     * ComBits with fewer compressed items than this are checked by walking their runs, which is faster than
+     * building and searching an index for such small sets.
+     */
+    private static final int INDEX_THRESHOLD = 16;
 
     /**
      * Creates a new ComBit with the given capacity for compressed items.
@@ -69,6 +84,27 @@ public class ComBit extends CharVLA {
     }
 
     public boolean contains(char c) {
+        if(c < 128)
+        {
+            final Lookup lu = lookup();
+            return ((c < 64 ? lu.low : lu.high) & 1L << c) != 0;
+        }
+        if(size - windowStart >= INDEX_THRESHOLD)
+        {
+            final int[] idx = lookup().runs;
+            int low = 0, high = (idx.length >>> 1) - 1;
+            while (low <= high)
+            {
+                final int mid = (low + high) >>> 1;
+                if(idx[mid << 1] > c)
+                    high = mid - 1;
+                else if(idx[mid << 1 | 1] <= c)
+                    low = mid + 1;
+                else
+                    return true;
+            }
+            return false;
+        }
         boolean on = false;
         int index = 0;
         char t;
@@ -83,9 +119,266 @@ public class ComBit extends CharVLA {
         return false;
     }
 
+    /**
+     * Everything a ComBit caches about its contents, built together in one pass over the runs: the content hash, bits
+     * 0-63 and 64-127 so ASCII chars can be checked with one shift, and (if the ComBit is large enough to use it) the
+     * start and end (exclusive) of each on-run, alternating, to binary-search. A Lookup is immutable and only valid
+     * while the ComBit's size and windowStart equal its own, so threads sharing a ComBit can at worst each build one,
+     * and its final fields mean no thread can see one half-built.
+     */
+    private static final class Lookup {
+        final int size, window, hash;
+        final long low, high;
+        final int[] runs;
+
+        Lookup(ComBit bits)
+        {
+            size = bits.size;
+            window = bits.windowStart;
+            final boolean indexed = size - window >= INDEX_THRESHOLD;
+            final int[] idx = indexed ? new int[size - window + 1 & -2] : null;
+            int result = bits.cardinality, n = 0;
+            long lo = 0L, hi = 0L;
+            final RunCursor rc = bits.runs();
+            while (rc.next())
+            {
+                result = 31 * (31 * result + rc.start) + rc.end;
+                for (int i = rc.start, e = Math.min(rc.end, 128); i < e; i++) {
+                    if(i < 64) lo |= 1L << i;
+                    else hi |= 1L << i;
+                }
+                if(indexed)
+                {
+                    idx[n++] = rc.start;
+                    idx[n++] = rc.end;
+                }
+            }
+            hash = result;
+            low = lo;
+            high = hi;
+            runs = !indexed || n == idx.length ? idx : Arrays.copyOf(idx, n);
+        }
+    }
+
+    /**
+     * Gets the Lookup for this ComBit's current contents, building it if this ComBit was changed since it was last
+     * built. Changes made directly through CharVLA methods that leave both size and windowStart the same must be
+     * followed by {@link #invalidate()}.
+     */
+    private Lookup lookup()
+    {
+        final Lookup lu = lookup;
+        if(lu != null && lu.size == size && lu.window == windowStart)
+            return lu;
+        return lookup = new Lookup(this);
+    }
+
+    /**
+     * Gets the ASCII chars in this ComBit as two longs, with bit n of the first (if n is less than 64) or of the second
+     * (if n is 64 or more) set if char n is contained; useful for matchers that want to test ASCII input themselves.
+     * @return a new array of two longs holding the bits for chars 0 to 127
+     */
+    public long[] asciiMask()
+    {
+        final Lookup lu = lookup();
+        return new long[]{lu.low, lu.high};
+    }
+
+    /**
+     * Discards any cached lookup index, so it will be rebuilt on the next call to {@link #contains(char)} that needs
+     * it. Only needed if the compressed items were changed directly without changing size or windowStart.
+     */
+    public void invalidate()
+    {
+        lookup = null;
+    }
+
+    /**
+     * Gets the smallest char that is at least from and is contained in this ComBit.
+     * @param from the first char to check, as an int
+     * @return the next contained char as an int, or -1 if there is none at or after from
+     */
+    public int nextSetBit(int from) {
+        if(from < 0)
+            from = 0;
+        if(from > 0xFFFF)
+            return -1;
+        if(size - windowStart >= INDEX_THRESHOLD)
+        {
+            final int[] idx = lookup().runs;
+            int low = 0, high = (idx.length >>> 1) - 1;
+            while (low <= high)
+            {
+                final int mid = (low + high) >>> 1;
+                if(idx[mid << 1 | 1] <= from)
+                    low = mid + 1;
+                else
+                    high = mid - 1;
+            }
+            return (low << 1) >= idx.length ? -1 : Math.max(from, idx[low << 1]);
+        }
+        final RunCursor rc = new RunCursor(this);
+        while (rc.next())
+        {
+            if(rc.end > from)
+                return Math.max(from, rc.start);
+        }
+        return -1;
+    }
+
+    /**
+     * Counts how many chars less than c are contained in this ComBit.
+     * @param c any char, or 0x10000 to count everything
+     * @return the number of contained chars that are less than c
+     */
+    public int rank(int c) {
+        final RunCursor rc = new RunCursor(this);
+        int count = 0;
+        while (rc.next() && rc.start < c)
+        {
+            count += Math.min(rc.end, c) - rc.start;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the char contained in this ComBit that has exactly n contained chars less than it, which is the inverse of
+     * {@link #rank(int)}.
+     * @param n the 0-based position of a contained char, in order
+     * @return the nth contained char as an int, or -1 if n is negative or at least {@link #cardinality}
+     */
+    public int select(int n) {
+        if(n < 0 || n >= cardinality)
+            return -1;
+        final RunCursor rc = new RunCursor(this);
+        while (rc.next())
+        {
+            if(n < rc.end - rc.start)
+                return rc.start + n;
+            n -= rc.end - rc.start;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether this and other contain any chars in common, without building their intersection.
+     * @param other another ComBit
+     * @return true if at least one char is in both this and other
+     */
+    public boolean intersects(ComBit other) {
+        if(cardinality == 0 || other.cardinality == 0)
+            return false;
+        final RunCursor left = new RunCursor(this), right = new RunCursor(other);
+        if(!left.next() || !right.next())
+            return false;
+        while (true)
+        {
+            if(left.end <= right.start)
+            {
+                if(!left.next()) return false;
+            }
+            else if(right.end <= left.start)
+            {
+                if(!right.next()) return false;
+            }
+            else
+                return true;
+        }
+    }
+
+    /**
+     * Checks whether every char in this ComBit is also in other, without building any new ComBit.
+     * @param other another ComBit
+     * @return true if this is a subset of (or equal to) other
+     */
+    public boolean isSubsetOf(ComBit other) {
+        if(cardinality > other.cardinality)
+            return false;
+        final RunCursor left = new RunCursor(this), right = new RunCursor(other);
+        boolean more = right.next();
+        while (left.next())
+        {
+            while (more && right.end <= left.start)
+                more = right.next();
+            // runs from a cursor are maximal, so one run of other must cover all of this run
+            if(!more || right.start > left.start || right.end < left.end)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets a new cursor over the runs of contained chars in this ComBit, as [start, end) pairs in ascending order.
+     * @return a new RunCursor positioned before the first run
+     */
+    public RunCursor runs() {
+        return new RunCursor(this);
+    }
+
+    /**
+     * Steps through the runs of contained chars in a ComBit without materializing them; call {@link #next()} and,
+     * while it returns true, read {@link #start} and {@link #end}. Touching runs are reported as one run. The ComBit
+     * must not be changed while a cursor over it is in use.
+     */
+    public static class RunCursor {
+        private final ComBit bits;
+        private int i, pos;
+        /**
+         * The first char in the current run, inclusive, and the end of the current run, exclusive (up to 0x10000).
+         */
+        public int start, end;
+
+        public RunCursor(ComBit bits) {
+            this.bits = bits;
+            reset();
+        }
+
+        /**
+         * Moves this cursor back to before the first run.
+         */
+        public void reset() {
+            i = bits.windowStart;
+            pos = 0;
+            start = end = 0;
+        }
+
+        /**
+         * Advances to the next run of contained chars.
+         * @return true if there was another run, or false if every run has been visited
+         */
+        public boolean next() {
+            final char[] a = bits.a;
+            final int size = bits.size;
+            if(i + 1 >= size || pos >= 0x10000)
+                return false;
+            pos += a[i++];
+            if(pos >= 0x10000)
+                return false;
+            start = pos;
+            while (true)
+            {
+                if(a[i] == 0 && i == size - 1)
+                {
+                    pos = 0x10000;
+                    i++;
+                    break;
+                }
+                pos += a[i++];
+                // an empty off-run means the next on-run touches this one
+                if(i + 1 < size && a[i] == 0)
+                    i++;
+                else
+                    break;
+            }
+            end = pos;
+            return true;
+        }
+    }
+
     public char[] contents() {
         char[] ret = new char[cardinality];
-        char t, c = 0, d=0;
+        char t;
+        int c = 0, d = 0;
         boolean on = false;
         for (int i = windowStart; i < size; i++, on = !on) {
             t = a[i];
@@ -94,12 +387,12 @@ public class ComBit extends CharVLA {
                 if(t == 0)
                 {
                     for (int j = c; j < 0x10000; j++) {
-                        ret[d++] = c++;
+                        ret[d++] = (char) c++;
                     }
                     return ret;
                 }
                 for (int j = 0; j < t; j++) {
-                    ret[d++] = c++;
+                    ret[d++] = (char) c++;
                 }
             }
             else {
@@ -111,6 +404,7 @@ public class ComBit extends CharVLA {
 
     public ComBit negate()
     {
+        checkMutable();
         switch (windowStart)
         {
             case 0:
@@ -151,109 +445,238 @@ public class ComBit extends CharVLA {
                     add(0);
         }
         cardinality = 0x10000 - cardinality;
+        invalidate();
         return this;
     }
 
-    public static ComBit union(ComBit left, ComBit right)
+    /**
+     * Operation codes for {@link #combine(ComBit, ComBit, ComBit, int)}.
+     */
+    private static final int OR = 0, AND = 1, AND_NOT = 2, XOR = 3;
+
+    /**
+     * Gets the position where the run at index i of a ends, given that the previous run ended at end and that the run
+     * at i is on or off as given; used to walk the runs of a ComBit during a merge. Returns 0x20000 past the last run.
+     */
+    private static int boundaryAfter(char[] a, int size, int i, int end, boolean on)
     {
-        if(left.cardinality == 0)
-            return new ComBit(right);
-        if(right.cardinality == 0)
-            return new ComBit(left);
-        ComBit packing = new ComBit(64);
-        boolean on = false, onLeft = false, onRight = false;
-        int idx = 0, skip = 0, elemLeft = left.windowStart, elemRight = right.windowStart, totalLeft = 0, totalRight = 0,
-                lsz = left.size, rsz = right.size, card = 0, covered = 0;
-        char[] la = left.a, ra = right.a;
-        while ((elemLeft < lsz || elemRight < rsz) && idx <= 0xffff) {
-            if(onLeft && elemLeft >= lsz - 1 && la[lsz - 1] == 0)
-            {
-                break;
-            }
-            else if (elemLeft >= lsz) {
-                totalLeft = 0x20000;
-                onLeft = false;
+        return (i >= size) ? 0x20000 : (on && a[i] == 0 && i == size - 1) ? 0x10000 : end + a[i];
+    }
+
+    /**
+     * Merges the runs of left and right in one pass, writing the result of the given operation into target and
+     * returning target. Target may be the same object as left or right; the result is then written past the end of
+     * the current items and moved down once finished, so the only allocation is growing target's array if needed.
+     * @param target the ComBit that will hold the result; its previous contents are discarded
+     * @param left the first operand
+     * @param right the second operand
+     * @param op one of OR, AND, AND_NOT, or XOR
+     * @return target, after modification
+     */
+    private static ComBit combine(ComBit target, ComBit left, ComBit right, int op)
+    {
+        target.checkMutable();
+        final int lsz = left.size, rsz = right.size,
+                base = (target == left || target == right) ? target.size : 1,
+                need = base + (lsz - left.windowStart) + (rsz - right.windowStart) + 3;
+        if(need > target.a.length)
+            target.a = Arrays.copyOf(target.a, Math.max(need, target.a.length << 1));
+        final char[] la = left.a, ra = right.a, out = target.a;
+        int li = left.windowStart, ri = right.windowStart,
+                lEnd = li < lsz ? la[li] : 0x20000, rEnd = ri < rsz ? ra[ri] : 0x20000,
+                pos = 0, last = 0, n = base, card = 0;
+        boolean lOn = false, rOn = false, on = false, v;
+        while (pos < 0x10000)
+        {
+            while (lEnd <= pos) {
+                lOn = !lOn;
+                lEnd = boundaryAfter(la, lsz, ++li, lEnd, lOn);
+                if(li >= lsz) lOn = false;
             }
-            else if(totalLeft <= idx) {
-                totalLeft += la[elemLeft];
+            while (rEnd <= pos) {
+                rOn = !rOn;
+                rEnd = boundaryAfter(ra, rsz, ++ri, rEnd, rOn);
+                if(ri >= rsz) rOn = false;
             }
-            if(onRight && elemRight >= rsz - 1 && ra[rsz - 1] == 0)
+            switch (op)
             {
-                break;
+                case OR: v = lOn || rOn;
+                    break;
+                case AND: v = lOn && rOn;
+                    break;
+                case AND_NOT: v = lOn && !rOn;
+                    break;
+                default: v = lOn != rOn;
             }
-            else if(elemRight >= rsz) {
-                totalRight = 0x20000;
-                onRight = false;
-            }
-            else if(totalRight <= idx) {
-                totalRight += ra[elemRight];
-            }
-            // 300, 5, 6, 8, 2, 4
-            // 290, 12, 9, 1
-            // =
-            // 290, 15, 6, 8, 2, 4
-            // 290 off in both, 10 in right, 2 in both, 3 in left, 6 off in both, 1 on in both, 7 on in left, 2 off in
-            //     both, 4 on in left
-            if(totalLeft < totalRight)
+            if(v != on)
             {
-                onLeft = !onLeft;
-                skip += totalLeft - idx;
-                idx = totalLeft;
-                if(on != (onLeft || onRight)) {
-                    if (!(!onLeft && elemLeft >= lsz - 1 && la[lsz - 1] == 0)) {
-                        packing.add(skip);
-                        covered += skip;
-                        if (on) card += skip;
-                        skip = 0;
-                        on = !on;
-                    }
-                }
-                elemLeft++;
+                out[n++] = (char) (pos - last);
+                if(on) card += pos - last;
+                last = pos;
+                on = v;
             }
-            else if(totalLeft == totalRight)
-            {
-                onLeft = !onLeft;
-                onRight = !onRight;
-                skip += totalLeft - idx;
-                idx = totalLeft;
-                if(on != (onLeft || onRight)) {
-                    if (!(!onRight && elemRight >= rsz - 1 && ra[rsz - 1] == 0) &&
-                            !(!onLeft && elemLeft >= lsz - 1 && la[lsz - 1] == 0)) {
-                        packing.add(skip);
-                        covered += skip;
-                        if (on) card += skip;
-                        skip = 0;
-                        on = !on;
+            pos = Math.min(lEnd, rEnd);
+        }
+        if(on)
+        {
+            out[n++] = 0;
+            card += 0x10000 - last;
+        }
+        if(base != 1)
+            System.arraycopy(out, base, out, 1, n - base);
+        out[0] = 0;
+        target.size = 1 + n - base;
+        target.windowStart = 1;
+        target.cardinality = card;
+        target.invalidate();
+        return target;
+    }
+
+    /**
+     * Merges every ComBit in parts in one pass, writing into target the chars that are in any part (if all is false)
+     * or in every part (if all is true). Target must not be one of parts.
+     */
+    private static ComBit combineAll(ComBit target, ComBit[] parts, boolean all)
+    {
+        target.checkMutable();
+        final int k = parts.length;
+        int need = 3;
+        for (int j = 0; j < k; j++) {
+            need += parts[j].size - parts[j].windowStart;
+        }
+        if(need > target.a.length)
+            target.a = Arrays.copyOf(target.a, need);
+        final char[] out = target.a;
+        final int[] idx = new int[k], ends = new int[k];
+        final boolean[] ons = new boolean[k];
+        for (int j = 0; j < k; j++) {
+            ComBit p = parts[j];
+            idx[j] = p.windowStart;
+            ends[j] = p.windowStart < p.size ? p.a[p.windowStart] : 0x20000;
+        }
+        int pos = 0, last = 0, n = 1, card = 0, count = 0, next;
+        boolean on = false, v;
+        while (pos < 0x10000)
+        {
+            next = 0x20000;
+            for (int j = 0; j < k; j++) {
+                if(ends[j] <= pos)
+                {
+                    final ComBit p = parts[j];
+                    boolean o = ons[j];
+                    int i = idx[j], e = ends[j];
+                    while (e <= pos) {
+                        o = !o;
+                        e = boundaryAfter(p.a, p.size, ++i, e, o);
+                        if(i >= p.size) o = false;
                     }
+                    if(o != ons[j])
+                        count += o ? 1 : -1;
+                    ons[j] = o;
+                    idx[j] = i;
+                    ends[j] = e;
                 }
-                elemLeft++;
-                elemRight++;
-
+                if(ends[j] < next)
+                    next = ends[j];
             }
-            else
+            v = all ? count == k : count > 0;
+            if(v != on)
             {
-                onRight = !onRight;
-                skip += totalRight - idx;
-                idx = totalRight;
-                if(on != (onLeft || onRight)) {
-                    if (!(!onRight && elemRight >= rsz - 1 && ra[rsz - 1] == 0)) {
-                        packing.add(skip);
-                        covered += skip;
-                        if (on) card += skip;
-                        skip = 0;
-                        on = !on;
-                    }
-                }
-                elemRight++;
+                out[n++] = (char) (pos - last);
+                if(on) card += pos - last;
+                last = pos;
+                on = v;
             }
+            pos = next;
         }
-        if((elemLeft >= lsz - 1 && la[lsz - 1] == 0) || (elemRight >= rsz - 1 && ra[rsz - 1] == 0))
+        if(on)
         {
-            card += 0x10000 - covered;
-            packing.add(0);
+            out[n++] = 0;
+            card += 0x10000 - last;
         }
-        packing.cardinality = card;
-        return packing;
+        out[0] = 0;
+        target.size = n;
+        target.windowStart = 1;
+        target.cardinality = card;
+        target.invalidate();
+        return target;
+    }
+
+    /**
+     * Stores the union of left and right into target, which may be the same object as either operand.
+     * @return target, after modification
+     */
+    public static ComBit unionInto(ComBit target, ComBit left, ComBit right)
+    {
+        return combine(target, left, right, OR);
+    }
+
+    /**
+     * Stores the intersection of left and right into target, which may be the same object as either operand.
+     * @return target, after modification
+     */
+    public static ComBit intersectionInto(ComBit target, ComBit left, ComBit right)
+    {
+        return combine(target, left, right, AND);
+    }
+
+    /**
+     * Stores the chars in left but not in right into target, which may be the same object as either operand.
+     * @return target, after modification
+     */
+    public static ComBit differenceInto(ComBit target, ComBit left, ComBit right)
+    {
+        return combine(target, left, right, AND_NOT);
+    }
+
+    /**
+     * Stores the chars in exactly one of left and right into target, which may be the same object as either operand.
+     * @return target, after modification
+     */
+    public static ComBit xorInto(ComBit target, ComBit left, ComBit right)
+    {
+        return combine(target, left, right, XOR);
+    }
+
+    /**
+     * Adds every char in other to this ComBit, in place.
+     * @return this, after modification
+     */
+    public ComBit or(ComBit other)
+    {
+        return combine(this, this, other, OR);
+    }
+
+    /**
+     * Removes every char not in other from this ComBit, in place.
+     * @return this, after modification
+     */
+    public ComBit and(ComBit other)
+    {
+        return combine(this, this, other, AND);
+    }
+
+    /**
+     * Removes every char in other from this ComBit, in place.
+     * @return this, after modification
+     */
+    public ComBit andNot(ComBit other)
+    {
+        return combine(this, this, other, AND_NOT);
+    }
+
+    /**
+     * Toggles every char in other in this ComBit, in place.
+     * @return this, after modification
+     */
+    public ComBit xor(ComBit other)
+    {
+        return combine(this, this, other, XOR);
+    }
+
+    public static ComBit union(ComBit left, ComBit right)
+    {
+        return combine(new ComBit(left.size + right.size), left, right, OR);
     }
 
     public static ComBit variadicUnion(ComBit... parts)
@@ -265,107 +688,12 @@ public class ComBit extends CharVLA {
             return new ComBit(parts[0]);
         if(pLen == 2)
             return union(parts[0], parts[1]);
-        ComBit working = union(parts[0], parts[1]);
-        for (int i = 2; i < pLen; i++) {
-            working = union(working, parts[i]);
-        }
-        return working;
+        return combineAll(new ComBit(64), parts, false);
     }
 
     public static ComBit intersection(ComBit left, ComBit right)
     {
-        if(left.cardinality == 0 || right.cardinality == 0)
-            return new ComBit(1);
-        ComBit packing = new ComBit(64);
-        boolean on = false, onLeft = false, onRight = false;
-        int idx = 0, skip = 0, elemLeft = left.windowStart, elemRight = right.windowStart, totalLeft = 0, totalRight = 0,
-                lsz = left.size, rsz = right.size, card = 0, covered = 0;
-        char[] la = left.a, ra = right.a;
-        while ((elemLeft < lsz && elemRight < rsz) && idx <= 0xffff) {
-            if(onLeft && elemLeft >= lsz - 1 && la[lsz - 1] == 0)
-            {
-                totalLeft = 0x10000;
-                onLeft = true;
-            }
-            else if (elemLeft >= lsz) {
-                totalLeft = 0x20000;
-                onLeft = false;
-            }
-            else if(totalLeft <= idx) {
-                totalLeft += la[elemLeft];
-            }
-
-            if(onRight && elemRight >= rsz - 1 && ra[rsz - 1] == 0)
-            {
-                totalRight = 0x10000;
-                onRight = true;
-            }
-            else if(elemRight >= rsz) {
-                totalRight = 0x20000;
-                onRight = false;
-            }
-            else if(totalRight <= idx) {
-                totalRight += ra[elemRight];
-            }
-            // 300, 5, 6, 8, 2, 4
-            // 290, 12, 9, 1
-            // =
-            // 290, 15, 6, 8, 2, 4
-            // 290 off in both, 10 in right, 2 in both, 3 in left, 6 off in both, 1 on in both, 7 on in left, 2 off in
-            //     both, 4 on in left
-            if(totalLeft < totalRight)
-            {
-                onLeft = !onLeft;
-                skip += totalLeft - idx;
-                idx = totalLeft;
-                if(on != (onLeft && onRight)) {
-                    packing.add(skip);
-                    covered += skip;
-                    if(on) card += skip;
-                    skip = 0;
-                    on = !on;
-                }
-                elemLeft++;
-            }
-            else if(totalLeft == totalRight)
-            {
-                onLeft = !onLeft;
-                onRight = !onRight;
-                skip += totalLeft - idx;
-                idx = totalLeft;
-                if(on != (onLeft && onRight)) {
-                    if(totalLeft == 0x10000) {
-                        card += 0x10000 - covered;
-                        packing.add(0);
-                        break;
-                    }
-                    packing.add(skip);
-                    covered += skip;
-                    if(on) card += skip;
-                    skip = 0;
-                    on = !on;
-                }
-                elemLeft++;
-                elemRight++;
-
-            }
-            else
-            {
-                onRight = !onRight;
-                skip += totalRight - idx;
-                idx = totalRight;
-                if(on != (onLeft && onRight)) {
-                    packing.add(skip);
-                    covered += skip;
-                    if(on) card += skip;
-                    skip = 0;
-                    on = !on;
-                }
-                elemRight++;
-            }
-        }
-        packing.cardinality = card;
-        return packing;
+        return combine(new ComBit(Math.min(left.size, right.size) + 2), left, right, AND);
     }
 
     public static ComBit variadicIntersection(ComBit... parts)
@@ -377,12 +705,53 @@ public class ComBit extends CharVLA {
             return new ComBit(parts[0]);
         if(pLen == 2)
             return intersection(parts[0], parts[1]);
-        ComBit working = intersection(parts[0], parts[1]);
-        for (int i = 2; i < pLen; i++) {
-            working = intersection(working, parts[i]);
+        return combineAll(new ComBit(16), parts, true);
+    }
+
+    /**
+     * Gets the chars in left but not in right, as a new ComBit.
+     */
+    public static ComBit difference(ComBit left, ComBit right)
+    {
+        return combine(new ComBit(left.size + 2), left, right, AND_NOT);
+    }
+
+    /**
+     * Creates a new ComBit from [start, end) pairs of chars, such as those a ComBit's runs are made of. The pairs must be
+     * sorted and must not overlap; pairs that touch are merged. An end of 0x10000 or more runs to the end of the BMP.
+     * @param bounds an array holding start and end values, alternating
+     * @param offset the first index in bounds to use
+     * @param length how many items to use from bounds; should be even
+     * @return a new ComBit containing every char in the given ranges
+     */
+    public static ComBit fromRuns(int[] bounds, int offset, int length)
+    {
+        ComBit cb = new ComBit(length + 2);
+        int index = 0, card = 0;
+        for (int i = offset, n = offset + length; i < n; i += 2) {
+            int start = bounds[i], end = bounds[i + 1];
+            while (i + 2 < n && bounds[i + 2] == end)
+            {
+                end = bounds[i + 3];
+                i += 2;
+            }
+            if(end <= start)
+                continue;
+            cb.add(start - index);
+            if(end >= 0x10000)
+            {
+                cb.add(0);
+                card += 0x10000 - start;
+                break;
+            }
+            cb.add(end - start);
+            card += end - start;
+            index = end;
         }
-        return working;
+        cb.cardinality = card;
+        return cb;
     }
+
     public ComBit copy()
     {
         return new ComBit(this);
@@ -402,40 +771,268 @@ public class ComBit extends CharVLA {
         return new ComBit(1);
     }
 
+    /**
+     * Makes this ComBit read-only; negate(), the in-place set operations, and the list methods inherited from CharVLA
+     * (add, set, remove, clear, and so on, including through iterators) will throw an UnsupportedOperationException
+     * instead of changing it. Only writing to the array from {@link #elements()} is not checked, and must not be done.
+     * Frozen ComBits keep their hash, so they are cheap to use as keys.
+     * @return this, for chaining
+     */
+    public ComBit freeze()
+    {
+        warm();
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * Builds the hash, ASCII mask, and (if this is large enough to use one) run index up front, so a frozen ComBit
+     * doesn't need to build them the first time it is used.
+     */
+    private void warm()
+    {
+        lookup();
+    }
+
+    /**
+     * @return true if {@link #freeze()} has been called on this, or if this was returned by {@link #intern(ComBit)}
+     */
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    private void checkMutable()
+    {
+        if(frozen)
+            throw new UnsupportedOperationException("This ComBit is frozen and cannot be changed");
+    }
+
+    @Override
+    public boolean add(int k) {
+        checkMutable();
+        return super.add(k);
+    }
+
+    @Override
+    public boolean add(Character o) {
+        checkMutable();
+        return super.add(o);
+    }
+
+    @Override
+    public void add(int index, Character element) {
+        checkMutable();
+        super.add(index, element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Character> c) {
+        checkMutable();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Character> c) {
+        checkMutable();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public boolean addAll(int index, CharVLA l) {
+        checkMutable();
+        return super.addAll(index, l);
+    }
+
+    @Override
+    public void addElements(int index, char[] a, int offset, int length) {
+        checkMutable();
+        super.addElements(index, a, offset, length);
+    }
+
+    /**
+     * @deprecated Please use the corresponding type-specific method instead.
+     */
+    @Deprecated
+    @Override
+    public Character set(int index, Character ok) {
+        checkMutable();
+        return super.set(index, ok);
+    }
+
+    @Override
+    protected char removeChar(int index) {
+        checkMutable();
+        return super.removeChar(index);
+    }
+
+    @Override
+    public Character remove(int index) {
+        checkMutable();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object ok) {
+        checkMutable();
+        return super.remove(ok);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        checkMutable();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        checkMutable();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public void removeElements(int from, int to) {
+        checkMutable();
+        super.removeElements(from, to);
+    }
+
+    @Override
+    public void clear() {
+        checkMutable();
+        super.clear();
+    }
+
+    @Override
+    public void size(int size) {
+        checkMutable();
+        super.size(size);
+    }
+
+    @Override
+    public void trim() {
+        checkMutable();
+        super.trim();
+    }
+
+    /**
+     * The iterator's add and set write to this list directly rather than through the methods above, so they are
+     * checked here.
+     */
+    @Override
+    public CharListIterator listIterator(int index) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index (" + index + ") is out of range for list size (" + size + ")");
+        return new CharListIterator(index) {
+            @Override
+            public void add(char k) {
+                checkMutable();
+                super.add(k);
+            }
+
+            @Override
+            public void set(char k) {
+                checkMutable();
+                super.set(k);
+            }
+        };
+    }
+
+    /**
+     * The table of canonical ComBits used by {@link #intern(ComBit)}; striped, so threads interning different classes
+     * don't wait on each other.
+     */
+    private static final ConcurrentSet<ComBit> internTable = new ConcurrentSet<ComBit>(16, 256);
+
+    /**
+     * The most ComBits {@link #intern(ComBit)} will keep. Entries are never removed, since a ComBit interned earlier must
+     * stay the only canonical one for its contents, so this keeps a program that interns many one-off classes from
+     * growing the table without bound; past it, intern() still returns frozen ComBits, they just aren't canonical.
+     */
+    public static final int INTERN_LIMIT = 1 << 16;
+
+    /**
+     * Gets the one canonical, frozen ComBit with the same contents as bits, adding a compact frozen copy of bits to
+     * the table if there is none yet. Interned ComBits can be compared by reference, since equal ones are always the
+     * same object, and their hash is computed once. This is safe to call from multiple threads.
+     * <br>
+     * Once the table holds {@link #INTERN_LIMIT} ComBits, contents that aren't in it yet get a frozen copy that is not
+     * added to the table; equals() still works on such copies, but two of them are not the same object, so code that
+     * compares interned ComBits by reference should only rely on that as a fast path.
+     * @param bits any ComBit; it is not changed, and may be frozen or not
+     * @return the canonical frozen ComBit equal to bits
+     */
+    public static ComBit intern(ComBit bits)
+    {
+        if(bits.interned)
+            return bits;
+        ComBit found = internTable.get(bits);
+        if(found != null)
+            return found;
+        IntVLA runs = new IntVLA(bits.size - bits.windowStart + 2);
+        RunCursor rc = bits.runs();
+        while (rc.next())
+        {
+            runs.add(rc.start);
+            runs.add(rc.end);
+        }
+        found = fromRuns(runs.items, 0, runs.size);
+        found.warm();
+        found.frozen = true;
+        if(internTable.size() >= INTERN_LIMIT)
+            return found;
+        // marked before the table's lock publishes it, so every thread that gets it from the table sees it as interned;
+        // if another thread interned an equal ComBit first, its copy wins and this one, never seen elsewhere, is dropped
+        found.interned = true;
+        return internTable.intern(found);
+    }
+
+    /**
+     * Canonical ComBits for common character classes: ASCII digits (like {@code \d}), ASCII word chars (like
+     * {@code \w}), ASCII whitespace (like {@code \s}), and every char but line terminators (like {@code .}).
+     */
+    public static final ComBit DIGIT = intern(fromRuns(new int[]{'0', '9' + 1}, 0, 2)),
+            WORD = intern(fromRuns(new int[]{'0', '9' + 1, 'A', 'Z' + 1, '_', '_' + 1, 'a', 'z' + 1}, 0, 8)),
+            SPACE = intern(fromRuns(new int[]{'\t', '\r' + 1, ' ', ' ' + 1}, 0, 4)),
+            DOT = intern(fromRuns(new int[]{0, '\n', '\n' + 1, '\r', '\r' + 1, 0x85, 0x86, 0x2028, 0x202A, 0x10000}, 0, 10));
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
-
-        ComBit that = (ComBit) o;
-        if (cardinality != that.cardinality) return false;
-        int s = size(), ts = that.size(), ws = windowStart, tws = that.windowStart;
-        if (s - ws != ts - tws) return false;
-        final char[] a1 = a;
-        final char[] a2 = that.a;
-        while (s-- != ws && ts-- != tws)
-            if (a1[s] != a2[ts]) return false;
-        return true;
+        return equals((ComBit) o);
     }
 
+    /**
+     * Compares the chars contained in this and that, regardless of how each is encoded. Two different interned
+     * ComBits are never equal, and ComBits with cached hashes that differ are rejected without walking their runs.
+     * @param that another ComBit
+     * @return true if this and that contain exactly the same chars
+     */
     public boolean equals(final ComBit that) {
         if (that == this) return true;
-        if(cardinality != that.cardinality) return false;
-        int s = size(), ts = that.size(), ws = windowStart, tws = that.windowStart;
-        if (s - ws != ts - tws) return false;
-        final char[] a1 = a;
-        final char[] a2 = that.a;
-        while (s-- != ws && ts-- != tws)
-            if (a1[s] != a2[ts]) return false;
-        return true;
+        if (that == null || cardinality != that.cardinality || (interned && that.interned)) return false;
+        final Lookup mine = lookup, theirs = that.lookup;
+        if (mine != null && mine.size == size && mine.window == windowStart
+                && theirs != null && theirs.size == that.size && theirs.window == that.windowStart
+                && mine.hash != theirs.hash)
+            return false;
+        final RunCursor left = runs(), right = that.runs();
+        while (left.next())
+        {
+            if(!right.next() || left.start != right.start || left.end != right.end)
+                return false;
+        }
+        return !right.next();
     }
 
+    /**
+     * Gets a hash of the chars this contains, which doesn't depend on how they are encoded; it is cached until this
+     * ComBit changes.
+     * @return a hash code based only on the contents of this ComBit
+     */
     @Override
     public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + windowStart;
-        result = 31 * result + cardinality;
-        return result;
+        return lookup().hash;
     }
 
     @Override
@@ -0,0 +1,328 @@
+package padre.ds;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A map from int keys to objects that many threads can read and fill at once, meant for caches that matchers running
+ * on different threads share, such as lazily built DFA transitions or ids given to states, so each thread doesn't
+ * need its own copy. Reads never lock. Keys and values live in an {@link AtomicIntegerArray} and an
+ * {@link AtomicReferenceArray}, with linear probing; a key claims an empty slot with a compare-and-set, and then its
+ * value is published with another compare-and-set, so {@link #putIfAbsent(int, Object)} lets racing threads agree on
+ * one value for a key. Null values are not allowed, and keys can't be removed one at a time, only all together with
+ * {@link #clear()}; a cache rarely needs more.
+ * <br>
+ * When the table fills past its load factor, one thread copies it to a table twice as large, marking each slot of the
+ * old table as moved once its entry has been copied. Readers that find a moved slot continue in the new table, so
+ * they never wait; writers wait for the copy to finish and then retry, which only happens while the map grows.
+ */
+@GwtIncompatible
+public class ConcurrentIntMap<V> {
+    /** Marks a value slot whose entry (or lack of one) has been copied to the next table. */
+    private static final Object MOVED = new Object();
+
+    private static final class Table
+    {
+        final AtomicIntegerArray keys;
+        final AtomicReferenceArray<Object> values;
+        final int mask, shift, threshold;
+        /** How many key slots have been claimed; claimed slots are never given back. */
+        final AtomicInteger used = new AtomicInteger();
+        /** How many slots hold values. */
+        final AtomicInteger count = new AtomicInteger();
+        /** The table this one is being copied to, or null if it isn't being copied. */
+        volatile Table next;
+
+        Table(int capacity, float loadFactor)
+        {
+            keys = new AtomicIntegerArray(capacity);
+            values = new AtomicReferenceArray<Object>(capacity);
+            mask = capacity - 1;
+            shift = Integer.numberOfLeadingZeros(mask);
+            threshold = Math.min(mask, (int) (capacity * loadFactor));
+        }
+
+        int place(int key)
+        {
+            // with a capacity of 1, shift would be 32, which Java treats as 0, so the mask is needed
+            return (key * 0x9E3779B9 >>> shift) & mask;
+        }
+    }
+
+    private final float loadFactor;
+    private volatile Table table;
+    /** The value for key 0, which can't be stored in the tables because 0 marks an empty key slot. */
+    private final AtomicReference<V> zeroValue = new AtomicReference<V>();
+
+    /**
+     * Creates a new map with an initial capacity of 64 and a load factor of 0.75.
+     */
+    public ConcurrentIntMap()
+    {
+        this(64, 0.75f);
+    }
+
+    /**
+     * Creates a new map with a load factor of 0.75.
+     * @param initialCapacity how many entries the map should hold before growing
+     */
+    public ConcurrentIntMap(int initialCapacity)
+    {
+        this(initialCapacity, 0.75f);
+    }
+
+    /**
+     * @param initialCapacity how many entries the map should hold before growing
+     * @param loadFactor how full the table can be before it grows, between 0 and 1 (exclusive)
+     */
+    public ConcurrentIntMap(int initialCapacity, float loadFactor)
+    {
+        if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        if(loadFactor <= 0f || loadFactor >= 1f) throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+        initialCapacity = MathUtils.nextPowerOfTwo((int) Math.ceil(Math.max(4, initialCapacity) / loadFactor));
+        if(initialCapacity > 1 << 30) throw new IllegalArgumentException("initialCapacity is too large: " + initialCapacity);
+        this.loadFactor = loadFactor;
+        table = new Table(initialCapacity, loadFactor);
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the value for key, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key)
+    {
+        if(key == 0) return zeroValue.get();
+        for (Table t = table; t != null; ) {
+            final AtomicIntegerArray keys = t.keys;
+            final int mask = t.mask;
+            int i = t.place(key), probes = 0;
+            for (; probes <= mask; i = i + 1 & mask, probes++) {
+                final int k = keys.get(i);
+                if(k == key)
+                {
+                    final Object v = t.values.get(i);
+                    if(v != MOVED) return (V) v;
+                    break;
+                }
+                // an empty slot ends the search here, unless this table is being copied and a writer already used
+                // the new one
+                if(k == 0) break;
+            }
+            t = t.next;
+        }
+        return null;
+    }
+
+    /**
+     * @param key the key to look up
+     * @param defaultValue what to return if key isn't present
+     * @return the value for key, or defaultValue if there is none
+     */
+    public V get(int key, V defaultValue)
+    {
+        final V v = get(key);
+        return v == null ? defaultValue : v;
+    }
+
+    public boolean containsKey(int key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * Sets the value for key, replacing any value it had.
+     * @param key any int
+     * @param value must not be null
+     * @return the previous value for key, or null if there was none
+     */
+    public V put(int key, V value)
+    {
+        return put(key, value, false);
+    }
+
+    /**
+     * Sets the value for key only if it has none yet. When several threads race to add the same key, exactly one
+     * succeeds, and all of them can use the returned value (or their own, if null was returned) as the one shared value.
+     * @param key any int
+     * @param value must not be null
+     * @return the value key already had, or null if value was added
+     */
+    public V putIfAbsent(int key, V value)
+    {
+        return put(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(int key, V value, boolean onlyIfAbsent)
+    {
+        if(value == null) throw new IllegalArgumentException("value cannot be null.");
+        if(key == 0)
+        {
+            // the zero value only goes back to null in clear(), so a failed compare-and-set leaves a value to return
+            if(onlyIfAbsent) return zeroValue.compareAndSet(null, value) ? null : zeroValue.get();
+            return zeroValue.getAndSet(value);
+        }
+        RETRY:
+        while (true) {
+            final Table t = table;
+            final int i = claim(t, key);
+            if(i < 0)
+            {
+                finishResize();
+                continue;
+            }
+            final AtomicReferenceArray<Object> values = t.values;
+            while (true) {
+                final Object old = values.get(i);
+                if(old == MOVED)
+                {
+                    finishResize();
+                    continue RETRY;
+                }
+                if(old != null && onlyIfAbsent)
+                    return (V) old;
+                if(values.compareAndSet(i, old, value))
+                {
+                    if(old == null && t.count.incrementAndGet() > t.threshold)
+                        resize(t);
+                    return (V) old;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the slot in t with key, claiming an empty one for it if needed.
+     * @return the slot's index, or -1 if t is being copied or has no room, so the caller should wait and retry
+     */
+    private int claim(Table t, int key)
+    {
+        final AtomicIntegerArray keys = t.keys;
+        final int mask = t.mask;
+        for (int i = t.place(key), probes = 0; probes <= mask; i = i + 1 & mask, probes++) {
+            int k = keys.get(i);
+            if(k == 0)
+            {
+                if(t.next != null || t.used.get() >= t.threshold)
+                {
+                    resize(t);
+                    return -1;
+                }
+                if(keys.compareAndSet(i, 0, key))
+                {
+                    t.used.incrementAndGet();
+                    return i;
+                }
+                k = keys.get(i);
+            }
+            if(k == key) return i;
+        }
+        resize(t);
+        return -1;
+    }
+
+    /**
+     * Waits for any copy that is under way, so table is the newest one.
+     */
+    private void finishResize()
+    {
+        synchronized (this) {
+            // the lock is held for the whole copy, so there is nothing to do once it is acquired
+        }
+    }
+
+    /**
+     * Copies t to a larger table, unless another thread already did.
+     */
+    private synchronized void resize(Table t)
+    {
+        if(table != t) return;
+        // claimed slots can hold no value if their writer lost a race, so size the new table by the values present
+        int capacity = t.mask + 1;
+        if(t.count.get() >= t.threshold >> 1 && capacity < 1 << 30) capacity <<= 1;
+        final Table next = new Table(capacity, loadFactor);
+        t.next = next;
+        final AtomicIntegerArray keys = t.keys;
+        final AtomicReferenceArray<Object> values = t.values;
+        for (int i = 0; i <= t.mask; i++) {
+            // a writer can still change the value until it is marked as moved, so copy whatever is there last
+            Object v;
+            do {
+                v = values.get(i);
+                if(v != null) copy(next, keys.get(i), v);
+            } while (!values.compareAndSet(i, v, MOVED));
+        }
+        table = next;
+    }
+
+    /**
+     * Puts an entry in a table no other thread writes to yet.
+     */
+    private static void copy(Table t, int key, Object value)
+    {
+        final AtomicIntegerArray keys = t.keys;
+        final int mask = t.mask;
+        int i = t.place(key);
+        while (true) {
+            final int k = keys.get(i);
+            if(k == key) break;
+            if(k == 0)
+            {
+                t.used.incrementAndGet();
+                t.count.incrementAndGet();
+                keys.set(i, key);
+                break;
+            }
+            i = i + 1 & mask;
+        }
+        t.values.set(i, value);
+    }
+
+    /**
+     * @return how many keys have values; while other threads are adding keys, this may be slightly out of date
+     */
+    public int size()
+    {
+        return table.count.get() + (zeroValue.get() == null ? 0 : 1);
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Removes every key. A put that runs at the same time as this may or may not be kept.
+     */
+    public synchronized void clear()
+    {
+        table = new Table(table.mask + 1, loadFactor);
+        zeroValue.set(null);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(32).append('{');
+        boolean first = true;
+        final V zero = zeroValue.get();
+        if(zero != null)
+        {
+            sb.append("0=").append(zero);
+            first = false;
+        }
+        for (Table t = table; t != null; t = t.next) {
+            for (int i = 0; i <= t.mask; i++) {
+                final Object v = t.values.get(i);
+                if(v == null || v == MOVED) continue;
+                if(!first) sb.append(", ");
+                sb.append(t.keys.get(i)).append('=').append(v);
+                first = false;
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
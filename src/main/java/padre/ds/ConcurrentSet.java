@@ -0,0 +1,166 @@
+package padre.ds;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of objects that many threads can use at once, made of several {@link HashedSet}s (stripes) that each have their
+ * own lock. A key always goes in the stripe picked by the high bits of its (mixed) hash code, so threads working with
+ * different keys usually take different locks and don't wait on each other, where one shared GenericSet would need one
+ * lock around everything. This suits tables of canonical objects shared by workers that build parts of an automaton in
+ * parallel, through {@link #intern(Object)}. Null keys are not allowed.
+ * <br>
+ * The size is a shared counter that every change updates, so reading it takes no locks; it and the contents seen by
+ * {@link #toArrayList()}, which are gathered one stripe at a time, can be slightly out of date while other threads are
+ * adding or removing keys.
+ */
+public class ConcurrentSet<T> {
+    private final HashedSet<T>[] stripes;
+    private final int shift;
+    /**
+     * How many keys all stripes hold; only changed while holding the lock of the stripe that changed, so a key is
+     * always counted before anything can remove it.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Creates a ConcurrentSet with 16 stripes, each able to hold 16 keys before growing.
+     */
+    public ConcurrentSet()
+    {
+        this(16, 256);
+    }
+
+    /**
+     * Creates a ConcurrentSet with the given number of stripes, which limits how many threads can change it at once.
+     * @param concurrency how many stripes to use; if not a power of two, it is increased to the next power of two
+     * @param initialCapacity how many keys, in total, the set should hold before any stripe grows
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentSet(int concurrency, int initialCapacity)
+    {
+        if(concurrency <= 0) throw new IllegalArgumentException("concurrency must be > 0: " + concurrency);
+        concurrency = MathUtils.nextPowerOfTwo(Math.min(concurrency, 1 << 16));
+        stripes = new HashedSet[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            stripes[i] = new HashedSet<T>(Math.max(4, initialCapacity / concurrency));
+        }
+        shift = Integer.numberOfLeadingZeros(concurrency - 1);
+    }
+
+    private HashedSet<T> stripe(T key)
+    {
+        // when there is one stripe, shift is 32, which Java treats as 0, so the mask below is needed
+        return stripes[(key.hashCode() * 0x9E3779B9 >>> shift) & stripes.length - 1];
+    }
+
+    /**
+     * @param key the key to add; must not be null
+     * @return true if key was not already in this set
+     */
+    public boolean add(T key)
+    {
+        if(key == null) throw new IllegalArgumentException("key cannot be null.");
+        final HashedSet<T> s = stripe(key);
+        synchronized (s) {
+            if(!s.add(key))
+                return false;
+            count.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Gets the key in this set equal to key, adding key if there is none; every thread that interns equal keys gets the
+     * same object back, whichever thread added it first.
+     * @param key the key to look up or add; must not be null
+     * @return the canonical key equal to key, which is key itself if it was just added
+     */
+    public T intern(T key)
+    {
+        if(key == null) throw new IllegalArgumentException("key cannot be null.");
+        final HashedSet<T> s = stripe(key);
+        synchronized (s) {
+            final T found = s.get(key);
+            if(found != null)
+                return found;
+            s.add(key);
+            count.incrementAndGet();
+            return key;
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the key in this set equal to key, or null if there is none
+     */
+    public T get(T key)
+    {
+        final HashedSet<T> s = stripe(key);
+        synchronized (s) {
+            return s.get(key);
+        }
+    }
+
+    public boolean contains(T key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key the key to remove
+     * @return true if key was in this set and has been removed
+     */
+    public boolean remove(T key)
+    {
+        final HashedSet<T> s = stripe(key);
+        synchronized (s) {
+            if(!s.remove(key))
+                return false;
+            count.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * @return how many keys this holds, without taking any locks
+     */
+    public int size()
+    {
+        return count.get();
+    }
+
+    public void clear()
+    {
+        for (int i = 0; i < stripes.length; i++) {
+            final HashedSet<T> s = stripes[i];
+            synchronized (s) {
+                count.addAndGet(-s.size);
+                s.clear();
+            }
+        }
+    }
+
+    /**
+     * @return a new ArrayList of the keys in this set, copied one stripe at a time
+     */
+    public ArrayList<T> toArrayList()
+    {
+        ArrayList<T> list = new ArrayList<T>(size());
+        for (int i = 0; i < stripes.length; i++) {
+            final HashedSet<T> s = stripes[i];
+            synchronized (s) {
+                for (int j = 0, n = s.capacity + s.stashSize; j < n; j++) {
+                    if(s.keyTable[j] != null)
+                        list.add(s.keyTable[j]);
+                }
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return toArrayList().toString();
+    }
+}
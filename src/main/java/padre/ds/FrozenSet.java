@@ -0,0 +1,224 @@
+package padre.ds;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of objects that finds any key with one hash and one equals() call, made by
+ * {@link GenericSet#freeze()}. The keys are placed with a perfect hash, in the hash-and-displace style of CHD: keys
+ * are split into buckets of about 3 by their hash code, and each bucket gets a seed that sends all of its keys to slots
+ * no other key uses. The table has only one slot in 16 more than the number of keys, which keeps building it fast
+ * (a table with no spare slots takes several times longer to fill), and it needs no probing or stash. Keys whose hash
+ * codes are exactly equal can't be told apart by any seed, so all but one of each such group are kept in a small
+ * array that is searched linearly. The set's hash code is computed once, and matches the GenericSet it came from.
+ * <br>
+ * Building a FrozenSet takes more time than filling a GenericSet, so this suits sets that are built once and then
+ * looked up or compared many times, such as the sets of patterns that make up an automaton's states.
+ */
+public final class FrozenSet<T> implements Iterable<T> {
+    private static final int BUCKET_SEED = 0x7F4A7C15;
+
+    public final int size;
+    private final T[] keyTable;
+    /** The seed for each bucket; 0 for a bucket that has no keys. */
+    private final int[] seeds;
+    /** Keys whose hash code is equal to another key's; usually empty. */
+    private final T[] extra;
+    private final int hash;
+
+    @SuppressWarnings("unchecked")
+    FrozenSet(T[] keys, int n)
+    {
+        size = n;
+        int h = 1;
+        final int[] hashes = new int[n];
+        for (int i = 0; i < n; i++) {
+            h += hashes[i] = keys[i].hashCode();
+        }
+        hash = h;
+        final int m = n + (n >>> 4);
+        keyTable = (T[]) new Object[m];
+        final int bucketCount = Math.max(1, n / 3);
+        seeds = new int[bucketCount];
+        // group the keys by bucket with a counting sort
+        final int[] bucketOf = new int[n], starts = new int[bucketCount + 1], order = new int[n];
+        for (int i = 0; i < n; i++) {
+            starts[(bucketOf[i] = reduce(mix(hashes[i], BUCKET_SEED), bucketCount)) + 1]++;
+        }
+        for (int b = 0; b < bucketCount; b++) {
+            starts[b + 1] += starts[b];
+        }
+        final int[] fill = Arrays.copyOf(starts, bucketCount);
+        for (int i = 0; i < n; i++) {
+            order[fill[bucketOf[i]]++] = i;
+        }
+        // place the largest buckets first, while the table is emptiest
+        final long[] bySize = new long[bucketCount];
+        for (int b = 0; b < bucketCount; b++) {
+            bySize[b] = (long) (starts[b] - starts[b + 1]) << 32 | b;
+        }
+        Arrays.sort(bySize);
+        final boolean[] taken = new boolean[m];
+        final int[] members = new int[Math.max(1, n)], slots = new int[Math.max(1, n)];
+        T[] ex = (T[]) new Object[0];
+        for (int k = 0; k < bucketCount; k++) {
+            final int b = (int) bySize[k];
+            int count = 0;
+            MEMBERS:
+            for (int j = starts[b]; j < starts[b + 1]; j++) {
+                final int i = order[j];
+                for (int c = 0; c < count; c++) {
+                    if(hashes[members[c]] == hashes[i])
+                    {
+                        ex = Arrays.copyOf(ex, ex.length + 1);
+                        ex[ex.length - 1] = keys[i];
+                        continue MEMBERS;
+                    }
+                }
+                members[count++] = i;
+            }
+            if(count == 0)
+                continue;
+            SEEDS:
+            for (int seed = 1; ; seed++) {
+                for (int c = 0; c < count; c++) {
+                    final int s = reduce(mix(hashes[members[c]], seed), m);
+                    if(taken[s])
+                    {
+                        for (int d = 0; d < c; d++) {
+                            taken[slots[d]] = false;
+                        }
+                        continue SEEDS;
+                    }
+                    taken[s] = true;
+                    slots[c] = s;
+                }
+                seeds[b] = seed;
+                for (int c = 0; c < count; c++) {
+                    keyTable[slots[c]] = keys[members[c]];
+                }
+                break;
+            }
+        }
+        extra = ex;
+    }
+
+    private static int mix(int h, int seed)
+    {
+        h = (h ^ seed) * 0x9E3779B9;
+        h ^= h >>> 15;
+        h *= 0x85EBCA6B;
+        return h ^ h >>> 13;
+    }
+
+    private static int reduce(int h, int bound)
+    {
+        return (int) ((bound * (h & 0xFFFFFFFFL)) >>> 32);
+    }
+
+    /**
+     * Returns the item in this set that is equal to key, or null if there is none.
+     * @param key the key to look up
+     * @return the item in this set equal to key, or null
+     */
+    public T get(T key)
+    {
+        if(size == 0)
+            return null;
+        final int h = key.hashCode();
+        final T found = keyTable[reduce(mix(h, seeds[reduce(mix(h, BUCKET_SEED), seeds.length)]), keyTable.length)];
+        if(found != null && key.equals(found))
+            return found;
+        for (int i = 0; i < extra.length; i++) {
+            if(key.equals(extra[i]))
+                return extra[i];
+        }
+        return null;
+    }
+
+    public boolean contains(T key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * Iterates over the keys; the iterator does not support remove(), and a new one is made each time.
+     * @return a new Iterator over every key in this set
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            int index = advance(0);
+
+            private int advance(int i)
+            {
+                while (i < keyTable.length && keyTable[i] == null)
+                    i++;
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < keyTable.length + extra.length;
+            }
+
+            @Override
+            public T next() {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                final T key = index < keyTable.length ? keyTable[index] : extra[index - keyTable.length];
+                index = index < keyTable.length ? advance(index + 1) : index + 1;
+                return key;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("FrozenSet cannot be changed");
+            }
+        };
+    }
+
+    /**
+     * @return a new GenericSet with the same keys, which can be changed
+     */
+    public GenericSet<T> thaw()
+    {
+        GenericSet<T> set = new GenericSet<T>(size);
+        for (T key : this) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FrozenSet)) return false;
+        FrozenSet other = (FrozenSet) o;
+        if(other.size != size || other.hash != hash) return false;
+        for (T key : this) {
+            if(!other.contains(key))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(32).append('{');
+        boolean first = true;
+        for (T key : this) {
+            if(!first) sb.append(", ");
+            sb.append(key);
+            first = false;
+        }
+        return sb.append('}').toString();
+    }
+}
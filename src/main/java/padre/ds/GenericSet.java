@@ -11,26 +11,47 @@ import static padre.ds.MathUtils.nextPowerOfTwo;
  * <br>
  * This set performs very fast contains and remove (typically O(1), worst case O(log(n))). Add may be a bit slower, depending on
  * hash collisions. Load factors greater than 0.91 greatly increase the chances the set will have to rehash to the next higher POT
- * size.
+ * size. <br>
+ * <br>
+ * A new set holds up to {@link #SMALL} keys in a tiny array that is searched linearly, and only allocates its hash table, at the
+ * initial capacity it was given, when it grows past that. Most sets built while deriving patterns hold only a few keys, so this
+ * avoids allocating and clearing a table for each of them. <br>
+ * <br>
+ * Like {@link IntMap}, a large set can be told to grow incrementally with {@link #setIncremental(boolean)}, moving a few keys
+ * from its old table on each later add or remove instead of rehashing every key inside one add.
  * File created by Tommy Ettinger on 8/29/2016, bringing in code from libGDX 1.9.4 where this was in ObjectSet.java .
  * @author Nathan Sweet */
 public class GenericSet<T> implements Iterable<T> {
     private static final int PRIME1 = 0xbe1f14b1;
     private static final int PRIME2 = 0xb4b82e39;
     private static final int PRIME3 = 0xced1c241;
+    /** How many keys a set can hold before it needs a hash table. */
+    public static final int SMALL = 4;
+    /** How many slots of the old table each add or remove moves during an incremental resize. */
+    private static final int MIGRATE_STEP = 8;
+    /** Tables smaller than this always resize all at once, since that is already quick. */
+    private static final int INCREMENTAL_MIN = 1 << 12;
 
     public int size;
 
     private long random = 31L;
 
+    /** While capacity is 0, the set is small, and its keys are packed at the start of keyTable as if they were all in the
+     * stash; tableCapacity is the capacity the hash table will have when it is first needed. */
     T[] keyTable;
     int capacity, stashSize;
+    private int tableCapacity;
 
     private float loadFactor;
     private int hashShift, mask, threshold;
     private int stashCapacity;
     private int pushIterations;
 
+    /** While an incremental resize is under way, the table being emptied into keyTable; null otherwise. */
+    T[] oldKeyTable;
+    private int oldEnd, oldMask, oldHashShift, migrateIndex;
+    private boolean incremental;
+
     private GenericSetIterator<T> iterator1, iterator2;
 
     /** Creates a new set with an initial capacity of 51 and a load factor of 0.8. */
@@ -45,39 +66,115 @@ public class GenericSet<T> implements Iterable<T> {
     }
 
     /** Creates a new set with the specified initial capacity and load factor. This set will hold initialCapacity items before
-     * growing the backing table.
+     * growing the backing table; the table is not allocated until the set holds more than {@link #SMALL} items.
      * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
     @SuppressWarnings("unchecked")
     public GenericSet (int initialCapacity, float loadFactor) {
         if (initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        if (loadFactor <= 0) throw new IllegalArgumentException("loadFactor must be > 0: " + loadFactor);
         initialCapacity = nextPowerOfTwo((int)Math.ceil(initialCapacity / loadFactor));
         if (initialCapacity > 1 << 30) throw new IllegalArgumentException("initialCapacity is too large: " + initialCapacity);
-        capacity = initialCapacity;
-
-        if (loadFactor <= 0) throw new IllegalArgumentException("loadFactor must be > 0: " + loadFactor);
         this.loadFactor = loadFactor;
+        tableCapacity = Math.max(initialCapacity, nextPowerOfTwo((int)Math.ceil((SMALL + 1) / loadFactor)));
 
-        threshold = (int)(capacity * loadFactor);
-        mask = capacity - 1;
-        hashShift = 31 - Integer.numberOfTrailingZeros(capacity);
-        stashCapacity = Math.max(3, (int)Math.ceil(Math.log(capacity)) * 2);
-        pushIterations = Math.max(Math.min(capacity, 8), (int)Math.sqrt(capacity) / 8);
-
-        keyTable = (T[])new Object[capacity + stashCapacity];
+        threshold = SMALL + 1;
+        stashCapacity = SMALL;
+        keyTable = (T[])new Object[SMALL];
     }
 
     /** Creates a new set identical to the specified set. */
     public GenericSet (GenericSet<? extends T> set) {
-        this((int)Math.floor(set.capacity * set.loadFactor), set.loadFactor);
+        this(0, set.finishMigration().loadFactor);
+        tableCapacity = set.tableCapacity;
+        if (set.capacity > 0) resize(set.capacity);
         stashSize = set.stashSize;
         System.arraycopy(set.keyTable, 0, keyTable, 0, set.keyTable.length);
         size = set.size;
     }
 
+    /** Sets whether this set grows incrementally. When true, a set with at least 4096 slots that needs to grow allocates its new
+     * table right away but moves the old keys over a few at a time, during later calls to add and remove, instead of all in one
+     * call; lookups check both tables until then. When false (the default), or when set back to false, every resize finishes
+     * immediately.
+     * @param incremental true to spread resizes over later operations */
+    public void setIncremental (boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) finishMigration();
+    }
+
+    public boolean isIncremental () {
+        return incremental;
+    }
+
+    private void grow () {
+        if (incremental && oldKeyTable == null && capacity >= INCREMENTAL_MIN) startMigration(capacity << 1);
+        else resize(capacity << 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void startMigration (int newSize) {
+        oldKeyTable = keyTable;
+        oldEnd = capacity + stashSize;
+        oldMask = mask;
+        oldHashShift = hashShift;
+        migrateIndex = 0;
+
+        capacity = newSize;
+        threshold = (int)(newSize * loadFactor);
+        mask = newSize - 1;
+        hashShift = 31 - Integer.numberOfTrailingZeros(newSize);
+        stashCapacity = Math.max(3, (int)Math.ceil(Math.log(newSize)) * 2);
+        pushIterations = Math.max(Math.min(newSize, 8), (int)Math.sqrt(newSize) / 8);
+
+        keyTable = (T[])new Object[newSize + stashCapacity];
+        stashSize = 0;
+    }
+
+    /** Moves up to {@link #MIGRATE_STEP} slots of the old table into the current one, if an incremental resize is under way. */
+    private void migrate () {
+        for (int moved = 0; oldKeyTable != null && moved < MIGRATE_STEP; moved++) {
+            if (migrateIndex == oldEnd) {
+                oldKeyTable = null;
+                return;
+            }
+            int i = migrateIndex++;
+            T key = oldKeyTable[i];
+            if (key != null) {
+                oldKeyTable[i] = null;
+                size--;
+                addResize(key);
+            }
+        }
+    }
+
+    private GenericSet<T> finishMigration () {
+        while (oldKeyTable != null)
+            migrate();
+        return this;
+    }
+
+    /** Finds key in the old table of an incremental resize, or returns -1; the old stash may have empty slots. */
+    private int locateOld (T key, int hashCode) {
+        T[] oldKeyTable = this.oldKeyTable;
+        int index = hashCode & oldMask;
+        if (key.equals(oldKeyTable[index])) return index;
+        int h = hashCode * PRIME2;
+        index = (h ^ h >>> oldHashShift) & oldMask;
+        if (key.equals(oldKeyTable[index])) return index;
+        h = hashCode * PRIME3;
+        index = (h ^ h >>> oldHashShift) & oldMask;
+        if (key.equals(oldKeyTable[index])) return index;
+        for (int i = oldMask + 1; i < oldEnd; i++)
+            if (key.equals(oldKeyTable[i])) return i;
+        return -1;
+    }
+
     /** Returns true if the key was not already in the set. If this set already contains the key, the call leaves the set unchanged
      * and returns false. */
     public boolean add (T key) {
         if (key == null) throw new IllegalArgumentException("key cannot be null.");
+        if (oldKeyTable != null) migrate();
+        if (capacity == 0) return addSmall(key);
         T[] keyTable = this.keyTable;
 
         // Check for existing keys.
@@ -98,22 +195,25 @@ public class GenericSet<T> implements Iterable<T> {
         for (int i = capacity, n = i + stashSize; i < n; i++)
             if (key.equals(keyTable[i])) return false;
 
+        // Find key in the old table, if it hasn't been moved yet.
+        if (oldKeyTable != null && locateOld(key, hashCode) >= 0) return false;
+
         // Check for empty buckets.
         if (key1 == null) {
             keyTable[index1] = key;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return true;
         }
 
         if (key2 == null) {
             keyTable[index2] = key;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return true;
         }
 
         if (key3 == null) {
             keyTable[index3] = key;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return true;
         }
 
@@ -121,6 +221,18 @@ public class GenericSet<T> implements Iterable<T> {
         return true;
     }
 
+    private boolean addSmall (T key) {
+        for (int i = 0; i < size; i++)
+            if (key.equals(keyTable[i])) return false;
+        if (size == SMALL) {
+            resize(tableCapacity);
+            return add(key);
+        }
+        keyTable[size++] = key;
+        stashSize = size;
+        return true;
+    }
+
     public void addAll (T... array) {
         addAll(array, 0, array.length);
     }
@@ -145,7 +257,7 @@ public class GenericSet<T> implements Iterable<T> {
         T key1 = keyTable[index1];
         if (key1 == null) {
             keyTable[index1] = key;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return;
         }
 
@@ -153,7 +265,7 @@ public class GenericSet<T> implements Iterable<T> {
         T key2 = keyTable[index2];
         if (key2 == null) {
             keyTable[index2] = key;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return;
         }
 
@@ -161,7 +273,7 @@ public class GenericSet<T> implements Iterable<T> {
         T key3 = keyTable[index3];
         if (key3 == null) {
             keyTable[index3] = key;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return;
         }
 
@@ -198,7 +310,7 @@ public class GenericSet<T> implements Iterable<T> {
             key1 = keyTable[index1];
             if (key1 == null) {
                 keyTable[index1] = evictedKey;
-                if (size++ >= threshold) resize(capacity << 1);
+                if (size++ >= threshold) grow();
                 return;
             }
 
@@ -206,7 +318,7 @@ public class GenericSet<T> implements Iterable<T> {
             key2 = keyTable[index2];
             if (key2 == null) {
                 keyTable[index2] = evictedKey;
-                if (size++ >= threshold) resize(capacity << 1);
+                if (size++ >= threshold) grow();
                 return;
             }
 
@@ -214,7 +326,7 @@ public class GenericSet<T> implements Iterable<T> {
             key3 = keyTable[index3];
             if (key3 == null) {
                 keyTable[index3] = evictedKey;
-                if (size++ >= threshold) resize(capacity << 1);
+                if (size++ >= threshold) grow();
                 return;
             }
 
@@ -242,6 +354,8 @@ public class GenericSet<T> implements Iterable<T> {
 
     /** Returns true if the key was removed. */
     public boolean remove (T key) {
+        if (oldKeyTable != null) migrate();
+        if (capacity == 0) return removeStash(key);
         int hashCode = key.hashCode();
         int index = hashCode & mask;
         if (key.equals(keyTable[index])) {
@@ -276,6 +390,15 @@ public class GenericSet<T> implements Iterable<T> {
                 return true;
             }
         }
+        if (oldKeyTable != null) {
+            int index = locateOld(key, key.hashCode());
+            if (index >= 0) {
+                // slots in the old table are never reused, so there is no need to fill gaps in its stash
+                oldKeyTable[index] = null;
+                size--;
+                return true;
+            }
+        }
         return false;
     }
 
@@ -284,11 +407,13 @@ public class GenericSet<T> implements Iterable<T> {
         stashSize--;
         int lastIndex = capacity + stashSize;
         if (index < lastIndex) keyTable[index] = keyTable[lastIndex];
+        keyTable[lastIndex] = null;
     }
 
     /** Reduces the size of the backing arrays to be the specified capacity or less. If the capacity is already less, nothing is
      * done. If the set contains more items than the specified capacity, the next highest power of two capacity is used instead. */
     public void shrink (int maximumCapacity) {
+        finishMigration();
         if (maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
         if (size > maximumCapacity) maximumCapacity = size;
         if (capacity <= maximumCapacity) return;
@@ -298,6 +423,7 @@ public class GenericSet<T> implements Iterable<T> {
 
     /** Clears the set and reduces the size of the backing arrays to be the specified capacity if they are larger. */
     public void clear (int maximumCapacity) {
+        oldKeyTable = null;
         if (capacity <= maximumCapacity) {
             clear();
             return;
@@ -307,6 +433,7 @@ public class GenericSet<T> implements Iterable<T> {
     }
 
     public void clear () {
+        oldKeyTable = null;
         if (size == 0) return;
         T[] keyTable = this.keyTable;
         for (int i = capacity + stashSize; i-- > 0;)
@@ -316,6 +443,7 @@ public class GenericSet<T> implements Iterable<T> {
     }
 
     public boolean contains (T key) {
+        if (capacity == 0) return containsKeyStash(key);
         int hashCode = key.hashCode();
         int index = hashCode & mask;
         if (!key.equals(keyTable[index])) {
@@ -332,25 +460,75 @@ public class GenericSet<T> implements Iterable<T> {
         T[] keyTable = this.keyTable;
         for (int i = capacity, n = i + stashSize; i < n; i++)
             if (key.equals(keyTable[i])) return true;
-        return false;
+        return oldKeyTable != null && locateOld(key, key.hashCode()) >= 0;
+    }
+
+    /** Returns the item in this set that is equal to key, or null if there is none. This is useful for interning, where key
+     * may be a temporary object and the returned item is the one canonical instance equal to it. */
+    public T get (T key) {
+        if (capacity == 0) return getKeyStash(key);
+        int hashCode = key.hashCode();
+        int index = hashCode & mask;
+        T found = keyTable[index];
+        if (!key.equals(found)) {
+            index = hash2(hashCode);
+            found = keyTable[index];
+            if (!key.equals(found)) {
+                index = hash3(hashCode);
+                found = keyTable[index];
+                if (!key.equals(found)) return getKeyStash(key);
+            }
+        }
+        return found;
+    }
+
+    private T getKeyStash (T key) {
+        T[] keyTable = this.keyTable;
+        for (int i = capacity, n = i + stashSize; i < n; i++)
+            if (key.equals(keyTable[i])) return keyTable[i];
+        if (oldKeyTable != null) {
+            int index = locateOld(key, key.hashCode());
+            if (index >= 0) return oldKeyTable[index];
+        }
+        return null;
     }
 
     public T first () {
+        finishMigration();
         T[] keyTable = this.keyTable;
         for (int i = 0, n = capacity + stashSize; i < n; i++)
             if (keyTable[i] != null) return keyTable[i];
         throw new IllegalStateException("GenericSet is empty.");
     }
 
+    /** Makes an immutable copy of this set that uses a perfect hash, with no stash and few empty slots, and a precomputed hash
+     * code equal to this set's. Use this for sets that will be kept and looked up long after they are built.
+     * @return a new FrozenSet with the same keys as this */
+    @SuppressWarnings("unchecked")
+    public FrozenSet<T> freeze () {
+        finishMigration();
+        T[] keys = (T[])new Object[size];
+        int n = 0;
+        for (int i = 0, end = capacity + stashSize; i < end; i++)
+            if (keyTable[i] != null) keys[n++] = keyTable[i];
+        return new FrozenSet<T>(keys, n);
+    }
+
     /** Increases the size of the backing array to accommodate the specified number of additional items. Useful before adding many
      * items to avoid multiple backing array resizes. */
     public void ensureCapacity (int additionalCapacity) {
+        finishMigration();
         int sizeNeeded = size + additionalCapacity;
-        if (sizeNeeded >= threshold) resize(nextPowerOfTwo((int)Math.ceil(sizeNeeded / loadFactor)));
+        if (sizeNeeded >= threshold)
+            resize(Math.max(capacity == 0 ? tableCapacity : 0, nextPowerOfTwo((int)Math.ceil(sizeNeeded / loadFactor))));
     }
 
     private void resize (int newSize) {
         int oldEndIndex = capacity + stashSize;
+        // keys not yet moved by an incremental resize are added along with the rest
+        T[] pendingKeys = this.oldKeyTable;
+        int pendingEnd = oldEnd;
+        this.oldKeyTable = null;
 
         capacity = newSize;
         threshold = (int)(newSize * loadFactor);
@@ -371,6 +549,12 @@ public class GenericSet<T> implements Iterable<T> {
                 T key = oldKeyTable[i];
                 if (key != null) addResize(key);
             }
+            if (pendingKeys != null) {
+                for (int i = 0; i < pendingEnd; i++) {
+                    T key = pendingKeys[i];
+                    if (key != null) addResize(key);
+                }
+            }
         }
     }
 
@@ -385,6 +569,7 @@ public class GenericSet<T> implements Iterable<T> {
     }
 
     public int hashCode () {
+        finishMigration();
         int h = 1;
         for (int i = 0, n = capacity + stashSize; i < n; i++)
             if (keyTable[i] != null) h += keyTable[i].hashCode();
@@ -395,6 +580,7 @@ public class GenericSet<T> implements Iterable<T> {
         if (!(obj instanceof GenericSet)) return false;
         GenericSet other = (GenericSet)obj;
         if (other.size != size) return false;
+        finishMigration();
         for (int i = 0, n = capacity + stashSize; i < n; i++)
             if (keyTable[i] != null && !other.contains(keyTable[i])) return false;
         return true;
@@ -405,6 +591,7 @@ public class GenericSet<T> implements Iterable<T> {
     }
 
     public String toString (String separator) {
+        finishMigration();
         if (size == 0) return "";
         StringBuilder buffer = new StringBuilder(32);
         T[] keyTable = this.keyTable;
@@ -424,10 +611,30 @@ public class GenericSet<T> implements Iterable<T> {
         return buffer.toString();
     }
 
+    /** Calls action with each key, reading the table directly, so it allocates nothing and shares no state with other loops; it
+     * can be nested and used by several threads at once, as long as nothing changes the set meanwhile. It never writes to the set,
+     * not even to move keys along during an incremental resize; it reads the part of the old table that hasn't been moved yet as
+     * well as the current one. The action must not add or remove keys.
+     * @param action called once per key, in no particular order */
+    public void forEachKey (ObjConsumer<? super T> action) {
+        T[] keyTable = this.keyTable;
+        for (int i = 0, n = capacity + stashSize; i < n; i++) {
+            T key = keyTable[i];
+            if (key != null) action.accept(key);
+        }
+        // moved slots are emptied in the old table, so no key is in both
+        T[] oldKeyTable = this.oldKeyTable;
+        if (oldKeyTable == null) return;
+        for (int i = migrateIndex, n = oldEnd; i < n; i++) {
+            T key = oldKeyTable[i];
+            if (key != null) action.accept(key);
+        }
+    }
 
     /** Returns an iterator for the keys in the set. Remove is supported. Note that the same iterator instance is returned each time
      * this method is called. Use the {@link GenericSetIterator} constructor for nested or multithreaded iteration. */
     public GenericSetIterator<T> iterator () {
+        finishMigration();
         if (iterator1 == null) {
             iterator1 = new GenericSetIterator<T>(this);
             iterator2 = new GenericSetIterator<T>(this);
@@ -463,6 +670,7 @@ public class GenericSet<T> implements Iterable<T> {
         }
 
         public void reset () {
+            set.finishMigration();
             currentIndex = -1;
             nextIndex = -1;
             findNextIndex();
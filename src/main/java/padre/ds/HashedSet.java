@@ -0,0 +1,505 @@
+package padre.ds;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static padre.ds.MathUtils.nextPowerOfTwo;
+
+/** An unordered set where the keys are objects, like {@link GenericSet}, that also stores the hash code of each key in a parallel
+ * int array. Cuckoo hashing moves keys around on nearly every insertion that collides, and rehashes every key when the table
+ * grows; GenericSet calls hashCode() again each time, while this set never calls it more than once per key it is given. Lookups
+ * compare the stored hash before calling equals(), so a search that fails usually makes no calls to equals() at all. This is
+ * worth the extra int per slot when keys are slow to hash or compare, like deep trees of patterns or large ComBits. <br>
+ * <br>
+ * This implementation uses cuckoo hashing using 3 hashes, random walking, and a small stash for problematic keys. Null keys
+ * are not allowed. No allocation is done except when growing the table size.
+ * Based on {@link GenericSet}.
+ * @author Nathan Sweet */
+public class HashedSet<T> implements Iterable<T> {
+    private static final int PRIME2 = 0xb4b82e39;
+    private static final int PRIME3 = 0xced1c241;
+
+    public int size;
+
+    private long random = 31L;
+
+    T[] keyTable;
+    /** The hash code of the key in the same slot of keyTable; meaningless where keyTable has null. */
+    int[] hashTable;
+    int capacity, stashSize;
+
+    private float loadFactor;
+    private int hashShift, mask, threshold;
+    private int stashCapacity;
+    private int pushIterations;
+
+    private HashedSetIterator<T> iterator1, iterator2;
+
+    /** Creates a new set with an initial capacity of 51 and a load factor of 0.8. */
+    public HashedSet () {
+        this(51, 0.8f);
+    }
+
+    /** Creates a new set with a load factor of 0.8.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+    public HashedSet (int initialCapacity) {
+        this(initialCapacity, 0.8f);
+    }
+
+    /** Creates a new set with the specified initial capacity and load factor. This set will hold initialCapacity items before
+     * growing the backing table.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+    @SuppressWarnings("unchecked")
+    public HashedSet (int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        if (loadFactor <= 0) throw new IllegalArgumentException("loadFactor must be > 0: " + loadFactor);
+        initialCapacity = nextPowerOfTwo(Math.max(4, (int)Math.ceil(initialCapacity / loadFactor)));
+        if (initialCapacity > 1 << 30) throw new IllegalArgumentException("initialCapacity is too large: " + initialCapacity);
+        this.loadFactor = loadFactor;
+        setCapacity(initialCapacity);
+
+        keyTable = (T[])new Object[capacity + stashCapacity];
+        hashTable = new int[capacity + stashCapacity];
+    }
+
+    /** Creates a new set identical to the specified set. */
+    public HashedSet (HashedSet<? extends T> set) {
+        this((int)Math.floor(set.capacity * set.loadFactor), set.loadFactor);
+        stashSize = set.stashSize;
+        System.arraycopy(set.keyTable, 0, keyTable, 0, set.keyTable.length);
+        System.arraycopy(set.hashTable, 0, hashTable, 0, set.hashTable.length);
+        size = set.size;
+    }
+
+    private void setCapacity (int newSize) {
+        capacity = newSize;
+        threshold = (int)(newSize * loadFactor);
+        mask = newSize - 1;
+        hashShift = 31 - Integer.numberOfTrailingZeros(newSize);
+        stashCapacity = Math.max(3, (int)Math.ceil(Math.log(newSize)) * 2);
+        pushIterations = Math.max(Math.min(newSize, 8), (int)Math.sqrt(newSize) / 8);
+    }
+
+    /** Returns true if the key was not already in the set. If this set already contains the key, the call leaves the set unchanged
+     * and returns false. */
+    public boolean add (T key) {
+        if (key == null) throw new IllegalArgumentException("key cannot be null.");
+        T[] keyTable = this.keyTable;
+        int[] hashTable = this.hashTable;
+
+        // Check for existing keys.
+        int hashCode = key.hashCode();
+        int index1 = hashCode & mask;
+        T key1 = keyTable[index1];
+        if (key1 != null && hashTable[index1] == hashCode && key.equals(key1)) return false;
+
+        int index2 = hash2(hashCode);
+        T key2 = keyTable[index2];
+        if (key2 != null && hashTable[index2] == hashCode && key.equals(key2)) return false;
+
+        int index3 = hash3(hashCode);
+        T key3 = keyTable[index3];
+        if (key3 != null && hashTable[index3] == hashCode && key.equals(key3)) return false;
+
+        // Find key in the stash.
+        for (int i = capacity, n = i + stashSize; i < n; i++)
+            if (hashTable[i] == hashCode && key.equals(keyTable[i])) return false;
+
+        addResize(key, hashCode, index1, key1, index2, key2, index3, key3);
+        return true;
+    }
+
+    public void addAll (T... array) {
+        addAll(array, 0, array.length);
+    }
+
+    public void addAll (T[] array, int offset, int length) {
+        ensureCapacity(length);
+        for (int i = offset, n = i + length; i < n; i++)
+            add(array[i]);
+    }
+
+    public void addAll (HashedSet<T> set) {
+        ensureCapacity(set.size);
+        for (T key : set)
+            add(key);
+    }
+
+    /** Skips checks for existing keys. */
+    private void addResize (T key, int hashCode) {
+        int index1 = hashCode & mask, index2 = hash2(hashCode), index3 = hash3(hashCode);
+        addResize(key, hashCode, index1, keyTable[index1], index2, keyTable[index2], index3, keyTable[index3]);
+    }
+
+    private void addResize (T key, int hashCode, int index1, T key1, int index2, T key2, int index3, T key3) {
+        // Check for empty buckets.
+        if (key1 == null) {
+            keyTable[index1] = key;
+            hashTable[index1] = hashCode;
+            if (size++ >= threshold) resize(capacity << 1);
+            return;
+        }
+
+        if (key2 == null) {
+            keyTable[index2] = key;
+            hashTable[index2] = hashCode;
+            if (size++ >= threshold) resize(capacity << 1);
+            return;
+        }
+
+        if (key3 == null) {
+            keyTable[index3] = key;
+            hashTable[index3] = hashCode;
+            if (size++ >= threshold) resize(capacity << 1);
+            return;
+        }
+
+        push(key, hashCode, index1, key1, index2, key2, index3, key3);
+    }
+
+    private void push (T insertKey, int insertHash, int index1, T key1, int index2, T key2, int index3, T key3) {
+        T[] keyTable = this.keyTable;
+        int[] hashTable = this.hashTable;
+        int mask = this.mask;
+
+        // Push keys until an empty bucket is found.
+        T evictedKey;
+        int evictedHash;
+        int i = 0, pushIterations = this.pushIterations;
+        do {
+            // Replace the key and hash for one of the hashes.
+            switch (MathUtils.nextInt(random += 0x9E3779B97F4A7C15L, 3)) {
+                case 0:
+                    evictedKey = key1;
+                    evictedHash = hashTable[index1];
+                    keyTable[index1] = insertKey;
+                    hashTable[index1] = insertHash;
+                    break;
+                case 1:
+                    evictedKey = key2;
+                    evictedHash = hashTable[index2];
+                    keyTable[index2] = insertKey;
+                    hashTable[index2] = insertHash;
+                    break;
+                default:
+                    evictedKey = key3;
+                    evictedHash = hashTable[index3];
+                    keyTable[index3] = insertKey;
+                    hashTable[index3] = insertHash;
+                    break;
+            }
+
+            // If the evicted key hashes to an empty bucket, put it there and stop.
+            index1 = evictedHash & mask;
+            key1 = keyTable[index1];
+            if (key1 == null) {
+                keyTable[index1] = evictedKey;
+                hashTable[index1] = evictedHash;
+                if (size++ >= threshold) resize(capacity << 1);
+                return;
+            }
+
+            index2 = hash2(evictedHash);
+            key2 = keyTable[index2];
+            if (key2 == null) {
+                keyTable[index2] = evictedKey;
+                hashTable[index2] = evictedHash;
+                if (size++ >= threshold) resize(capacity << 1);
+                return;
+            }
+
+            index3 = hash3(evictedHash);
+            key3 = keyTable[index3];
+            if (key3 == null) {
+                keyTable[index3] = evictedKey;
+                hashTable[index3] = evictedHash;
+                if (size++ >= threshold) resize(capacity << 1);
+                return;
+            }
+
+            if (++i == pushIterations) break;
+
+            insertKey = evictedKey;
+            insertHash = evictedHash;
+        } while (true);
+
+        addStash(evictedKey, evictedHash);
+    }
+
+    private void addStash (T key, int hashCode) {
+        if (stashSize == stashCapacity) {
+            // Too many pushes occurred and the stash is full, increase the table size.
+            resize(capacity << 1);
+            addResize(key, hashCode);
+            return;
+        }
+        // Store key in the stash.
+        int index = capacity + stashSize;
+        keyTable[index] = key;
+        hashTable[index] = hashCode;
+        stashSize++;
+        size++;
+    }
+
+    /** Finds the slot holding a key equal to key, or returns -1 if there is none. */
+    private int locate (T key) {
+        int hashCode = key.hashCode();
+        int index = hashCode & mask;
+        if (hashTable[index] == hashCode && key.equals(keyTable[index])) return index;
+        index = hash2(hashCode);
+        if (hashTable[index] == hashCode && key.equals(keyTable[index])) return index;
+        index = hash3(hashCode);
+        if (hashTable[index] == hashCode && key.equals(keyTable[index])) return index;
+        for (int i = capacity, n = i + stashSize; i < n; i++)
+            if (hashTable[i] == hashCode && key.equals(keyTable[i])) return i;
+        return -1;
+    }
+
+    /** Returns true if the key was removed. */
+    public boolean remove (T key) {
+        int index = locate(key);
+        if (index < 0) return false;
+        if (index >= capacity) removeStashIndex(index);
+        else keyTable[index] = null;
+        size--;
+        return true;
+    }
+
+    void removeStashIndex (int index) {
+        // If the removed location was not last, move the last tuple to the removed location.
+        stashSize--;
+        int lastIndex = capacity + stashSize;
+        if (index < lastIndex) {
+            keyTable[index] = keyTable[lastIndex];
+            hashTable[index] = hashTable[lastIndex];
+        }
+        keyTable[lastIndex] = null;
+    }
+
+    /** Reduces the size of the backing arrays to be the specified capacity or less. If the capacity is already less, nothing is
+     * done. If the set contains more items than the specified capacity, the next highest power of two capacity is used instead. */
+    public void shrink (int maximumCapacity) {
+        if (maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
+        if (size > maximumCapacity) maximumCapacity = size;
+        if (capacity <= maximumCapacity) return;
+        maximumCapacity = nextPowerOfTwo(Math.max(4, maximumCapacity));
+        resize(maximumCapacity);
+    }
+
+    /** Clears the set and reduces the size of the backing arrays to be the specified capacity if they are larger. */
+    public void clear (int maximumCapacity) {
+        if (capacity <= maximumCapacity) {
+            clear();
+            return;
+        }
+        size = 0;
+        stashSize = 0;
+        resize(nextPowerOfTwo(Math.max(4, maximumCapacity)));
+    }
+
+    public void clear () {
+        if (size == 0) return;
+        T[] keyTable = this.keyTable;
+        for (int i = capacity + stashSize; i-- > 0;)
+            keyTable[i] = null;
+        size = 0;
+        stashSize = 0;
+    }
+
+    public boolean contains (T key) {
+        return locate(key) >= 0;
+    }
+
+    /** Returns the item in this set that is equal to key, or null if there is none. This is useful for interning, where key
+     * may be a temporary object and the returned item is the one canonical instance equal to it. */
+    public T get (T key) {
+        int index = locate(key);
+        return index < 0 ? null : keyTable[index];
+    }
+
+    public T first () {
+        T[] keyTable = this.keyTable;
+        for (int i = 0, n = capacity + stashSize; i < n; i++)
+            if (keyTable[i] != null) return keyTable[i];
+        throw new IllegalStateException("HashedSet is empty.");
+    }
+
+    /** Increases the size of the backing array to accommodate the specified number of additional items. Useful before adding many
+     * items to avoid multiple backing array resizes. */
+    public void ensureCapacity (int additionalCapacity) {
+        int sizeNeeded = size + additionalCapacity;
+        if (sizeNeeded >= threshold) resize(nextPowerOfTwo((int)Math.ceil(sizeNeeded / loadFactor)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize (int newSize) {
+        int oldEndIndex = capacity + stashSize;
+        setCapacity(newSize);
+
+        T[] oldKeyTable = keyTable;
+        int[] oldHashTable = hashTable;
+
+        keyTable = (T[])new Object[newSize + stashCapacity];
+        hashTable = new int[newSize + stashCapacity];
+
+        int oldSize = size;
+        size = 0;
+        stashSize = 0;
+        if (oldSize > 0) {
+            for (int i = 0; i < oldEndIndex; i++) {
+                T key = oldKeyTable[i];
+                if (key != null) addResize(key, oldHashTable[i]);
+            }
+        }
+    }
+
+    private int hash2 (int h) {
+        h *= PRIME2;
+        return (h ^ h >>> hashShift) & mask;
+    }
+
+    private int hash3 (int h) {
+        h *= PRIME3;
+        return (h ^ h >>> hashShift) & mask;
+    }
+
+    public int hashCode () {
+        int h = 1;
+        for (int i = 0, n = capacity + stashSize; i < n; i++)
+            if (keyTable[i] != null) h += hashTable[i];
+        return h;
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean equals (Object obj) {
+        if (!(obj instanceof HashedSet)) return false;
+        HashedSet other = (HashedSet)obj;
+        if (other.size != size) return false;
+        for (int i = 0, n = capacity + stashSize; i < n; i++)
+            if (keyTable[i] != null && !other.contains(keyTable[i])) return false;
+        return true;
+    }
+
+    public String toString () {
+        return '{' + toString(", ") + '}';
+    }
+
+    public String toString (String separator) {
+        if (size == 0) return "";
+        StringBuilder buffer = new StringBuilder(32);
+        T[] keyTable = this.keyTable;
+        int i = keyTable.length;
+        while (i-- > 0) {
+            T key = keyTable[i];
+            if (key == null) continue;
+            buffer.append(key);
+            break;
+        }
+        while (i-- > 0) {
+            T key = keyTable[i];
+            if (key == null) continue;
+            buffer.append(separator);
+            buffer.append(key);
+        }
+        return buffer.toString();
+    }
+
+    /** Returns an iterator for the keys in the set. Remove is supported. Note that the same iterator instance is returned each time
+     * this method is called. Use the {@link HashedSetIterator} constructor for nested or multithreaded iteration. */
+    public HashedSetIterator<T> iterator () {
+        if (iterator1 == null) {
+            iterator1 = new HashedSetIterator<T>(this);
+            iterator2 = new HashedSetIterator<T>(this);
+        }
+        if (!iterator1.valid) {
+            iterator1.reset();
+            iterator1.valid = true;
+            iterator2.valid = false;
+            return iterator1;
+        }
+        iterator2.reset();
+        iterator2.valid = true;
+        iterator1.valid = false;
+        return iterator2;
+    }
+
+    static public <T> HashedSet<T> with (T... array) {
+        HashedSet<T> set = new HashedSet<T>();
+        set.addAll(array);
+        return set;
+    }
+
+    static public class HashedSetIterator<K> implements Iterable<K>, Iterator<K> {
+        public boolean hasNext;
+
+        final HashedSet<K> set;
+        int nextIndex, currentIndex;
+        boolean valid = true;
+
+        public HashedSetIterator (HashedSet<K> set) {
+            this.set = set;
+            reset();
+        }
+
+        public void reset () {
+            currentIndex = -1;
+            nextIndex = -1;
+            findNextIndex();
+        }
+
+        void findNextIndex () {
+            hasNext = false;
+            K[] keyTable = set.keyTable;
+            for (int n = set.capacity + set.stashSize; ++nextIndex < n;) {
+                if (keyTable[nextIndex] != null) {
+                    hasNext = true;
+                    break;
+                }
+            }
+        }
+
+        public void remove () {
+            if (currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
+            if (currentIndex >= set.capacity) {
+                set.removeStashIndex(currentIndex);
+                nextIndex = currentIndex - 1;
+                findNextIndex();
+            } else {
+                set.keyTable[currentIndex] = null;
+            }
+            currentIndex = -1;
+            set.size--;
+        }
+
+        public boolean hasNext () {
+            if (!valid) throw new IllegalStateException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public K next () {
+            if (!hasNext) throw new NoSuchElementException();
+            if (!valid) throw new IllegalStateException("#iterator() cannot be used nested.");
+            K key = set.keyTable[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return key;
+        }
+
+        public HashedSetIterator<K> iterator () {
+            return this;
+        }
+
+        /** Adds the remaining values to the array. */
+        public ArrayList<K> toArray (ArrayList<K> array) {
+            while (hasNext)
+                array.add(next());
+            return array;
+        }
+
+        /** Returns a new array containing the remaining values. */
+        public ArrayList<K> toArray () {
+            return toArray(new ArrayList<K>(set.size));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package padre.ds;
+
+/**
+ * Something that takes int items one at a time, such as the keys of an {@link IntMap} given to
+ * {@link IntMap#forEachKey(IntConsumer)}; a primitive version of {@link ObjConsumer} that avoids boxing.
+ */
+public interface IntConsumer {
+    /**
+     * @param item the current item
+     */
+    void accept(int item);
+}
@@ -28,7 +28,12 @@ import static padre.ds.MathUtils.nextPowerOfTwo;
  * <br>
  * This map performs very fast get, containsKey, and remove (typically O(1), worst case O(log(n))). Put may be a bit slower,
  * depending on hash collisions. Load factors greater than 0.91 greatly increase the chances the map will have to rehash to the
- * next higher POT size.
+ * next higher POT size. <br>
+ * <br>
+ * Growing normally rehashes every entry inside one put, which can pause for milliseconds once a map holds millions of entries.
+ * After {@link #setIncremental(boolean)} is given true, a large map instead allocates its bigger table and moves a few entries
+ * from the old table on each later put or remove, while lookups check both tables, so no single put does more than a small,
+ * fixed amount of rehashing. Operations that visit every entry, like iteration, finish any remaining moves first.
  *
  * @author Nathan Sweet
  */
@@ -37,6 +42,10 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
     private static final int PRIME2 = 0xb4b82e39;
     private static final int PRIME3 = 0xced1c241;
     private static final int EMPTY = 0;
+    /** How many slots of the old table each put or remove moves during an incremental resize. */
+    private static final int MIGRATE_STEP = 8;
+    /** Tables smaller than this always resize all at once, since that is already quick. */
+    private static final int INCREMENTAL_MIN = 1 << 12;
 
     public int size;
 
@@ -52,6 +61,12 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
     private int pushIterations;
     private long random = 31L;
 
+    /** While an incremental resize is under way, the table being emptied into keyTable and valueTable; null otherwise. */
+    int[] oldKeyTable;
+    V[] oldValueTable;
+    private int oldEnd, oldMask, oldHashShift, migrateIndex;
+    private boolean incremental;
+
     private Entries entries1, entries2;
     private Values values1, values2;
     private Keys keys1, keys2;
@@ -102,7 +117,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      * Creates a new map identical to the specified map.
      */
     public IntMap(IntMap<? extends V> map) {
-        this((int) Math.floor(map.capacity * map.loadFactor), map.loadFactor);
+        this((int) Math.floor(map.finishMigration().capacity * map.loadFactor), map.loadFactor);
         stashSize = map.stashSize;
         System.arraycopy(map.keyTable, 0, keyTable, 0, map.keyTable.length);
         System.arraycopy(map.valueTable, 0, valueTable, 0, map.valueTable.length);
@@ -111,7 +126,96 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         hasZeroValue = map.hasZeroValue;
     }
 
+    /**
+     * Sets whether this map grows incrementally. When true, a map with at least 4096 slots that needs to grow allocates its new
+     * table right away but moves the old entries over a few at a time, during later calls to put and remove, instead of all in
+     * one call; this bounds the time any single put takes. When false (the default), or when set back to false, every resize
+     * finishes immediately.
+     *
+     * @param incremental true to spread resizes over later operations
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) finishMigration();
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    private void grow() {
+        if (incremental && oldKeyTable == null && capacity >= INCREMENTAL_MIN) startMigration(capacity << 1);
+        else resize(capacity << 1);
+    }
+
+    private void startMigration(int newSize) {
+        oldKeyTable = keyTable;
+        oldValueTable = valueTable;
+        oldEnd = capacity + stashSize;
+        oldMask = mask;
+        oldHashShift = hashShift;
+        migrateIndex = 0;
+
+        capacity = newSize;
+        threshold = (int) (newSize * loadFactor);
+        mask = newSize - 1;
+        hashShift = 31 - Integer.numberOfTrailingZeros(newSize);
+        stashCapacity = Math.max(3, (int) Math.ceil(Math.log(newSize)) * 2);
+        pushIterations = Math.max(Math.min(newSize, 8), (int) Math.sqrt(newSize) / 8);
+
+        keyTable = new int[newSize + stashCapacity];
+        valueTable = (V[]) new Object[newSize + stashCapacity];
+        stashSize = 0;
+    }
+
+    /**
+     * Moves up to {@link #MIGRATE_STEP} slots of the old table into the current one, if an incremental resize is under way.
+     */
+    private void migrate() {
+        for (int moved = 0; oldKeyTable != null && moved < MIGRATE_STEP; moved++) {
+            if (migrateIndex == oldEnd) {
+                oldKeyTable = null;
+                oldValueTable = null;
+                return;
+            }
+            int i = migrateIndex++;
+            int key = oldKeyTable[i];
+            if (key != EMPTY) {
+                V value = oldValueTable[i];
+                oldKeyTable[i] = EMPTY;
+                oldValueTable[i] = null;
+                size--;
+                putResize(key, value);
+            }
+        }
+    }
+
+    private IntMap<V> finishMigration() {
+        while (oldKeyTable != null)
+            migrate();
+        return this;
+    }
+
+    /**
+     * Finds key in the old table of an incremental resize, or returns -1; the old stash may have empty slots.
+     */
+    private int locateOld(int key) {
+        int[] oldKeyTable = this.oldKeyTable;
+        int index = key & oldMask;
+        if (oldKeyTable[index] == key) return index;
+        int h = key * PRIME2;
+        index = (h ^ h >>> oldHashShift) & oldMask;
+        if (oldKeyTable[index] == key) return index;
+        h = key * PRIME3;
+        index = (h ^ h >>> oldHashShift) & oldMask;
+        if (oldKeyTable[index] == key) return index;
+        for (int i = oldMask + 1; i < oldEnd; i++)
+            if (oldKeyTable[i] == key) return i;
+        return -1;
+    }
+
     public V put(int key, V value) {
+        if (oldKeyTable != null) migrate();
         if (key == 0) {
             V oldValue = zeroValue;
             zeroValue = value;
@@ -158,25 +262,35 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
             }
         }
 
+        // Update key in the old table, if it hasn't been moved yet.
+        if (oldKeyTable != null) {
+            int index = locateOld(key);
+            if (index >= 0) {
+                V oldValue = oldValueTable[index];
+                oldValueTable[index] = value;
+                return oldValue;
+            }
+        }
+
         // Check for empty buckets.
         if (key1 == EMPTY) {
             keyTable[index1] = key;
             valueTable[index1] = value;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return null;
         }
 
         if (key2 == EMPTY) {
             keyTable[index2] = key;
             valueTable[index2] = value;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return null;
         }
 
         if (key3 == EMPTY) {
             keyTable[index3] = key;
             valueTable[index3] = value;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return null;
         }
 
@@ -205,7 +319,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         if (key1 == EMPTY) {
             keyTable[index1] = key;
             valueTable[index1] = value;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return;
         }
 
@@ -214,7 +328,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         if (key2 == EMPTY) {
             keyTable[index2] = key;
             valueTable[index2] = value;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return;
         }
 
@@ -223,7 +337,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         if (key3 == EMPTY) {
             keyTable[index3] = key;
             valueTable[index3] = value;
-            if (size++ >= threshold) resize(capacity << 1);
+            if (size++ >= threshold) grow();
             return;
         }
 
@@ -269,7 +383,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
             if (key1 == EMPTY) {
                 keyTable[index1] = evictedKey;
                 valueTable[index1] = evictedValue;
-                if (size++ >= threshold) resize(capacity << 1);
+                if (size++ >= threshold) grow();
                 return;
             }
 
@@ -278,7 +392,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
             if (key2 == EMPTY) {
                 keyTable[index2] = evictedKey;
                 valueTable[index2] = evictedValue;
-                if (size++ >= threshold) resize(capacity << 1);
+                if (size++ >= threshold) grow();
                 return;
             }
 
@@ -287,7 +401,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
             if (key3 == EMPTY) {
                 keyTable[index3] = evictedKey;
                 valueTable[index3] = evictedValue;
-                if (size++ >= threshold) resize(capacity << 1);
+                if (size++ >= threshold) grow();
                 return;
             }
 
@@ -351,10 +465,15 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         int[] keyTable = this.keyTable;
         for (int i = capacity, n = i + stashSize; i < n; i++)
             if (keyTable[i] == key) return valueTable[i];
+        if (oldKeyTable != null) {
+            int index = locateOld(key);
+            if (index >= 0) return oldValueTable[index];
+        }
         return defaultValue;
     }
 
     public V remove(int key) {
+        if (oldKeyTable != null) migrate();
         if (key == 0) {
             if (!hasZeroValue) return null;
             V oldValue = zeroValue;
@@ -404,6 +523,17 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
                 return oldValue;
             }
         }
+        if (oldKeyTable != null) {
+            int index = locateOld(key);
+            if (index >= 0) {
+                // slots in the old table are never reused, so there is no need to fill gaps in its stash
+                V oldValue = oldValueTable[index];
+                oldKeyTable[index] = EMPTY;
+                oldValueTable[index] = null;
+                size--;
+                return oldValue;
+            }
+        }
         return null;
     }
 
@@ -424,6 +554,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      * done. If the map contains more items than the specified capacity, the next highest power of two capacity is used instead.
      */
     public void shrink(int maximumCapacity) {
+        finishMigration();
         if (maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
         if (size > maximumCapacity) maximumCapacity = size;
         if (capacity <= maximumCapacity) return;
@@ -435,6 +566,8 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      * Clears the map and reduces the size of the backing arrays to be the specified capacity if they are larger.
      */
     public void clear(int maximumCapacity) {
+        oldKeyTable = null;
+        oldValueTable = null;
         if (capacity <= maximumCapacity) {
             clear();
             return;
@@ -446,6 +579,8 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
     }
 
     public void clear() {
+        oldKeyTable = null;
+        oldValueTable = null;
         if (size == 0) return;
         int[] keyTable = this.keyTable;
         V[] valueTable = this.valueTable;
@@ -467,6 +602,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      *                 {@link #equals(Object)}.
      */
     public boolean containsValue(Object value, boolean identity) {
+        finishMigration();
         V[] valueTable = this.valueTable;
         if (value == null) {
             if (hasZeroValue && zeroValue == null) return true;
@@ -502,7 +638,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         int[] keyTable = this.keyTable;
         for (int i = capacity, n = i + stashSize; i < n; i++)
             if (keyTable[i] == key) return true;
-        return false;
+        return oldKeyTable != null && locateOld(key) >= 0;
     }
 
     /**
@@ -513,6 +649,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      *                 {@link #equals(Object)}.
      */
     public int findKey(Object value, boolean identity, int notFound) {
+        finishMigration();
         V[] valueTable = this.valueTable;
         if (value == null) {
             if (hasZeroValue && zeroValue == null) return 0;
@@ -536,12 +673,19 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      * items to avoid multiple backing array resizes.
      */
     public void ensureCapacity(int additionalCapacity) {
+        finishMigration();
         int sizeNeeded = size + additionalCapacity;
         if (sizeNeeded >= threshold) resize(nextPowerOfTwo((int) Math.ceil(sizeNeeded / loadFactor)));
     }
 
     private void resize(int newSize) {
         int oldEndIndex = capacity + stashSize;
+        // entries not yet moved by an incremental resize are added along with the rest
+        int[] pendingKeys = this.oldKeyTable;
+        V[] pendingValues = this.oldValueTable;
+        int pendingEnd = oldEnd;
+        this.oldKeyTable = null;
+        this.oldValueTable = null;
 
         capacity = newSize;
         threshold = (int) (newSize * loadFactor);
@@ -564,6 +708,12 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
                 int key = oldKeyTable[i];
                 if (key != EMPTY) putResize(key, oldValueTable[i]);
             }
+            if (pendingKeys != null) {
+                for (int i = 0; i < pendingEnd; i++) {
+                    int key = pendingKeys[i];
+                    if (key != EMPTY) putResize(key, pendingValues[i]);
+                }
+            }
         }
     }
 
@@ -578,6 +728,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
     }
 
     public int hashCode() {
+        finishMigration();
         int h = 0;
         if (hasZeroValue && zeroValue != null) {
             h += zeroValue.hashCode();
@@ -602,6 +753,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         if (obj == this) return true;
         if (!(obj instanceof IntMap)) return false;
         IntMap<V> other = (IntMap) obj;
+        finishMigration();
         if (other.size != size) return false;
         if (other.hasZeroValue != hasZeroValue) return false;
         if (hasZeroValue) {
@@ -632,6 +784,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
     }
 
     public String toString() {
+        finishMigration();
         if (size == 0) return "[]";
         StringBuilder buffer = new StringBuilder(32);
         buffer.append('[');
@@ -663,6 +816,69 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         return buffer.toString();
     }
 
+    /**
+     * Calls action with each key and value, reading the tables directly, so it allocates nothing and shares no state with
+     * other loops; it can be nested and used by several threads at once, as long as nothing changes the map meanwhile.
+     * It never writes to the map, not even to move entries along during an incremental resize; it reads the part of the
+     * old table that hasn't been moved yet as well as the current one. The action must not add or remove keys.
+     * @param action called once per entry, in no particular order
+     */
+    public void forEachEntry(IntObjConsumer<? super V> action) {
+        if (hasZeroValue) action.accept(0, zeroValue);
+        int[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        for (int i = 0, n = capacity + stashSize; i < n; i++) {
+            int key = keyTable[i];
+            if (key != EMPTY) action.accept(key, valueTable[i]);
+        }
+        // moved slots are emptied in the old table, so no key is in both
+        int[] oldKeyTable = this.oldKeyTable;
+        if (oldKeyTable == null) return;
+        V[] oldValueTable = this.oldValueTable;
+        for (int i = migrateIndex, n = oldEnd; i < n; i++) {
+            int key = oldKeyTable[i];
+            if (key != EMPTY) action.accept(key, oldValueTable[i]);
+        }
+    }
+
+    /**
+     * Calls action with each key, like {@link #forEachEntry(IntObjConsumer)} without the values.
+     * @param action called once per key, in no particular order
+     */
+    public void forEachKey(IntConsumer action) {
+        if (hasZeroValue) action.accept(0);
+        int[] keyTable = this.keyTable;
+        for (int i = 0, n = capacity + stashSize; i < n; i++) {
+            int key = keyTable[i];
+            if (key != EMPTY) action.accept(key);
+        }
+        int[] oldKeyTable = this.oldKeyTable;
+        if (oldKeyTable == null) return;
+        for (int i = migrateIndex, n = oldEnd; i < n; i++) {
+            int key = oldKeyTable[i];
+            if (key != EMPTY) action.accept(key);
+        }
+    }
+
+    /**
+     * Calls action with each value, like {@link #forEachEntry(IntObjConsumer)} without the keys.
+     * @param action called once per value, in no particular order
+     */
+    public void forEachValue(ObjConsumer<? super V> action) {
+        if (hasZeroValue) action.accept(zeroValue);
+        int[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        for (int i = 0, n = capacity + stashSize; i < n; i++) {
+            if (keyTable[i] != EMPTY) action.accept(valueTable[i]);
+        }
+        int[] oldKeyTable = this.oldKeyTable;
+        if (oldKeyTable == null) return;
+        V[] oldValueTable = this.oldValueTable;
+        for (int i = migrateIndex, n = oldEnd; i < n; i++) {
+            if (oldKeyTable[i] != EMPTY) action.accept(oldValueTable[i]);
+        }
+    }
+
     public Iterator<Entry<V>> iterator() {
         return entries();
     }
@@ -672,6 +888,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
      */
     public Entries<V> entries() {
+        finishMigration();
         if (entries1 == null) {
             entries1 = new Entries(this);
             entries2 = new Entries(this);
@@ -693,6 +910,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
      */
     public Values<V> values() {
+        finishMigration();
         if (values1 == null) {
             values1 = new Values(this);
             values2 = new Values(this);
@@ -714,6 +932,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
      * this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
      */
     public Keys keys() {
+        finishMigration();
         if (keys1 == null) {
             keys1 = new Keys(this);
             keys2 = new Keys(this);
@@ -755,6 +974,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
         }
 
         public void reset() {
+            map.finishMigration();
             currentIndex = INDEX_ILLEGAL;
             nextIndex = INDEX_ZERO;
             if (map.hasZeroValue)
@@ -0,0 +1,13 @@
+package padre.ds;
+
+/**
+ * Something that takes pairs of an int and an object one at a time, such as the entries of an {@link IntMap} given to
+ * {@link IntMap#forEachEntry(IntObjConsumer)}.
+ */
+public interface IntObjConsumer<V> {
+    /**
+     * @param key the current int, such as a key in a map
+     * @param value the object paired with key
+     */
+    void accept(int key, V value);
+}
@@ -29,8 +29,10 @@ import java.util.*;
  * you reuse instances of this class.
  * <p>
  * <P>Iterators generated by this map will enumerate pairs in the same order in which they have been added to the map (addition of pairs whose key is already present in the set does not change the
- * iteration order). Note that this order has nothing in common with the natural order of the keys. The order is kept by means of a doubly linked list, represented <i>via</i> an array of longs
- * parallel to the table.
+ * iteration order). Note that this order has nothing in common with the natural order of the keys. The order is kept as a dense array of table positions, like a compact dict:
+ * removing an entry leaves a tombstone (-1) in that array instead of shifting the rest, and a second array parallel to the table records where each position sits in it, so removing any entry,
+ * including the first or last, and moving an entry to either end take constant time. Tombstones are squeezed out when the array would otherwise grow, when the table is rehashed, and before
+ * access by index; there is room kept before the first entry so entries can be moved or added to the front without shifting. This makes the map suitable as a cache with heavy churn.
  * <p>
  * <P>This class implements the interface of a sorted map, so to allow easy access of the iteration order: for instance, you can get the first key in iteration order with {@code firstKey()} without
  * having to create an iterator; however, this class partially violates the {@link SortedMap} contract because all submap methods throw an exception and {@link #comparator()} returns always
@@ -80,6 +82,22 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     //protected long[] link;
     protected IntVLA order;
+    /**
+     * For each position in the table that holds an entry, the index in {@link #order} where that position is stored.
+     */
+    protected transient int[] orderIndex;
+    /**
+     * The index in {@link #order} of the first entry; everything before it is unused room. Valid iff {@link #size} is nonzero.
+     */
+    protected transient int head;
+    /**
+     * How many tombstones (-1) are in {@link #order} between {@link #head} and its end.
+     */
+    protected transient int holes;
+    /**
+     * Changed whenever entries move to different indices in {@link #order}, so iterators know to find their place again.
+     */
+    protected transient int orderVersion;
     /**
      * The current table size.
      */
@@ -160,6 +178,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         value = (V[]) new Object[n + 1];
         //link = new long[n + 1];
         order = new IntVLA(expected);
+        orderIndex = new int[n + 1];
     }
 
     /**
@@ -308,12 +327,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         }
         key[pos] = k;
         value[pos] = v;
-        if (size == 0) {
-            first = last = pos;
-        } else {
-            last = pos;
-        }
-        order.add(pos);
+        appendOrder(pos);
         if (size++ >= maxFill)
             rehash(arraySize(size + 1, f));
         return -1;
@@ -397,18 +411,8 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         if (size == 0)
             throw new NoSuchElementException();
         final int pos = first;
-        order.removeIndex(0);
-        if(order.size > 0)
-            first = order.get(0);
-        else
-            first = -1;
-        // Abbreviated version of fixPointers(pos)
-        /*first = (int) link[pos];
-        if (0 <= first) {
-            // Special case of SET_PREV( link[ first ], -1 )
-            link[first] |= (-1 & 0xFFFFFFFFL) << 32;
-        }*/
         size--;
+        fixPointers(pos);
         final V v = value[pos];
         if (pos == n) {
             containsNullKey = false;
@@ -432,20 +436,8 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         if (size == 0)
             throw new NoSuchElementException();
         final int pos = last;
-        order.pop();
-        if(order.size > 0)
-            last = order.get(order.size - 1);
-        else
-            last = -1;
-
-        // Abbreviated version of fixPointers(pos)
-        /*
-        last = (int) (link[pos] >>> 32);
-        if (0 <= last) {
-            // Special case of SET_NEXT( link[ last ], -1 )
-            link[last] |= -1 & 0xFFFFFFFFL;
-        }*/
         size--;
+        fixPointers(pos);
         final V v = value[pos];
         if (pos == n) {
             containsNullKey = false;
@@ -460,44 +452,14 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
     private void moveIndexToFirst(final int i) {
         if(size <= 1 || first == i)
             return;
-        order.moveToFirst(i);
-        if (last == i) {
-            last = order.peek();
-            //last = (int) (link[i] >>> 32);
-            // Special case of SET_NEXT( link[ last ], -1 );
-            //link[last] |= -1 & 0xFFFFFFFFL;
-        }/* else {
-            final long linki = link[i];
-            final int prev = (int) (linki >>> 32);
-            final int next = (int) linki;
-            link[prev] ^= ((link[prev] ^ (linki & 0xFFFFFFFFL)) & 0xFFFFFFFFL);
-            link[next] ^= ((link[next] ^ (linki & 0xFFFFFFFF00000000L)) & 0xFFFFFFFF00000000L);
-        }
-        link[first] ^= ((link[first] ^ ((i & 0xFFFFFFFFL) << 32)) & 0xFFFFFFFF00000000L);
-        link[i] = ((-1 & 0xFFFFFFFFL) << 32) | (first & 0xFFFFFFFFL);
-        */
-        first = i;
+        fixPointers(i);
+        prependOrder(i);
     }
     private void moveIndexToLast(final int i) {
         if(size <= 1 || last == i)
             return;
-        order.moveToLast(i);
-        if (first == i) {
-            first = order.get(0);
-            //first = (int) link[i];
-            // Special case of SET_PREV( link[ first ], -1 );
-            //link[first] |= (-1 & 0xFFFFFFFFL) << 32;
-        } /*else {
-            final long linki = link[i];
-            final int prev = (int) (linki >>> 32);
-            final int next = (int) linki;
-            link[prev] ^= ((link[prev] ^ (linki & 0xFFFFFFFFL)) & 0xFFFFFFFFL);
-            link[next] ^= ((link[next] ^ (linki & 0xFFFFFFFF00000000L)) & 0xFFFFFFFF00000000L);
-        }
-        link[last] ^= ((link[last] ^ (i & 0xFFFFFFFFL)) & 0xFFFFFFFFL);
-        link[i] = ((last & 0xFFFFFFFFL) << 32) | (-1 & 0xFFFFFFFFL);
-        */
-        last = i;
+        fixPointers(i);
+        appendOrder(i);
     }
     /**
      * Returns the value to which the given key is mapped; if the key is
@@ -613,16 +575,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         }
         key[pos] = k;
         value[pos] = v;
-        if (size == 0) {
-            first = last = pos;
-            // Special case of SET_UPPER_LOWER( link[ pos ], -1, -1 );
-            //link[pos] = -1L;
-        } else {
-            //link[first] ^= ((link[first] ^ ((pos & 0xFFFFFFFFL) << 32)) & 0xFFFFFFFF00000000L);
-            //link[pos] = ((-1 & 0xFFFFFFFFL) << 32) | (first & 0xFFFFFFFFL);
-            first = pos;
-        }
-        order.insert(0, pos);
+        prependOrder(pos);
         if (size++ >= maxFill)
             rehash(arraySize(size, f));
         return defRetValue;
@@ -665,16 +618,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         }
         key[pos] = k;
         value[pos] = v;
-        if (size == 0) {
-            first = last = pos;
-            // Special case of SET_UPPER_LOWER( link[ pos ], -1, -1 );
-            //link[pos] = -1L;
-        } else {
-            //link[last] ^= ((link[last] ^ (pos & 0xFFFFFFFFL)) & 0xFFFFFFFFL);
-            //link[pos] = ((last & 0xFFFFFFFFL) << 32) | (-1 & 0xFFFFFFFFL);
-            last = pos;
-        }
-        order.add(pos);
+        appendOrder(pos);
         if (size++ >= maxFill)
             rehash(arraySize(size, f));
         return defRetValue;
@@ -730,6 +674,44 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
                 return true;
         return false;
     }
+    /**
+     * Calls action with each key and value in iteration order, reading the tables directly; unlike iterating over
+     * {@link #entrySet()}, this creates no entry objects and shares no iterator state, so it can be nested or used by
+     * several threads at once, as long as nothing changes the map meanwhile. The action must not add or remove keys.
+     * @param action called once per entry, in iteration order
+     */
+    public void forEachEntry(final ObjObjConsumer<? super K, ? super V> action) {
+        final K key[] = this.key;
+        final V value[] = this.value;
+        final int[] order = this.order.items;
+        for (int i = head, s = this.order.size; i < s; i++) {
+            final int pos = order[i];
+            if (pos != -1)
+                action.accept(key[pos], value[pos]);
+        }
+    }
+    /**
+     * Calls action with each key in iteration order, like {@link #forEachEntry(ObjObjConsumer)} without the values.
+     * @param action called once per key, in iteration order
+     */
+    public void forEachKey(final ObjConsumer<? super K> action) {
+        final K key[] = this.key;
+        final int[] order = this.order.items;
+        for (int i = head, s = this.order.size; i < s; i++)
+            if (order[i] != -1)
+                action.accept(key[order[i]]);
+    }
+    /**
+     * Calls action with each value in iteration order, like {@link #forEachEntry(ObjObjConsumer)} without the keys.
+     * @param action called once per value, in iteration order
+     */
+    public void forEachValue(final ObjConsumer<? super V> action) {
+        final V value[] = this.value;
+        final int[] order = this.order.items;
+        for (int i = head, s = this.order.size; i < s; i++)
+            if (order[i] != -1)
+                action.accept(value[order[i]]);
+    }
     /*
      * Removes all elements from this map.
      *
@@ -745,6 +727,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         Arrays.fill(value, null);
         first = last = -1;
         order.clear();
+        head = holes = 0;
     }
 
     public int size() {
@@ -826,83 +809,111 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
     }
 
     /**
-     * Modifies the link vector so that the given entry is removed. This method will complete in logarithmic time.
+     * Removes the given entry from the iteration order, leaving a tombstone in {@link #order} unless the entry was at
+     * either end. This method will complete in constant time.
      *
      * @param i the index of an entry.
      */
     protected void fixPointers(final int i) {
-        if (size == 0) {
+        final int[] items = order.items;
+        final int slot = orderIndex[i];
+        items[slot] = -1;
+        if (slot == head) {
+            while (++head < order.size && items[head] == -1)
+                holes--;
+        } else if (slot == order.size - 1) {
+            // the entry at head is still present, so this stops there at the latest
+            while (items[--order.size - 1] == -1)
+                holes--;
+        } else
+            holes++;
+        if (head >= order.size) {
+            order.clear();
+            head = holes = 0;
             first = last = -1;
-            return;
-        }
-        order.removeValue(i);
-        if (first == i) {
-            first = order.get(0);
-            //first = (int) link[i];
-            /*
-            if (0 <= first) {
-                // Special case of SET_PREV( link[ first ], -1 )
-                link[first] |= (-1 & 0xFFFFFFFFL) << 32;
-            }
-            return;
-            */
-        }
-        if (last == i) {
-            last = order.peek();
-            //last = (int) (link[i] >>> 32);
-            /*if (0 <= last) {
-                // Special case of SET_NEXT( link[ last ], -1 )
-                link[last] |= -1 & 0xFFFFFFFFL;
-            }
-            return;
-            */
+        } else {
+            first = items[head];
+            last = items[order.size - 1];
         }
-        /*
-        final long linki = link[i];
-        final int prev = (int) (linki >>> 32);
-        final int next = (int) linki;
-        link[prev] ^= ((link[prev] ^ (linki & 0xFFFFFFFFL)) & 0xFFFFFFFFL);
-        link[next] ^= ((link[next] ^ (linki & 0xFFFFFFFF00000000L)) & 0xFFFFFFFF00000000L);
-        */
     }
 
     /**
-     * Modifies the link vector for a shift from s to d. <P>This method will complete in logarithmic time or better.
+     * Modifies the iteration order for a shift from s to d. <P>This method will complete in constant time.
      *
      * @param s the source position.
      * @param d the destination position.
      */
     protected void fixPointers(int s, int d) {
-        if (size == 1) {
-            first = last = d;
-            // Special case of SET_UPPER_LOWER( link[ d ], -1, -1 )
-            //link[d] = -1L;
-            order.set(0, d);
-        }
-        else if (first == s) {
+        final int slot = orderIndex[s];
+        order.items[slot] = d;
+        orderIndex[d] = slot;
+        if (first == s)
             first = d;
-            order.set(0, d);
-            //link[(int) link[s]] ^= ((link[(int) link[s]] ^ ((d & 0xFFFFFFFFL) << 32)) & 0xFFFFFFFF00000000L);
-            //link[d] = link[s];
-        }
-        else if (last == s) {
+        if (last == s)
             last = d;
-            order.set(order.size - 1, d);
-            //link[(int) (link[s] >>> 32)] ^= ((link[(int) (link[s] >>> 32)] ^ (d & 0xFFFFFFFFL)) & 0xFFFFFFFFL);
-            //link[d] = link[s];
+    }
+
+    /**
+     * Adds the entry at position pos to the end of the iteration order.
+     */
+    private void appendOrder(final int pos) {
+        // squeeze out tombstones instead of growing, if they are a good part of the array
+        if (order.size == order.items.length && head + holes > order.size >>> 2)
+            compactOrder(0);
+        orderIndex[pos] = order.size;
+        order.add(pos);
+        if (head == order.size - 1)
+            first = pos;
+        last = pos;
+    }
+
+    /**
+     * Adds the entry at position pos to the start of the iteration order.
+     */
+    private void prependOrder(final int pos) {
+        if (head == order.size) {
+            appendOrder(pos);
+            return;
         }
-        else
-        {
-            order.set(order.indexOf(s), d);
+        // make room at the front in proportion to the size, so prepending stays constant-time on average
+        if (head == 0)
+            compactOrder(Math.max(4, (order.size - holes) >>> 1));
+        order.items[--head] = pos;
+        orderIndex[pos] = head;
+        first = pos;
+    }
+
+    /**
+     * Removes every tombstone from {@link #order}, moving its entries so the first one is at index front.
+     */
+    private void compactOrder(final int front) {
+        final int[] items = order.items;
+        final int live = order.size - head - holes;
+        // moving entries toward the start can be done in place
+        final int[] dest = front <= head ? items : new int[Math.max(items.length, front + live + (live >>> 1) + 4)];
+        int d = front;
+        for (int i = head, s = order.size; i < s; i++) {
+            final int pos = items[i];
+            if (pos != -1) {
+                dest[d] = pos;
+                orderIndex[pos] = d++;
+            }
         }
-        /*
-        final long links = link[s];
-        final int prev = (int) (links >>> 32);
-        final int next = (int) links;
-        link[prev] ^= ((link[prev] ^ (d & 0xFFFFFFFFL)) & 0xFFFFFFFFL);
-        link[next] ^= ((link[next] ^ ((d & 0xFFFFFFFFL) << 32)) & 0xFFFFFFFF00000000L);
-        link[d] = links;
-        */
+        order.items = dest;
+        order.size = d;
+        head = front;
+        holes = 0;
+        orderVersion++;
+    }
+
+    /**
+     * Gets the index in {@link #order} of the entry at index idx in the iteration order, removing tombstones first if
+     * there are any.
+     */
+    private int orderSlot(final int idx) {
+        if (holes > 0)
+            compactOrder(head);
+        return head + idx;
     }
 
     /**
@@ -946,31 +957,50 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     private class MapIterator {
         /**
-         * The entry that will be returned by the next call to
-         * {@link ListIterator#previous()} (or <code>null</code> if no
-         * previous entry exists).
+         * The index in {@link #order} of the entry that will be returned by the
+         * next call to {@link ListIterator#previous()} (or -1 if no previous
+         * entry exists).
          */
         int prev = -1;
         /**
-         * The entry that will be returned by the next call to
-         * {@link ListIterator#next()} (or <code>null</code> if no
-         * next entry exists).
+         * The index in {@link #order} of the entry that will be returned by the
+         * next call to {@link ListIterator#next()} (or -1 if no next entry
+         * exists).
          */
         int next = -1;
         /**
-         * The last entry that was returned (or -1 if we did not iterate or used
-         * {@link Iterator#remove()}).
+         * The index in {@link #order} of the last entry that was returned (or -1
+         * if we did not iterate or used {@link Iterator#remove()}).
          */
         int curr = -1;
         /**
-         * The current index (in the sense of a {@link ListIterator}).
-         * Note that this value is not meaningful when this iterator has been
-         * created using the nonempty constructor.
+         * The current index (in the sense of a {@link ListIterator}), which is
+         * the number of entries before the cursor.
          */
         int index = 0;
+        /**
+         * The {@link #orderVersion} that prev, next and curr refer to.
+         */
+        int version;
         private MapIterator() {
-            next = first;
+            next = size == 0 ? -1 : head;
             index = 0;
+            version = orderVersion;
+        }
+        /**
+         * If the entries in {@link #order} were moved, such as when tombstones
+         * were squeezed out, finds prev, next and curr again; after a move
+         * there are no tombstones, so the entry at index i is at head + i.
+         */
+        private void resync() {
+            if (version == orderVersion)
+                return;
+            final boolean currWasPrev = curr != -1 && curr == prev;
+            final boolean currWasNext = curr != -1 && curr == next;
+            next = index < size ? head + index : -1;
+            prev = index > 0 ? head + index - 1 : -1;
+            curr = currWasPrev ? prev : currWasNext ? next : -1;
+            version = orderVersion;
         }
         /*
         private MapIterator(final K from) {
@@ -1005,61 +1035,57 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
                     + " does not belong to this map.");
         }*/
         public boolean hasNext() {
+            resync();
             return next != -1;
         }
         public boolean hasPrevious() {
+            resync();
             return prev != -1;
         }
-        private void ensureIndexKnown() {
-            if (index >= 0)
-                return;
-            if (prev == -1) {
-                index = 0;
-                return;
-            }
-            if (next == -1) {
-                index = size;
-                return;
-            }
-            index = 0;
-            /*while (pos != prev) {
-                pos = (int) link[pos];
-                index++;
-            }*/
-        }
         public int nextIndex() {
-            ensureIndexKnown();
             return index + 1;
         }
         public int previousIndex() {
-            ensureIndexKnown();
             return index - 1;
         }
+        /**
+         * Finds the index in {@link #order} of the entry after the one at slot, skipping tombstones, or -1.
+         */
+        private int after(int slot) {
+            final int[] items = order.items;
+            while (++slot < order.size)
+                if (items[slot] != -1)
+                    return slot;
+            return -1;
+        }
+        /**
+         * Finds the index in {@link #order} of the entry before the one at slot, skipping tombstones, or -1.
+         */
+        private int before(int slot) {
+            final int[] items = order.items;
+            while (--slot >= head)
+                if (items[slot] != -1)
+                    return slot;
+            return -1;
+        }
         public int nextEntry() {
             if (!hasNext())
                 throw new NoSuchElementException();
-            curr = next;
-            if(++index >= order.size)
-                next = -1;
-            else
-                next = order.get(index);//(int) link[curr];
-            prev = curr;
-            return curr;
+            curr = prev = next;
+            next = after(curr);
+            index++;
+            return order.items[curr];
         }
         public int previousEntry() {
             if (!hasPrevious())
                 throw new NoSuchElementException();
-            curr = prev;
-            if(--index < 1)
-                prev = -1;
-            else
-                prev = order.get(index - 1);
-            //prev = (int) (link[curr] >>> 32);
-            next = curr;
-            return curr;
+            curr = next = prev;
+            prev = before(curr);
+            index--;
+            return order.items[curr];
         }
         public void remove() {
-            ensureIndexKnown();
+            resync();
             if (curr == -1)
                 throw new IllegalStateException();
             if (curr == prev) {
@@ -1068,62 +1094,22 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
 				 * that precedes the current index, and thus we must decrement
 				 * it.
 				 */
-                if(--index >= 1)
-                    prev = order.get(index - 1); //(int) (link[curr] >>> 32);
-                else
-                    prev = -1;
-            } else {
-                if(index < order.size - 1)
-                    next = order.get(index + 1);
-                else
-                    next = -1;
-            }
-            /*
-			 * Now we manually fix the pointers. Because of our knowledge of
-			 * next and prev, this is going to be faster than calling
-			 * fixPointers().
-			 */
-            if (prev == -1)
-                first = next;
-            if (next == -1)
-                last = prev;
-            order.removeIndex(index);
-            size--;
-            int last, slot, pos = curr;
+                index--;
+                prev = before(curr);
+            } else
+                next = after(curr);
+            // removal leaves a tombstone or trims an end of order, and shiftKeys() only rewrites
+            // positions stored in order, so prev and next stay valid
+            final int pos = order.items[curr];
             curr = -1;
+            size--;
+            fixPointers(pos);
             if (pos == n) {
                 containsNullKey = false;
                 key[n] = null;
                 value[n] = null;
-            } else {
-                K curr;
-                final K[] key = OMap.this.key;
-                // We have to horribly duplicate the shiftKeys() code because we
-                // need to update next/prev.
-                for (;;) {
-                    pos = ((last = pos) + 1) & mask;
-                    for (;;) {
-                        if (((curr = key[pos]) == null)) {
-                            key[last] = null;
-                            value[last] = null;
-                            return;
-                        }
-                        slot = (HashCommon.mix(curr.hashCode())) & mask;
-                        if (last <= pos
-                                ? last >= slot || slot > pos
-                                : last >= slot && slot > pos)
-                            break;
-                        pos = (pos + 1) & mask;
-                    }
-                    key[last] = curr;
-                    value[last] = value[pos];
-                    if (next == pos)
-                        next = last;
-                    if (prev == pos)
-                        prev = last;
-                    fixPointers(pos, last);
-                }
-            }
+            } else
+                shiftKeys(pos);
         }
         public int skip(final int n) {
             int i = n;
@@ -1800,9 +1786,13 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         // macro
         final K newKey[] = (K[]) new Object[newN + 1];
         final V newValue[] = (V[]) new Object[newN + 1];
-        int i, pos, sz = order.size, originalFirst = first, originalLast = last;
-        for (int q = 0; q < sz; q++) {
-            i = order.get(q);
+        final int newIndex[] = new int[newN + 1];
+        final int[] items = order.items;
+        int i, pos, d = 0;
+        // tombstones are dropped along the way, writing each position at or before where it was read
+        for (int q = head, sz = order.size; q < sz; q++) {
+            if ((i = items[q]) == -1)
+                continue;
             if (((key[i]) == null))
                 pos = newN;
             else {
@@ -1812,12 +1802,15 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
             }
             newKey[pos] = key[i];
             newValue[pos] = value[i];
-            order.set(q, pos);
-            if(i == originalFirst)
-                first = pos;
-            if(i == originalLast)
-                last = pos;
-        }
+            items[d] = pos;
+            newIndex[pos] = d++;
+        }
+        order.size = d;
+        head = holes = 0;
+        orderVersion++;
+        first = d == 0 ? -1 : items[0];
+        last = d == 0 ? -1 : items[d - 1];
+        orderIndex = newIndex;
         n = newN;
         this.mask = mask;
         maxFill = maxFill(n, f);
@@ -1892,6 +1885,11 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
             c.value = (V[]) new Object[n + 1];
             System.arraycopy(value, 0, c.value, 0, n + 1);
             c.order = (IntVLA) order.clone();
+            c.orderIndex = orderIndex.clone();
+            // the cached views belong to this map, so the copy makes its own
+            c.keys = null;
+            c.values = null;
+            c.entries = null;
             return c;
         } catch (CloneNotSupportedException cantHappen) {
             throw new InternalError(cantHappen + (cantHappen.getMessage() != null ?
@@ -2252,6 +2250,8 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
         final K key[] = this.key = (K[]) new Object[n + 1];
         final V value[] = this.value = (V[]) new Object[n + 1];
         final IntVLA order = this.order = new IntVLA(n + 1);
+        final int orderIndex[] = this.orderIndex = new int[n + 1];
+        head = holes = 0;
         int prev = -1;
         first = last = -1;
         K k;
@@ -2276,6 +2276,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
             } else {
                 prev = first = pos;
             }
+            orderIndex[pos] = order.size;
             order.add(pos);
         }
         last = prev;
@@ -2289,10 +2290,10 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
     public V getAt(final int idx) {
         int pos;
         final K[] key = this.key;
-        if (idx < 0 || idx >= order.size)
+        if (idx < 0 || idx >= size)
             return defRetValue;
         // The starting point.
-        if ((key[pos = order.get(idx)]) == null)
+        if ((key[pos = order.items[orderSlot(idx)]]) == null)
             return containsNullKey ? value[n] : defRetValue;
         return value[pos];
     }
@@ -2303,10 +2304,10 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     public K keyAt(final int idx) {
         final K[] key = this.key;
-        if (idx < 0 || idx >= order.size)
+        if (idx < 0 || idx >= size)
             return null;
         // The starting point.
-        return key[order.get(idx)];
+        return key[order.items[orderSlot(idx)]];
     }
 
     /**
@@ -2316,9 +2317,9 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     public Entry<K, V> entryAt(final int idx)
     {
-        if (idx < 0 || idx >= order.size)
+        if (idx < 0 || idx >= size)
             return null;
-        return new MapEntry(order.get(idx));
+        return new MapEntry(order.items[orderSlot(idx)]);
     }
 
     /**
@@ -2329,9 +2330,9 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     public V removeAt(final int idx) {
 
-        if (idx < 0 || idx >= order.size)
+        if (idx < 0 || idx >= size)
             return defRetValue;
-        int pos = order.get(idx);
+        int pos = order.items[orderSlot(idx)];
         if (key[pos] == null) {
             if (containsNullKey)
                 return removeNullEntry();
@@ -2346,7 +2347,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     public V randomValue(long state)
     {
-        return getAt(MathUtils.nextInt(state, order.size));
+        return getAt(MathUtils.nextInt(state, size));
     }
 
     /**
@@ -2356,7 +2357,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     public K randomKey(long state)
     {
-        return keyAt(MathUtils.nextInt(state, order.size));
+        return keyAt(MathUtils.nextInt(state, size));
     }
 
     /**
@@ -2366,7 +2367,7 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     public Entry<K, V> randomEntry(long state)
     {
-        return new MapEntry(order.get(MathUtils.nextInt(state, order.size)));
+        return entryAt(MathUtils.nextInt(state, size));
     }
 
     /**
@@ -2387,7 +2388,12 @@ public class OMap<K, V> implements SortedMap<K, V>, Serializable, Cloneable {
      */
     public OMap<K, V> reorder(int... ordering)
     {
+        if (size == 0)
+            return this;
+        compactOrder(0);
         order.reorder(ordering);
+        for (int i = 0; i < order.size; i++)
+            orderIndex[order.items[i]] = i;
         first = order.get(0);
         last = order.peek();
         return this;
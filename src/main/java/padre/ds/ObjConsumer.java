@@ -0,0 +1,12 @@
+package padre.ds;
+
+/**
+ * Something that takes items one at a time, such as the keys of a {@link GenericSet} given to
+ * {@link GenericSet#forEachKey(ObjConsumer)}.
+ */
+public interface ObjConsumer<T> {
+    /**
+     * @param item the current item
+     */
+    void accept(T item);
+}
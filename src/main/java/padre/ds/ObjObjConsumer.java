@@ -0,0 +1,13 @@
+package padre.ds;
+
+/**
+ * Something that takes pairs of objects one at a time, such as the entries of an {@link OMap} given to
+ * {@link OMap#forEachEntry(ObjObjConsumer)}.
+ */
+public interface ObjObjConsumer<K, V> {
+    /**
+     * @param key the current key
+     * @param value the value paired with key
+     */
+    void accept(K key, V value);
+}
@@ -0,0 +1,350 @@
+package padre.ds;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static padre.ds.MathUtils.nextPowerOfTwo;
+
+/** A set where the keys are objects that iterates in the order keys were first added, unlike {@link GenericSet}, whose order
+ * depends on where cuckoo hashing happened to put each key. This is meant for sets where order carries meaning, like the
+ * leftmost-first priority of the alternatives a greedy pattern can take, so callers don't need to sort afterwards. <br>
+ * <br>
+ * Keys are kept in a dense array in insertion order, next to their hash codes, and a separate open-addressed table of ints
+ * (with linear probing) maps each key to its position in that array. Add, contains and remove are O(1); removing a key leaves
+ * a gap in the array that iteration skips, and gaps are squeezed out the next time the array would otherwise grow. Null keys
+ * are not allowed. */
+public class OrderedSet<T> implements Iterable<T> {
+    public int size;
+
+    /** The keys in insertion order, with null where a key was removed; only the first itemCount are meaningful. */
+    T[] items;
+    /** The hash code of each key in items. */
+    int[] itemHashes;
+    int itemCount;
+    /** For each slot, 0 if empty, or one more than the position in items of the key that hashes there. */
+    private int[] index;
+    private int mask, shift;
+
+    private OrderedSetIterator<T> iterator1, iterator2;
+
+    /** Creates a new set with an initial capacity of 16. */
+    public OrderedSet () {
+        this(16);
+    }
+
+    /** Creates a new set that can hold initialCapacity keys before it needs to grow.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+    @SuppressWarnings("unchecked")
+    public OrderedSet (int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        initialCapacity = nextPowerOfTwo(Math.max(4, initialCapacity));
+        if (initialCapacity > 1 << 29) throw new IllegalArgumentException("initialCapacity is too large: " + initialCapacity);
+        items = (T[])new Object[initialCapacity];
+        itemHashes = new int[initialCapacity];
+        setIndexSize(initialCapacity << 1);
+    }
+
+    /** Creates a new set with the same keys, in the same order, as the specified set. */
+    public OrderedSet (OrderedSet<? extends T> set) {
+        this(set.size);
+        for (int i = 0; i < set.itemCount; i++)
+            if (set.items[i] != null) addNew(set.items[i], set.itemHashes[i]);
+    }
+
+    private void setIndexSize (int length) {
+        index = new int[length];
+        mask = length - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+    }
+
+    private int place (int hashCode) {
+        return (hashCode * 0x9E3779B9) >>> shift;
+    }
+
+    /** Finds the index slot that refers to a key equal to key, or returns ~slot for the empty slot where it would go. */
+    private int locate (T key, int hashCode) {
+        final T[] items = this.items;
+        final int[] index = this.index, itemHashes = this.itemHashes;
+        for (int slot = place(hashCode); ; slot = slot + 1 & mask) {
+            final int p = index[slot] - 1;
+            if (p < 0) return ~slot;
+            if (itemHashes[p] == hashCode && key.equals(items[p])) return slot;
+        }
+    }
+
+    /** Returns true if the key was not already in the set. If this set already contains the key, the call leaves the set unchanged,
+     * including the key's place in the order, and returns false. */
+    public boolean add (T key) {
+        if (key == null) throw new IllegalArgumentException("key cannot be null.");
+        final int hashCode = key.hashCode();
+        if (locate(key, hashCode) >= 0) return false;
+        addNew(key, hashCode);
+        return true;
+    }
+
+    /** Adds a key known not to be in the set. */
+    private void addNew (T key, int hashCode) {
+        if (itemCount == items.length) makeRoom();
+        items[itemCount] = key;
+        itemHashes[itemCount] = hashCode;
+        index[~locate(key, hashCode)] = ++itemCount;
+        size++;
+    }
+
+    public void addAll (T... array) {
+        for (int i = 0; i < array.length; i++)
+            add(array[i]);
+    }
+
+    public void addAll (Iterable<? extends T> keys) {
+        for (T key : keys)
+            add(key);
+    }
+
+    /** Called when items is full; squeezes out gaps if at least a quarter of items are gaps, otherwise doubles the capacity. */
+    @SuppressWarnings("unchecked")
+    private void makeRoom () {
+        final int capacity = items.length;
+        if (size > capacity - (capacity >>> 2)) {
+            if (capacity == 1 << 29) throw new IllegalStateException("OrderedSet is too large.");
+            T[] newItems = (T[])new Object[capacity << 1];
+            int[] newHashes = new int[capacity << 1];
+            compactInto(newItems, newHashes);
+            items = newItems;
+            itemHashes = newHashes;
+            setIndexSize(capacity << 2);
+        } else {
+            compactInto(items, itemHashes);
+            for (int i = size; i < capacity; i++)
+                items[i] = null;
+            java.util.Arrays.fill(index, 0);
+        }
+        itemCount = size;
+        for (int p = 0; p < size; p++) {
+            int slot = place(itemHashes[p]);
+            while (index[slot] != 0)
+                slot = slot + 1 & mask;
+            index[slot] = p + 1;
+        }
+    }
+
+    /** Copies the keys that are still present, in order, to the front of the given arrays, which may be this set's own arrays. */
+    private void compactInto (T[] newItems, int[] newHashes) {
+        int n = 0;
+        for (int i = 0; i < itemCount; i++) {
+            if (items[i] != null) {
+                newItems[n] = items[i];
+                newHashes[n++] = itemHashes[i];
+            }
+        }
+    }
+
+    /** Returns true if the key was removed. The other keys keep their order. */
+    public boolean remove (T key) {
+        final int slot = locate(key, key.hashCode());
+        if (slot < 0) return false;
+        removeSlot(slot);
+        return true;
+    }
+
+    /** Removes the key at position p in items, which must be present. */
+    void removeAt (int p) {
+        int slot = place(itemHashes[p]);
+        while (index[slot] != p + 1)
+            slot = slot + 1 & mask;
+        removeSlot(slot);
+    }
+
+    private void removeSlot (int slot) {
+        final int p = index[slot] - 1;
+        items[p] = null;
+        size--;
+        // trailing gaps can be reused right away
+        while (itemCount > 0 && items[itemCount - 1] == null)
+            itemCount--;
+        // shift later entries in this probe run back, so no lookup stops early at the emptied slot
+        final int[] index = this.index;
+        int last = slot;
+        for (slot = last + 1 & mask; ; slot = slot + 1 & mask) {
+            final int q = index[slot] - 1;
+            if (q < 0) break;
+            final int home = place(itemHashes[q]);
+            // move q back to last if its home is not cyclically in (last, slot]
+            if ((last <= slot) ? (last >= home || home > slot) : (last >= home && home > slot)) {
+                index[last] = index[slot];
+                last = slot;
+            }
+        }
+        index[last] = 0;
+    }
+
+    public boolean contains (T key) {
+        return locate(key, key.hashCode()) >= 0;
+    }
+
+    /** Returns the item in this set that is equal to key, or null if there is none. */
+    public T get (T key) {
+        final int slot = locate(key, key.hashCode());
+        return slot < 0 ? null : items[index[slot] - 1];
+    }
+
+    /** Returns the key that was added earliest of those still in the set. */
+    public T first () {
+        for (int i = 0; i < itemCount; i++)
+            if (items[i] != null) return items[i];
+        throw new IllegalStateException("OrderedSet is empty.");
+    }
+
+    public void clear () {
+        if (size == 0 && itemCount == 0) return;
+        for (int i = 0; i < itemCount; i++)
+            items[i] = null;
+        java.util.Arrays.fill(index, 0);
+        size = 0;
+        itemCount = 0;
+    }
+
+    /** Copies the keys, in order, into an ArrayList. */
+    public ArrayList<T> toArrayList () {
+        ArrayList<T> list = new ArrayList<T>(size);
+        for (int i = 0; i < itemCount; i++)
+            if (items[i] != null) list.add(items[i]);
+        return list;
+    }
+
+    /** Hashes only the keys, so sets with the same keys in different orders have the same hash, consistent with
+     * {@link #equals(Object)}. */
+    public int hashCode () {
+        int h = 1;
+        for (int i = 0; i < itemCount; i++)
+            if (items[i] != null) h += itemHashes[i];
+        return h;
+    }
+
+    /** Compares only the keys, ignoring order; use {@link #equalsInOrder(OrderedSet)} to also compare order. */
+    @SuppressWarnings("unchecked")
+    public boolean equals (Object obj) {
+        if (!(obj instanceof OrderedSet)) return false;
+        OrderedSet other = (OrderedSet)obj;
+        if (other.size != size) return false;
+        for (int i = 0; i < itemCount; i++)
+            if (items[i] != null && !other.contains(items[i])) return false;
+        return true;
+    }
+
+    /** Returns true if other has the same keys as this set, in the same order. */
+    public boolean equalsInOrder (OrderedSet<?> other) {
+        if (other.size != size) return false;
+        for (int i = 0, j = 0; i < itemCount; i++) {
+            if (items[i] == null) continue;
+            while (other.items[j] == null) j++;
+            if (!items[i].equals(other.items[j++])) return false;
+        }
+        return true;
+    }
+
+    public String toString () {
+        StringBuilder buffer = new StringBuilder(32).append('{');
+        boolean first = true;
+        for (int i = 0; i < itemCount; i++) {
+            if (items[i] == null) continue;
+            if (!first) buffer.append(", ");
+            buffer.append(items[i]);
+            first = false;
+        }
+        return buffer.append('}').toString();
+    }
+
+    /** Returns an iterator for the keys in insertion order. Remove is supported. Note that the same iterator instance is returned
+     * each time this method is called. Use the {@link OrderedSetIterator} constructor for nested or multithreaded iteration. */
+    public OrderedSetIterator<T> iterator () {
+        if (iterator1 == null) {
+            iterator1 = new OrderedSetIterator<T>(this);
+            iterator2 = new OrderedSetIterator<T>(this);
+        }
+        if (!iterator1.valid) {
+            iterator1.reset();
+            iterator1.valid = true;
+            iterator2.valid = false;
+            return iterator1;
+        }
+        iterator2.reset();
+        iterator2.valid = true;
+        iterator1.valid = false;
+        return iterator2;
+    }
+
+    static public <T> OrderedSet<T> with (T... array) {
+        OrderedSet<T> set = new OrderedSet<T>(array.length);
+        set.addAll(array);
+        return set;
+    }
+
+    static public class OrderedSetIterator<K> implements Iterable<K>, Iterator<K> {
+        public boolean hasNext;
+
+        final OrderedSet<K> set;
+        int nextIndex, currentIndex;
+        boolean valid = true;
+
+        public OrderedSetIterator (OrderedSet<K> set) {
+            this.set = set;
+            reset();
+        }
+
+        public void reset () {
+            currentIndex = -1;
+            nextIndex = -1;
+            findNextIndex();
+        }
+
+        void findNextIndex () {
+            hasNext = false;
+            K[] items = set.items;
+            for (int n = set.itemCount; ++nextIndex < n;) {
+                if (items[nextIndex] != null) {
+                    hasNext = true;
+                    break;
+                }
+            }
+        }
+
+        public void remove () {
+            if (currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
+            // removing never moves other keys, so nextIndex stays valid
+            set.removeAt(currentIndex);
+            currentIndex = -1;
+        }
+
+        public boolean hasNext () {
+            if (!valid) throw new IllegalStateException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public K next () {
+            if (!hasNext) throw new NoSuchElementException();
+            if (!valid) throw new IllegalStateException("#iterator() cannot be used nested.");
+            K key = set.items[nextIndex];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return key;
+        }
+
+        public OrderedSetIterator<K> iterator () {
+            return this;
+        }
+
+        /** Adds the remaining values to the array. */
+        public ArrayList<K> toArray (ArrayList<K> array) {
+            while (hasNext)
+                array.add(next());
+            return array;
+        }
+
+        /** Returns a new array containing the remaining values. */
+        public ArrayList<K> toArray () {
+            return toArray(new ArrayList<K>(set.size));
+        }
+    }
+}
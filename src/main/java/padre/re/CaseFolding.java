@@ -0,0 +1,164 @@
+package padre.re;
+
+import padre.ds.ComBit;
+
+import java.util.Arrays;
+
+/**
+ * Closes chars and character classes over simple Unicode case folding, so a pattern can be made case-insensitive once
+ * at compile time instead of changing the case of every input. Two chars are treated as the same letter when
+ * {@code Character.toLowerCase(Character.toUpperCase(c))} is the same for both, which is the test java.util.regex uses
+ * with its CASE_INSENSITIVE and UNICODE_CASE flags; this also covers letters like U+212A KELVIN SIGN (with k and K)
+ * and U+017F LATIN SMALL LETTER LONG S (with s and S). Unlike java.util.regex, this always treats equivalence as
+ * symmetric, so a pattern of U+00DF matches U+1E9E just as a pattern of U+1E9E matches U+00DF. Only the BMP is folded.
+ * <br>
+ * The groups of equivalent chars are stored in {@link UnicodeProperties} with its other tables, as generated from the
+ * case mappings of Unicode 13.0, so they are the same on every JVM (and on GWT) no matter which version of Unicode the
+ * runtime knows.
+ */
+public final class CaseFolding {
+    private CaseFolding()
+    {
+    }
+
+    /**
+     * Every char that is equivalent to at least one other char, as (key << 16 | char), where key is the smallest char
+     * in its group, sorted so each group of equivalent chars is contiguous; decoded the first time it is needed.
+     */
+    private static int[] groups;
+    /**
+     * The same entries as groups, but as (char << 16 | key) and sorted by char, to find the group of any char.
+     */
+    private static int[] keys;
+
+    private static synchronized int[] groups()
+    {
+        if(groups != null)
+            return groups;
+        final String data = UnicodeProperties.FOLD_GROUPS;
+        final int[] values = new int[data.length()];
+        int n = 0;
+        for (int i = 0; i < data.length(); ) {
+            int v = data.charAt(i++);
+            if(v >= 0x8000)
+                v = (v & 0x7FFF) << 15 | data.charAt(i++);
+            values[n++] = v - 0x20;
+        }
+        // each group is its size, the gap from the last group's key to its own, then the offset of each other member
+        final int[] g = new int[n], k = new int[n];
+        int m = 0, key = 0;
+        for (int i = 0; i < n; ) {
+            final int count = values[i++];
+            key += values[i++];
+            g[m] = key << 16 | key;
+            k[m++] = key << 16 | key;
+            for (int j = 1; j < count; j++) {
+                final int c = key + values[i++];
+                g[m] = key << 16 | c;
+                k[m++] = c << 16 | key;
+            }
+        }
+        // keys of 0x8000 and up make negative entries, so both need sorting to agree with binarySearch
+        keys = Arrays.copyOf(k, m);
+        Arrays.sort(keys);
+        groups = Arrays.copyOf(g, m);
+        Arrays.sort(groups);
+        return groups;
+    }
+
+    /**
+     * Gets the smallest char equivalent to c, or -1 if c is only equivalent to itself.
+     */
+    private static int key(char c)
+    {
+        groups();
+        int i = Arrays.binarySearch(keys, c << 16);
+        if(i < 0) i = ~i;
+        return i < keys.length && keys[i] >>> 16 == c ? keys[i] & 0xFFFF : -1;
+    }
+
+    /**
+     * Gets every char that is the same letter as c, ignoring case, including c.
+     * @param c any char
+     * @return a new ComBit of c and the chars equivalent to it
+     */
+    public static ComBit close(char c)
+    {
+        // most ASCII chars have no case, and so only match themselves
+        if(c < 128 && (c < 'A' || (c > 'Z' && c < 'a') || c > 'z'))
+            return new ComBit(new char[]{c});
+        final int key = key(c);
+        if(key < 0)
+            return new ComBit(new char[]{c});
+        final int[] g = groups();
+        // the key is the smallest char in its group, so its own entry starts the group
+        final int i = Arrays.binarySearch(g, key << 16 | key);
+        int e = i;
+        while (e < g.length && g[e] >>> 16 == key)
+            e++;
+        char[] members = new char[e - i];
+        for (int j = i; j < e; j++) {
+            members[j - i] = (char) g[j];
+        }
+        return new ComBit(members);
+    }
+
+    /**
+     * Gets every char that is the same letter as some char in glyphs, ignoring case. This checks each group of
+     * equivalent chars once, so it costs the same no matter how many chars glyphs holds, except that if glyphs is only
+     * ASCII, just the groups of the letters in it are checked.
+     * @param glyphs a ComBit; it is not changed
+     * @return a new ComBit containing glyphs and every char equivalent to one in it, or glyphs itself if nothing needs
+     * to be added
+     */
+    public static ComBit close(ComBit glyphs)
+    {
+        final int[] g = groups();
+        char[] added = null;
+        int n = 0;
+        if(glyphs.nextSetBit(128) < 0)
+        {
+            // A-Z and a-z are bits 1-26 and 33-58 of the upper half of the ASCII mask
+            long letters = glyphs.asciiMask()[1] & 0x07FFFFFE07FFFFFEL;
+            while (letters != 0L)
+            {
+                final int key = key((char) (64 + Long.numberOfTrailingZeros(letters)));
+                letters &= letters - 1L;
+                for (int j = Arrays.binarySearch(g, key << 16 | key); j < g.length && g[j] >>> 16 == key; j++) {
+                    if(glyphs.contains((char) g[j]))
+                        continue;
+                    if(added == null)
+                        added = new char[8];
+                    else if(n == added.length)
+                        added = Arrays.copyOf(added, n << 1);
+                    added[n++] = (char) g[j];
+                }
+            }
+            if(n == 0)
+                return glyphs;
+            return ComBit.union(glyphs, new ComBit(Arrays.copyOf(added, n)));
+        }
+        for (int i = 0, e; i < g.length; i = e) {
+            final int key = g[i] >>> 16;
+            boolean any = false, all = true;
+            for (e = i; e < g.length && g[e] >>> 16 == key; e++) {
+                if(glyphs.contains((char) g[e]))
+                    any = true;
+                else
+                    all = false;
+            }
+            if(!any || all)
+                continue;
+            if(added == null)
+                added = new char[64];
+            for (int j = i; j < e; j++) {
+                if(n == added.length)
+                    added = Arrays.copyOf(added, n << 1);
+                added[n++] = (char) g[j];
+            }
+        }
+        if(n == 0)
+            return glyphs;
+        return ComBit.union(glyphs, new ComBit(Arrays.copyOf(added, n)));
+    }
+}
@@ -0,0 +1,724 @@
+package padre.re;
+
+import padre.ds.ComBit;
+import padre.ds.GwtIncompatible;
+import padre.ds.IntVLA;
+import padre.ds.MathUtils;
+import padre.ds.OMap;
+
+import java.util.Arrays;
+
+/**
+ * A deterministic finite automaton built from the partial derivatives of one or more patterns, with the Unicode BMP
+ * compressed into a small number of character classes (minterms) so that each state only needs one transition per
+ * class. State 0 is always the dead state, which has no way to reach an accepting state, and state 1 is always the
+ * start state. Each state records which patterns (by their index in the order they were given) accept if the text
+ * ends in that state.
+ * <br>
+ * A DFA is its own table-driven {@link DFAMatcher}; see DFABytecode for an optional engine that generates a JVM
+ * class for a DFA.
+ */
+public class DFA implements DFAMatcher {
+    /**
+     * The character classes; every char in the BMP is in exactly one of these.
+     */
+    public ComBit[] minterms;
+    /**
+     * The sorted first chars of each contiguous interval of chars with the same class; {@code intervalStarts[0]} is
+     * always 0. Used by {@link #classOf(char)}.
+     */
+    public char[] intervalStarts;
+    /**
+     * The class of each interval in {@link #intervalStarts}.
+     */
+    public int[] intervalClasses;
+    /**
+     * The class of each Latin-1 char (0 to 255), so {@link #classOf(char)} can skip the binary search for them.
+     */
+    public int[] latin1Classes;
+    /**
+     * The transition table, with {@code transitions[state * classCount + charClass]} holding the next state.
+     */
+    public int[] transitions;
+    /**
+     * The pattern indices that accept in each state, sorted; a state that accepts nothing has an empty array.
+     */
+    public int[][] accepts;
+    public int stateCount, classCount, patternCount;
+
+    private static final int[] NO_PATTERNS = new int[0];
+
+    /**
+     * The first int of the binary form written by {@link #writeTo(java.io.OutputStream)}, "PDFA" in ASCII.
+     */
+    public static final int MAGIC = 0x50444641;
+    /**
+     * The version of the binary form written by {@link #writeTo(java.io.OutputStream)}.
+     */
+    public static final int FORMAT_VERSION = 1;
+    /**
+     * The size in bytes of the header of the binary form, which holds 8 ints: {@link #MAGIC},
+     * {@link #FORMAT_VERSION}, stateCount, classCount, patternCount, the number of intervals, the total number of
+     * accepted pattern indices, and a reserved 0.
+     */
+    public static final int HEADER_BYTES = 32;
+
+    /**
+     * Builds a DFA directly from its tables; the arrays are used as-is, not copied.
+     * @param minterms the character classes, as ComBits that don't overlap and together cover the BMP
+     * @param transitions the transition table, with {@code minterms.length} entries for each state
+     * @param accepts the sorted pattern indices that accept in each state
+     * @param patternCount how many patterns this DFA matches
+     */
+    public DFA(ComBit[] minterms, int[] transitions, int[][] accepts, int patternCount)
+    {
+        this.minterms = minterms;
+        this.transitions = transitions;
+        this.accepts = accepts;
+        this.patternCount = patternCount;
+        classCount = minterms.length;
+        stateCount = accepts.length;
+        buildIntervals();
+        latin1Classes = latin1Classes(intervalStarts, intervalClasses);
+    }
+
+    /**
+     * Builds a DFA from the interval form of its character classes, as stored by the binary form; the arrays are used
+     * as-is, not copied.
+     */
+    DFA(char[] intervalStarts, int[] intervalClasses, int classCount, int[] transitions, int[][] accepts,
+        int patternCount)
+    {
+        this.intervalStarts = intervalStarts;
+        this.intervalClasses = intervalClasses;
+        latin1Classes = latin1Classes(intervalStarts, intervalClasses);
+        this.transitions = transitions;
+        this.accepts = accepts;
+        this.patternCount = patternCount;
+        this.classCount = classCount;
+        stateCount = accepts.length;
+        IntVLA[] runs = new IntVLA[classCount];
+        for (int c = 0; c < classCount; c++) {
+            runs[c] = new IntVLA(8);
+        }
+        for (int i = 0, n = intervalStarts.length; i < n; i++) {
+            runs[intervalClasses[i]].add(intervalStarts[i]);
+            runs[intervalClasses[i]].add(i + 1 < n ? intervalStarts[i + 1] : 0x10000);
+        }
+        minterms = new ComBit[classCount];
+        for (int c = 0; c < classCount; c++) {
+            minterms[c] = ComBit.fromRuns(runs[c].items, 0, runs[c].size);
+        }
+    }
+
+    /**
+     * Compiles the given patterns into one DFA. A pattern's index in patterns is what {@link #accepts} and
+     * {@link #matchingPatterns(CharSequence)} use to refer to it.
+     * @param patterns the RE values to compile
+     * @return a new DFA that runs all of patterns at once
+     */
+    public static DFA compile(RE... patterns)
+    {
+        return compile(0, patterns);
+    }
+
+    /**
+     * Compiles the given patterns into one DFA using the given compile flags, such as
+     * {@link REProgram#CASE_INSENSITIVE}. A pattern's index in patterns is what {@link #accepts} and
+     * {@link #matchingPatterns(CharSequence)} use to refer to it.
+     * @param flags compile flags from REProgram, or 0 for none
+     * @param patterns the RE values to compile
+     * @return a new DFA that runs all of patterns at once
+     */
+    public static DFA compile(int flags, RE... patterns)
+    {
+        REProgram program = new REProgram(64, flags);
+        int[] roots = new int[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            roots[i] = program.lower(patterns[i]);
+        }
+        return compile(program, roots);
+    }
+
+    /**
+     * Compiles the given roots of an REProgram into one DFA, treating each root as a separate pattern.
+     * @param program the REProgram that contains roots; more nodes will be added to it
+     * @param roots the node ids of each pattern's root in program
+     * @return a new DFA that runs all of roots at once
+     */
+    public static DFA compile(REProgram program, int... roots)
+    {
+        ComBit[] minterms = minterms(program);
+        final int classCount = minterms.length;
+        char[] representatives = new char[classCount];
+        IntVLA runs = new IntVLA(16);
+        for (int i = 0; i < classCount; i++) {
+            runs.clear();
+            runsOf(minterms[i], runs);
+            representatives[i] = (char) runs.items[0];
+        }
+        // a state is a sorted set of (pattern << 32 | node) pairs; the dead state is the empty set
+        OMap<StateKey, Integer> ids = new OMap<StateKey, Integer>(64);
+        ArraysList states = new ArraysList();
+        long[] dead = new long[0], start = new long[roots.length];
+        int sc = 0;
+        for (int p = 0; p < roots.length; p++) {
+            if(roots[p] != REProgram.PHI_NODE)
+                start[sc++] = (long)p << 32 | roots[p];
+        }
+        if(sc < start.length)
+            start = Arrays.copyOf(start, sc);
+        ids.put(new StateKey(dead), 0);
+        states.add(dead);
+        StateKey startKey = new StateKey(start);
+        if(ids.get(startKey) == null)
+            ids.put(startKey, 1);
+        states.add(start);
+
+        IntVLA transitions = new IntVLA(classCount * 16), derived = new IntVLA(16);
+        long[] next = new long[16];
+        for (int s = 0; s < states.size; s++) {
+            long[] current = states.items[s];
+            for (int c = 0; c < classCount; c++) {
+                int nc = 0;
+                for (int i = 0; i < current.length; i++) {
+                    long pair = current[i];
+                    derived.clear();
+                    program.derive((int) pair, representatives[c], derived);
+                    if(nc + derived.size > next.length)
+                        next = Arrays.copyOf(next, Math.max(next.length << 1, nc + derived.size));
+                    for (int j = 0; j < derived.size; j++) {
+                        next[nc++] = (pair & 0xFFFFFFFF00000000L) | derived.items[j];
+                    }
+                }
+                Arrays.sort(next, 0, nc);
+                int unique = 0;
+                for (int i = 0; i < nc; i++) {
+                    if(unique == 0 || next[unique - 1] != next[i])
+                        next[unique++] = next[i];
+                }
+                StateKey key = new StateKey(Arrays.copyOf(next, unique));
+                Integer id = ids.get(key);
+                if(id == null)
+                {
+                    id = states.size;
+                    ids.put(key, id);
+                    states.add(key.items);
+                }
+                transitions.add(id);
+            }
+        }
+        int[][] accepts = new int[states.size][];
+        IntVLA accepting = new IntVLA(roots.length);
+        for (int s = 0; s < states.size; s++) {
+            long[] current = states.items[s];
+            accepting.clear();
+            for (int i = 0; i < current.length; i++) {
+                int p = (int) (current[i] >>> 32);
+                if(program.nullable((int) current[i]) && (accepting.size == 0 || accepting.peek() != p))
+                    accepting.add(p);
+            }
+            accepts[s] = accepting.size == 0 ? NO_PATTERNS : accepting.toArray();
+        }
+        return new DFA(minterms, transitions.toArray(), accepts, roots.length);
+    }
+
+    /**
+     * Splits the BMP into the coarsest set of classes such that every leaf char or ComBit in program either contains
+     * all of a class or none of it.
+     * @param program an REProgram whose leaves should be used
+     * @return an array of non-overlapping, non-empty ComBits that cover the BMP
+     * @see #minterms(ComBit...)
+     */
+    static ComBit[] minterms(REProgram program)
+    {
+        ComBit[] leaves = new ComBit[program.classCount + 16];
+        int count = 0;
+        for (int n = 0; n < program.size; n++) {
+            ComBit leaf;
+            switch (program.op(n))
+            {
+                case REProgram.SINGLE: leaf = new ComBit(new char[]{(char) program.left(n)});
+                    break;
+                case REProgram.MULTIPLE: leaf = program.classes[program.left(n)];
+                    break;
+                default: continue;
+            }
+            if(count == leaves.length)
+                leaves = Arrays.copyOf(leaves, count << 1);
+            leaves[count++] = leaf;
+        }
+        return minterms(Arrays.copyOf(leaves, count));
+    }
+
+    /**
+     * Splits the BMP into the coarsest set of classes such that each of leaves either contains all of a class or none
+     * of it. Rather than refining classes against one leaf at a time, which costs O(classes * leaves), this sorts the
+     * run boundaries of every leaf together and sweeps across them once, so it costs O(runs * log(runs)) for the
+     * total number of runs in leaves. Each leaf gets a random 64-bit key, and the signature of a region between two
+     * boundaries is the XOR of the keys of the leaves that contain it; regions contained by the same leaves form one
+     * class. The signature only finds candidate classes quickly: with more than 64 leaves, some different sets of
+     * leaves must share a signature, so each candidate's leaves are compared with the region's before it is used.
+     * <br>
+     * Classes are ordered by their first char, so class 0 always contains char 0.
+     * @param leaves the ComBits that must each be a union of whole classes; they are not changed
+     * @return an array of non-overlapping, non-empty ComBits that cover the BMP
+     */
+    public static ComBit[] minterms(ComBit... leaves)
+    {
+        final long[] keys = new long[leaves.length];
+        long[] events = new long[leaves.length * 4 + 2];
+        int n = 0;
+        long state = 0L;
+        for (int k = 0; k < leaves.length; k++) {
+            keys[k] = MathUtils.nextLong(state += 0x9E3779B97F4A7C15L);
+            final ComBit.RunCursor rc = leaves[k].runs();
+            while (rc.next())
+            {
+                if(n + 2 > events.length)
+                    events = Arrays.copyOf(events, events.length << 1);
+                events[n++] = (long) rc.start << 32 | k;
+                if(rc.end < 0x10000)
+                    events[n++] = (long) rc.end << 32 | k;
+            }
+        }
+        Arrays.sort(events, 0, n);
+        // open-addressed table from region signature to class id + 1, where 0 marks an empty slot; classes that share
+        // a signature each get their own slot
+        long[] sigs = new long[64];
+        int[] ids = new int[64];
+        int mask = 63, classCount = 0;
+        IntVLA[] runs = new IntVLA[16];
+        // the leaves that contain each class, and those that contain the current region
+        int[][] contained = new int[16][];
+        final boolean[] active = new boolean[leaves.length];
+        int activeCount = 0;
+        long sig = 0L;
+        for (int i = 0, pos = 0; pos < 0x10000; ) {
+            while (i < n && (int) (events[i] >>> 32) == pos)
+            {
+                final int k = (int) events[i++];
+                sig ^= keys[k];
+                activeCount += (active[k] = !active[k]) ? 1 : -1;
+            }
+            final int end = i < n ? (int) (events[i] >>> 32) : 0x10000;
+            int slot = (int) (sig ^ sig >>> 32) * 0x9E3779B9 >>> 7 & mask;
+            while (ids[slot] != 0 && (sigs[slot] != sig || !sameLeaves(contained[ids[slot] - 1], active, activeCount)))
+                slot = slot + 1 & mask;
+            int id = ids[slot] - 1;
+            if(id < 0)
+            {
+                id = classCount++;
+                sigs[slot] = sig;
+                ids[slot] = classCount;
+                if(id == runs.length)
+                {
+                    runs = Arrays.copyOf(runs, id << 1);
+                    contained = Arrays.copyOf(contained, id << 1);
+                }
+                runs[id] = new IntVLA(4);
+                final int[] inside = new int[activeCount];
+                for (int k = 0, j = 0; j < activeCount; k++) {
+                    if(active[k])
+                        inside[j++] = k;
+                }
+                contained[id] = inside;
+                if(classCount << 1 > mask)
+                {
+                    final long[] os = sigs;
+                    final int[] oi = ids;
+                    mask = (mask << 1) | 1;
+                    sigs = new long[mask + 1];
+                    ids = new int[mask + 1];
+                    for (int j = 0; j < os.length; j++) {
+                        if(oi[j] == 0)
+                            continue;
+                        int s2 = (int) (os[j] ^ os[j] >>> 32) * 0x9E3779B9 >>> 7 & mask;
+                        while (ids[s2] != 0)
+                            s2 = s2 + 1 & mask;
+                        sigs[s2] = os[j];
+                        ids[s2] = oi[j];
+                    }
+                }
+            }
+            runs[id].add(pos);
+            runs[id].add(end);
+            pos = end;
+        }
+        ComBit[] parts = new ComBit[classCount];
+        for (int c = 0; c < classCount; c++) {
+            parts[c] = ComBit.fromRuns(runs[c].items, 0, runs[c].size);
+        }
+        return parts;
+    }
+
+    /**
+     * @return true if the leaves in inside are exactly the activeCount leaves marked in active
+     */
+    private static boolean sameLeaves(int[] inside, boolean[] active, int activeCount)
+    {
+        if(inside.length != activeCount)
+            return false;
+        for (int k = 0; k < inside.length; k++) {
+            if(!active[inside[k]])
+                return false;
+        }
+        return true;
+    }
+
+    private void buildIntervals()
+    {
+        IntVLA runs = new IntVLA(16);
+        long[] starts = new long[classCount * 4];
+        int count = 0;
+        for (int c = 0; c < classCount; c++) {
+            runs.clear();
+            runsOf(minterms[c], runs);
+            for (int i = 0; i < runs.size; i += 2) {
+                if(count == starts.length)
+                    starts = Arrays.copyOf(starts, count << 1);
+                starts[count++] = (long) runs.items[i] << 32 | c;
+            }
+        }
+        Arrays.sort(starts, 0, count);
+        intervalStarts = new char[count];
+        intervalClasses = new int[count];
+        for (int i = 0; i < count; i++) {
+            intervalStarts[i] = (char) (starts[i] >>> 32);
+            intervalClasses[i] = (int) starts[i];
+        }
+    }
+
+    /**
+     * Appends the [start, end) bounds of each run of chars in cb to out, in order.
+     * @param cb a ComBit to read
+     * @param out an IntVLA that will receive start and end values, alternating
+     */
+    static void runsOf(ComBit cb, IntVLA out)
+    {
+        final ComBit.RunCursor rc = cb.runs();
+        while (rc.next())
+        {
+            out.add(rc.start);
+            out.add(rc.end);
+        }
+    }
+
+    /**
+     * Expands the first 256 chars of the given intervals into a lookup table of classes.
+     * @param starts the sorted first char of each interval, starting with 0
+     * @param classes the class of each interval
+     * @return a new array of the class of each char from 0 to 255
+     */
+    static int[] latin1Classes(char[] starts, int[] classes)
+    {
+        int[] table = new int[256];
+        for (int i = 0, n = starts.length; i < n && starts[i] < 256; i++) {
+            final int end = (i + 1 < n) ? Math.min(starts[i + 1], 256) : 256;
+            Arrays.fill(table, starts[i], end, classes[i]);
+        }
+        return table;
+    }
+
+    /**
+     * Gets the character class of c, which is used as the column of {@link #transitions}.
+     * @param c any char
+     * @return the index of the minterm containing c
+     */
+    public final int classOf(char c)
+    {
+        if(c < 256)
+            return latin1Classes[c];
+        final char[] starts = intervalStarts;
+        int low = 0, high = starts.length - 1;
+        while (low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if(starts[mid] <= c)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return intervalClasses[low];
+    }
+
+    /**
+     * Gets the state reached from state by reading c.
+     * @param state a state number
+     * @param c the char to read
+     * @return the next state number, which is 0 if nothing can match anymore
+     */
+    public final int step(int state, char c)
+    {
+        return transitions[state * classCount + classOf(c)];
+    }
+
+    /**
+     * @param state a state number
+     * @return true if any pattern accepts if the text ends in state
+     */
+    public final boolean isAccepting(int state)
+    {
+        return accepts[state].length != 0;
+    }
+
+    @Override
+    public DFA dfa() {
+        return this;
+    }
+
+    @Override
+    public int run(CharSequence text, int start, int end) {
+        final int[] transitions = this.transitions;
+        final int classCount = this.classCount;
+        int state = 1;
+        for (int i = start; i < end && state != 0; i++) {
+            state = transitions[state * classCount + classOf(text.charAt(i))];
+        }
+        return state;
+    }
+
+    @Override
+    public boolean matches(CharSequence text) {
+        return accepts[run(text, 0, text.length())].length != 0;
+    }
+
+    /**
+     * Gets the indices of every pattern that matches all of text.
+     * @param text the text to check
+     * @return a sorted array of pattern indices, which may be empty; should not be modified
+     */
+    public int[] matchingPatterns(CharSequence text)
+    {
+        return accepts[run(text, 0, text.length())];
+    }
+
+    /**
+     * Writes this DFA in a compact binary form that {@link #readFrom(java.nio.ByteBuffer)} can load without repeating
+     * any derivative exploration. All values are big-endian. After a {@link #HEADER_BYTES}-byte header come, in order:
+     * the class of each interval as an int, the transition table as ints, the offset into the accepted pattern
+     * indices for each state plus one final offset as ints, the accepted pattern indices as ints, and the first char
+     * of each interval, padded with zeros to a multiple of 4 bytes. Every int is 4-byte aligned relative to the start.
+     * @param out the OutputStream to write to; will not be closed
+     * @throws java.io.IOException if out throws one
+     */
+    @GwtIncompatible
+    public void writeTo(java.io.OutputStream out) throws java.io.IOException
+    {
+        char[] chars = toChars();
+        byte[] bytes = new byte[chars.length << 1];
+        for (int i = 0, b = 0; i < chars.length; i++) {
+            bytes[b++] = (byte) (chars[i] >>> 8);
+            bytes[b++] = (byte) chars[i];
+        }
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * Gets the binary form of this DFA (the same one {@link #writeTo(java.io.OutputStream)} writes) as big-endian
+     * pairs of bytes packed into chars, which is convenient for storing in Java source as String literals.
+     * {@link #fromChars(String...)} can load this form on any platform, including GWT.
+     * @return a new char array holding the binary form of this DFA
+     */
+    public char[] toChars()
+    {
+        final int intervalCount = intervalStarts.length;
+        int acceptCount = 0;
+        for (int s = 0; s < stateCount; s++) {
+            acceptCount += accepts[s].length;
+        }
+        char[] out = new char[binarySize() >>> 1];
+        int at = 0;
+        at = putInt(out, at, MAGIC);
+        at = putInt(out, at, FORMAT_VERSION);
+        at = putInt(out, at, stateCount);
+        at = putInt(out, at, classCount);
+        at = putInt(out, at, patternCount);
+        at = putInt(out, at, intervalCount);
+        at = putInt(out, at, acceptCount);
+        at = putInt(out, at, 0);
+        for (int i = 0; i < intervalCount; i++) {
+            at = putInt(out, at, intervalClasses[i]);
+        }
+        for (int i = 0, n = stateCount * classCount; i < n; i++) {
+            at = putInt(out, at, transitions[i]);
+        }
+        for (int s = 0, offset = 0; s <= stateCount; s++) {
+            at = putInt(out, at, offset);
+            if(s < stateCount)
+                offset += accepts[s].length;
+        }
+        for (int s = 0; s < stateCount; s++) {
+            for (int i = 0; i < accepts[s].length; i++) {
+                at = putInt(out, at, accepts[s][i]);
+            }
+        }
+        System.arraycopy(intervalStarts, 0, out, at, intervalCount);
+        return out;
+    }
+
+    private static int putInt(char[] out, int at, int value)
+    {
+        out[at] = (char) (value >>> 16);
+        out[at + 1] = (char) value;
+        return at + 2;
+    }
+
+    /**
+     * Loads a DFA from the char form produced by {@link #toChars()}, which may be split across several Strings (as
+     * Java source needs for long constants); the Strings are treated as if they were concatenated.
+     * @param parts the char form of a DFA, in one or more pieces
+     * @return a new DFA with the same states, classes, and patterns as the one that produced parts
+     * @throws IllegalArgumentException if parts do not hold a DFA in a format version this can read
+     */
+    public static DFA fromChars(String... parts)
+    {
+        int length = 0;
+        for (int i = 0; i < parts.length; i++) {
+            length += parts[i].length();
+        }
+        char[] data = new char[length];
+        for (int i = 0, at = 0; i < parts.length; i++) {
+            parts[i].getChars(0, parts[i].length(), data, at);
+            at += parts[i].length();
+        }
+        if(length < HEADER_BYTES >>> 1 || getInt(data, 0) != MAGIC)
+            throw new IllegalArgumentException("Not a padre DFA");
+        if(getInt(data, 2) != FORMAT_VERSION)
+            throw new IllegalArgumentException("Unsupported DFA format version: " + getInt(data, 2));
+        final int stateCount = getInt(data, 4), classCount = getInt(data, 6), patternCount = getInt(data, 8),
+                intervalCount = getInt(data, 10);
+        int at = HEADER_BYTES >>> 1;
+        int[] intervalClasses = new int[intervalCount], transitions = new int[stateCount * classCount],
+                acceptOffsets = new int[stateCount + 1];
+        for (int i = 0; i < intervalCount; i++, at += 2) {
+            intervalClasses[i] = getInt(data, at);
+        }
+        for (int i = 0; i < transitions.length; i++, at += 2) {
+            transitions[i] = getInt(data, at);
+        }
+        for (int i = 0; i <= stateCount; i++, at += 2) {
+            acceptOffsets[i] = getInt(data, at);
+        }
+        int[][] accepts = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            int len = acceptOffsets[s + 1] - acceptOffsets[s];
+            if(len == 0)
+                accepts[s] = NO_PATTERNS;
+            else
+            {
+                accepts[s] = new int[len];
+                for (int i = 0; i < len; i++, at += 2) {
+                    accepts[s][i] = getInt(data, at);
+                }
+            }
+        }
+        char[] intervalStarts = new char[intervalCount];
+        System.arraycopy(data, at, intervalStarts, 0, intervalCount);
+        return new DFA(intervalStarts, intervalClasses, classCount, transitions, accepts, patternCount);
+    }
+
+    private static int getInt(char[] data, int at)
+    {
+        return data[at] << 16 | data[at + 1];
+    }
+
+    /**
+     * Gets the number of bytes {@link #writeTo(java.io.OutputStream)} will write for this DFA.
+     * @return the size of the binary form of this DFA, in bytes
+     */
+    public int binarySize()
+    {
+        int acceptCount = 0;
+        for (int s = 0; s < stateCount; s++) {
+            acceptCount += accepts[s].length;
+        }
+        return HEADER_BYTES + 4 * (intervalStarts.length + stateCount * classCount + stateCount + 1 + acceptCount)
+                + ((intervalStarts.length + 1) >>> 1 << 2);
+    }
+
+    /**
+     * Loads a DFA from the binary form written by {@link #writeTo(java.io.OutputStream)}, starting at the buffer's
+     * position and advancing the position past the DFA. The buffer's byte order is not changed.
+     * @param buffer a ByteBuffer positioned at the start of a DFA's binary form
+     * @return a new DFA with the same states, classes, and patterns as the one that was written
+     * @throws IllegalArgumentException if the buffer does not hold a DFA in a format version this can read
+     */
+    @GwtIncompatible
+    public static DFA readFrom(java.nio.ByteBuffer buffer)
+    {
+        java.nio.ByteBuffer data = buffer.slice().order(java.nio.ByteOrder.BIG_ENDIAN);
+        if(data.remaining() < HEADER_BYTES || data.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("Not a padre DFA");
+        if(data.getInt(4) != FORMAT_VERSION)
+            throw new IllegalArgumentException("Unsupported DFA format version: " + data.getInt(4));
+        final int stateCount = data.getInt(8), classCount = data.getInt(12), patternCount = data.getInt(16),
+                intervalCount = data.getInt(20), acceptCount = data.getInt(24);
+        java.nio.IntBuffer ints = data.asIntBuffer();
+        ints.position(HEADER_BYTES >>> 2);
+        int[] intervalClasses = new int[intervalCount], transitions = new int[stateCount * classCount],
+                acceptOffsets = new int[stateCount + 1], acceptIds = new int[acceptCount];
+        ints.get(intervalClasses);
+        ints.get(transitions);
+        ints.get(acceptOffsets);
+        ints.get(acceptIds);
+        java.nio.CharBuffer chars = data.asCharBuffer();
+        chars.position(ints.position() << 1);
+        char[] intervalStarts = new char[intervalCount];
+        chars.get(intervalStarts);
+        int[][] accepts = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            int len = acceptOffsets[s + 1] - acceptOffsets[s];
+            if(len == 0)
+                accepts[s] = NO_PATTERNS;
+            else
+            {
+                accepts[s] = new int[len];
+                System.arraycopy(acceptIds, acceptOffsets[s], accepts[s], 0, len);
+            }
+        }
+        buffer.position(buffer.position() + ((chars.position() + 1) >>> 1 << 2));
+        return new DFA(intervalStarts, intervalClasses, classCount, transitions, accepts, patternCount);
+    }
+
+    @Override
+    public String toString() {
+        return "DFA{states=" + stateCount + ", classes=" + classCount + ", patterns=" + patternCount + '}';
+    }
+
+    private static final class StateKey
+    {
+        final long[] items;
+        final int hash;
+
+        StateKey(long[] items)
+        {
+            this.items = items;
+            hash = Arrays.hashCode(items);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateKey && hash == ((StateKey) o).hash && Arrays.equals(items, ((StateKey) o).items);
+        }
+    }
+
+    private static final class ArraysList
+    {
+        long[][] items = new long[16][];
+        int size;
+
+        void add(long[] item)
+        {
+            if(size == items.length)
+                items = Arrays.copyOf(items, size << 1);
+            items[size++] = item;
+        }
+    }
+}
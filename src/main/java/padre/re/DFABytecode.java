@@ -0,0 +1,328 @@
+package padre.re;
+
+import padre.ds.GwtIncompatible;
+
+import java.util.HashMap;
+
+/**
+ * An optional matching engine that generates a JVM class for one {@link DFA}, with each state compiled to its own
+ * block of bytecode that ends in a tableswitch over the char classes, jumping straight to the next state's block.
+ * HotSpot can then compile a whole match into straight-line machine code, without the table lookups that
+ * {@link DFA#run(CharSequence, int, int)} needs for each char. Each generated class is defined by its own small
+ * ClassLoader, so it can be unloaded once its matcher is no longer reachable.
+ * <br>
+ * Class generation is not available everywhere (GWT in particular), so {@link #matcher(DFA)} falls back to the DFA's
+ * own table-driven matching if anything goes wrong; {@link #generate(DFA)} can be used to see the failure instead.
+ * Very large DFAs, whose code would not fit in one JVM method, also fall back.
+ */
+@GwtIncompatible
+public final class DFABytecode {
+    private static int counter = 0;
+
+    private DFABytecode()
+    {
+    }
+
+    /**
+     * Gets a DFAMatcher for dfa that uses a generated class if possible, or dfa itself if a class can't be generated.
+     * @param dfa a DFA to run
+     * @return a DFAMatcher that runs dfa, generated if possible
+     */
+    public static DFAMatcher matcher(DFA dfa)
+    {
+        try {
+            return generate(dfa);
+        } catch (Exception e) {
+            return dfa;
+        } catch (LinkageError e) {
+            return dfa;
+        }
+    }
+
+    /**
+     * Generates, loads, and instantiates a class that runs dfa, throwing an exception if that can't be done.
+     * @param dfa a DFA to run
+     * @return a new instance of a generated class that runs dfa
+     * @throws Exception if the class is too large for the JVM or can't be defined or instantiated
+     */
+    public static DFAMatcher generate(DFA dfa) throws Exception
+    {
+        String name;
+        synchronized (DFABytecode.class) {
+            name = "padre/re/GeneratedDFA$" + counter++;
+        }
+        byte[] bytes = classBytes(dfa, name);
+        Class<?> c = new Loader(DFABytecode.class.getClassLoader()).define(name.replace('/', '.'), bytes);
+        return (DFAMatcher) c.getConstructor(DFA.class).newInstance(dfa);
+    }
+
+    /**
+     * Produces the bytes of a class file with the given internal name that implements DFAMatcher for dfa. The class
+     * has one constructor, which takes the DFA it was generated for.
+     * @param dfa a DFA to generate a class for
+     * @param name the internal name of the class, such as {@code "padre/re/GeneratedDFA$0"}
+     * @return the bytes of a class file, using class file version 49 so no stack map frames are needed
+     */
+    public static byte[] classBytes(DFA dfa, String name)
+    {
+        Pool pool = new Pool();
+        final int thisClass = pool.classRef(name),
+                objectClass = pool.classRef("java/lang/Object"),
+                matcherClass = pool.classRef("padre/re/DFAMatcher"),
+                dfaField = pool.memberRef(9, name, "dfa", "Lpadre/re/DFA;"),
+                objectInit = pool.memberRef(10, "java/lang/Object", "<init>", "()V"),
+                classOf = pool.memberRef(10, "padre/re/DFA", "classOf", "(C)I"),
+                isAccepting = pool.memberRef(10, "padre/re/DFA", "isAccepting", "(I)Z"),
+                run = pool.memberRef(10, name, "run", "(Ljava/lang/CharSequence;II)I"),
+                charAt = pool.memberRef(11, "java/lang/CharSequence", "charAt", "(I)C"),
+                length = pool.memberRef(11, "java/lang/CharSequence", "length", "()I");
+
+        Bytes init = new Bytes(16);
+        init.u1(0x2A).u1(0xB7).u2(objectInit) // aload_0, invokespecial Object.<init>
+                .u1(0x2A).u1(0x2B).u1(0xB5).u2(dfaField) // aload_0, aload_1, putfield dfa
+                .u1(0xB1); // return
+
+        Bytes getter = new Bytes(8);
+        getter.u1(0x2A).u1(0xB4).u2(dfaField).u1(0xB0); // aload_0, getfield dfa, areturn
+
+        Bytes matches = new Bytes(24);
+        matches.u1(0x2A).u1(0xB4).u2(dfaField) // aload_0, getfield dfa
+                .u1(0x2A).u1(0x2B).u1(0x03) // aload_0, aload_1, iconst_0
+                .u1(0x2B).u1(0xB9).u2(length).u1(1).u1(0) // aload_1, invokeinterface length
+                .u1(0xB6).u2(run) // invokevirtual run
+                .u1(0xB6).u2(isAccepting) // invokevirtual isAccepting
+                .u1(0xAC); // ireturn
+
+        // locals in run: 0 is this, 1 is the text, 2 is the current index, 3 is the end index
+        final int stateCount = dfa.stateCount, classCount = dfa.classCount;
+        final int[] transitions = dfa.transitions;
+        Bytes code = new Bytes(stateCount * (classCount * 4 + 32));
+        int[] blocks = new int[stateCount];
+        int[] fixups = new int[(stateCount - 1) * (classCount + 1) * 3];
+        int fc = 0;
+        for (int s = 1; s < stateCount; s++) {
+            blocks[s] = code.size;
+            int branch = code.size;
+            code.u1(0x1C).u1(0x1D).u1(0xA1).u2(0); // iload_2, iload_3, if_icmplt body
+            pushInt(code, pool, s);
+            code.u1(0xAC); // ireturn
+            code.patch2(branch + 3, code.size - (branch + 2));
+            code.u1(0x2A).u1(0xB4).u2(dfaField) // aload_0, getfield dfa
+                    .u1(0x2B).u1(0x1C).u1(0xB9).u2(charAt).u1(2).u1(0) // aload_1, iload_2, invokeinterface charAt
+                    .u1(0xB6).u2(classOf) // invokevirtual classOf
+                    .u1(0x84).u1(2).u1(1); // iinc 2 1
+            int op = code.size;
+            code.u1(0xAA); // tableswitch
+            while ((code.size & 3) != 0)
+                code.u1(0);
+            fixups[fc++] = op;
+            fixups[fc++] = code.size;
+            fixups[fc++] = 0;
+            code.u4(0).u4(0).u4(classCount - 1);
+            for (int c = 0; c < classCount; c++) {
+                fixups[fc++] = op;
+                fixups[fc++] = code.size;
+                fixups[fc++] = transitions[s * classCount + c];
+                code.u4(0);
+            }
+        }
+        blocks[0] = code.size;
+        code.u1(0x03).u1(0xAC); // iconst_0, ireturn
+        for (int i = 0; i < fc; i += 3) {
+            code.patch4(fixups[i + 1], blocks[fixups[i + 2]] - fixups[i]);
+        }
+        if(code.size > 0xFFFF)
+            throw new IllegalStateException("DFA with " + stateCount + " states and " + classCount
+                    + " classes is too large to generate as one method");
+
+        Bytes out = new Bytes(code.size + pool.bytes.size + 512);
+        out.u4(0xCAFEBABE).u2(0).u2(49);
+        final int codeName = pool.utf8("Code");
+        final int initName = pool.utf8("<init>"), initDesc = pool.utf8("(Lpadre/re/DFA;)V"),
+                dfaName = pool.utf8("dfa"), dfaDesc = pool.utf8("()Lpadre/re/DFA;"),
+                runName = pool.utf8("run"), runDesc = pool.utf8("(Ljava/lang/CharSequence;II)I"),
+                matchesName = pool.utf8("matches"), matchesDesc = pool.utf8("(Ljava/lang/CharSequence;)Z"),
+                fieldDesc = pool.utf8("Lpadre/re/DFA;");
+        out.u2(pool.count).append(pool.bytes);
+        out.u2(0x0031).u2(thisClass).u2(objectClass) // public final super
+                .u2(1).u2(matcherClass);
+        out.u2(1).u2(0x0012).u2(dfaName).u2(fieldDesc).u2(0); // private final DFA dfa
+        out.u2(4);
+        method(out, codeName, initName, initDesc, 2, 2, init);
+        method(out, codeName, dfaName, dfaDesc, 1, 1, getter);
+        method(out, codeName, runName, runDesc, 3, 4, code);
+        method(out, codeName, matchesName, matchesDesc, 5, 2, matches);
+        out.u2(0);
+        byte[] result = new byte[out.size];
+        System.arraycopy(out.bytes, 0, result, 0, out.size);
+        return result;
+    }
+
+    private static void method(Bytes out, int codeName, int name, int desc, int maxStack, int maxLocals, Bytes code)
+    {
+        out.u2(0x0001).u2(name).u2(desc).u2(1) // public, one attribute
+                .u2(codeName).u4(code.size + 12)
+                .u2(maxStack).u2(maxLocals).u4(code.size).append(code)
+                .u2(0).u2(0); // no exception table, no attributes
+    }
+
+    private static void pushInt(Bytes code, Pool pool, int value)
+    {
+        if(value <= 5)
+            code.u1(0x03 + value); // iconst_n
+        else if(value <= 127)
+            code.u1(0x10).u1(value); // bipush
+        else if(value <= 32767)
+            code.u1(0x11).u2(value); // sipush
+        else
+            code.u1(0x13).u2(pool.integer(value)); // ldc_w
+    }
+
+    private static final class Loader extends ClassLoader
+    {
+        Loader(ClassLoader parent)
+        {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes)
+        {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Bytes
+    {
+        byte[] bytes;
+        int size;
+
+        Bytes(int capacity)
+        {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        private void ensure(int more)
+        {
+            if(size + more > bytes.length)
+            {
+                byte[] nb = new byte[Math.max(bytes.length << 1, size + more)];
+                System.arraycopy(bytes, 0, nb, 0, size);
+                bytes = nb;
+            }
+        }
+
+        Bytes u1(int b)
+        {
+            ensure(1);
+            bytes[size++] = (byte) b;
+            return this;
+        }
+
+        Bytes u2(int s)
+        {
+            ensure(2);
+            bytes[size++] = (byte) (s >>> 8);
+            bytes[size++] = (byte) s;
+            return this;
+        }
+
+        Bytes u4(int i)
+        {
+            ensure(4);
+            bytes[size++] = (byte) (i >>> 24);
+            bytes[size++] = (byte) (i >>> 16);
+            bytes[size++] = (byte) (i >>> 8);
+            bytes[size++] = (byte) i;
+            return this;
+        }
+
+        Bytes append(Bytes other)
+        {
+            ensure(other.size);
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        void patch2(int at, int s)
+        {
+            bytes[at] = (byte) (s >>> 8);
+            bytes[at + 1] = (byte) s;
+        }
+
+        void patch4(int at, int i)
+        {
+            bytes[at] = (byte) (i >>> 24);
+            bytes[at + 1] = (byte) (i >>> 16);
+            bytes[at + 2] = (byte) (i >>> 8);
+            bytes[at + 3] = (byte) i;
+        }
+    }
+
+    private static final class Pool
+    {
+        final Bytes bytes = new Bytes(512);
+        final HashMap<String, Integer> entries = new HashMap<String, Integer>(32);
+        int count = 1;
+
+        int utf8(String s)
+        {
+            String key = "U" + s;
+            Integer idx = entries.get(key);
+            if(idx != null)
+                return idx;
+            byte[] data;
+            try {
+                data = s.getBytes("UTF-8");
+            } catch (java.io.UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            bytes.u1(1).u2(data.length);
+            for (int i = 0; i < data.length; i++) {
+                bytes.u1(data[i]);
+            }
+            entries.put(key, count);
+            return count++;
+        }
+
+        int integer(int value)
+        {
+            String key = "I" + value;
+            Integer idx = entries.get(key);
+            if(idx != null)
+                return idx;
+            bytes.u1(3).u4(value);
+            entries.put(key, count);
+            return count++;
+        }
+
+        int classRef(String internalName)
+        {
+            String key = "C" + internalName;
+            Integer idx = entries.get(key);
+            if(idx != null)
+                return idx;
+            int n = utf8(internalName);
+            bytes.u1(7).u2(n);
+            entries.put(key, count);
+            return count++;
+        }
+
+        /**
+         * @param tag 9 for a field, 10 for a class method, 11 for an interface method
+         */
+        int memberRef(int tag, String owner, String name, String descriptor)
+        {
+            String key = "M" + tag + owner + '.' + name + descriptor;
+            Integer idx = entries.get(key);
+            if(idx != null)
+                return idx;
+            int c = classRef(owner), n = utf8(name), d = utf8(descriptor);
+            bytes.u1(12).u2(n).u2(d);
+            int nameAndType = count++;
+            bytes.u1(tag).u2(c).u2(nameAndType);
+            entries.put(key, count);
+            return count++;
+        }
+    }
+}
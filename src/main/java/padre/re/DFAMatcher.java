@@ -0,0 +1,30 @@
+package padre.re;
+
+/**
+ * Something that can run a compiled {@link DFA} over text, either by reading the DFA's transition table or by some
+ * faster means, such as a class generated specifically for one DFA.
+ */
+public interface DFAMatcher {
+    /**
+     * Gets the DFA this runs; the state numbers returned by {@link #run(CharSequence, int, int)} refer to its states.
+     * @return the DFA this runs
+     */
+    DFA dfa();
+
+    /**
+     * Runs the DFA over the chars of text from start (inclusive) to end (exclusive), stopping early if the dead
+     * state is reached.
+     * @param text the text to read
+     * @param start the first index in text to read
+     * @param end the index after the last char to read
+     * @return the state reached after reading the text, or 0 (the dead state) if no pattern can match
+     */
+    int run(CharSequence text, int start, int end);
+
+    /**
+     * Returns true if any pattern in the DFA matches all of text.
+     * @param text the text to check
+     * @return true if text is matched entirely by any pattern
+     */
+    boolean matches(CharSequence text);
+}
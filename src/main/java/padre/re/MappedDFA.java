@@ -0,0 +1,201 @@
+package padre.re;
+
+import padre.ds.GwtIncompatible;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A DFAMatcher that reads the tables of a DFA directly from the binary form written by
+ * {@link DFA#writeTo(java.io.OutputStream)}, without copying them onto the heap. When the buffer is a
+ * MappedByteBuffer, as produced by {@link #map(File)}, the tables stay in the OS page cache, so any number of JVMs
+ * mapping the same file share one copy of them, and none of it counts toward any heap or needs to be traced by GC.
+ * Only absolute reads are used, so one MappedDFA can be used by many threads at once.
+ */
+@GwtIncompatible
+public final class MappedDFA implements DFAMatcher {
+    public final int stateCount, classCount, patternCount, intervalCount;
+    private final ByteBuffer data;
+    private final IntBuffer intervalClasses, transitions, acceptOffsets, acceptIds;
+    private final CharBuffer intervalStarts;
+    /**
+     * The class of each Latin-1 char; the only part of the tables copied onto the heap, at 1KB.
+     */
+    private final int[] latin1Classes;
+    private DFA dfa;
+
+    /**
+     * Wraps the binary form of a DFA starting at the buffer's position; the buffer's position is advanced past the
+     * DFA, but none of its contents are copied.
+     * @param buffer a ByteBuffer positioned at the start of a DFA's binary form
+     * @throws IllegalArgumentException if the buffer does not hold a DFA in a format version this can read
+     */
+    public MappedDFA(ByteBuffer buffer)
+    {
+        ByteBuffer data = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        if(data.remaining() < DFA.HEADER_BYTES || data.getInt(0) != DFA.MAGIC)
+            throw new IllegalArgumentException("Not a padre DFA");
+        if(data.getInt(4) != DFA.FORMAT_VERSION)
+            throw new IllegalArgumentException("Unsupported DFA format version: " + data.getInt(4));
+        stateCount = data.getInt(8);
+        classCount = data.getInt(12);
+        patternCount = data.getInt(16);
+        intervalCount = data.getInt(20);
+        final int acceptCount = data.getInt(24);
+        int at = DFA.HEADER_BYTES;
+        intervalClasses = view(data, at, intervalCount);
+        at += intervalCount << 2;
+        transitions = view(data, at, stateCount * classCount);
+        at += stateCount * classCount << 2;
+        acceptOffsets = view(data, at, stateCount + 1);
+        at += stateCount + 1 << 2;
+        acceptIds = view(data, at, acceptCount);
+        at += acceptCount << 2;
+        data.position(at);
+        data.limit(at + (intervalCount << 1));
+        intervalStarts = data.slice().order(ByteOrder.BIG_ENDIAN).asCharBuffer();
+        at += (intervalCount + 1) >>> 1 << 2;
+        data.clear();
+        data.limit(at);
+        this.data = data;
+        latin1Classes = new int[256];
+        for (int i = 0; i < intervalCount && intervalStarts.get(i) < 256; i++) {
+            final int end = (i + 1 < intervalCount) ? Math.min(intervalStarts.get(i + 1), 256) : 256;
+            Arrays.fill(latin1Classes, intervalStarts.get(i), end, intervalClasses.get(i));
+        }
+        buffer.position(buffer.position() + at);
+    }
+
+    private static IntBuffer view(ByteBuffer data, int at, int count)
+    {
+        data.position(at);
+        data.limit(at + (count << 2));
+        IntBuffer ib = data.slice().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        data.clear();
+        return ib;
+    }
+
+    /**
+     * Memory-maps the given file, read-only, and wraps the DFA at its start.
+     * @param file a file written by {@link DFA#writeTo(java.io.OutputStream)}
+     * @return a MappedDFA reading from the mapped file
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public static MappedDFA map(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // the mapping stays valid after the channel is closed
+            return new MappedDFA(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Gets the character class of c, which is used as the column of the transition table.
+     * @param c any char
+     * @return the index of the minterm containing c
+     */
+    public int classOf(char c)
+    {
+        if(c < 256)
+            return latin1Classes[c];
+        final CharBuffer starts = intervalStarts;
+        int low = 0, high = intervalCount - 1;
+        while (low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if(starts.get(mid) <= c)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return intervalClasses.get(low);
+    }
+
+    /**
+     * Gets the state reached from state by reading c.
+     * @param state a state number
+     * @param c the char to read
+     * @return the next state number, which is 0 if nothing can match anymore
+     */
+    public int step(int state, char c)
+    {
+        return transitions.get(state * classCount + classOf(c));
+    }
+
+    /**
+     * @param state a state number
+     * @return true if any pattern accepts if the text ends in state
+     */
+    public boolean isAccepting(int state)
+    {
+        return acceptOffsets.get(state + 1) != acceptOffsets.get(state);
+    }
+
+    /**
+     * Gets the sorted indices of every pattern that accepts if the text ends in state, as a new array.
+     * @param state a state number
+     * @return a new, possibly empty, sorted array of pattern indices
+     */
+    public int[] accepts(int state)
+    {
+        final int start = acceptOffsets.get(state);
+        int[] ids = new int[acceptOffsets.get(state + 1) - start];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = acceptIds.get(start + i);
+        }
+        return ids;
+    }
+
+    /**
+     * Gets a DFA with the same tables as this, copied onto the heap the first time this is called.
+     * @return a heap-based DFA equivalent to this
+     */
+    @Override
+    public synchronized DFA dfa() {
+        if(dfa == null)
+            dfa = DFA.readFrom(data.duplicate());
+        return dfa;
+    }
+
+    @Override
+    public int run(CharSequence text, int start, int end) {
+        final IntBuffer transitions = this.transitions;
+        final int classCount = this.classCount;
+        int state = 1;
+        for (int i = start; i < end && state != 0; i++) {
+            state = transitions.get(state * classCount + classOf(text.charAt(i)));
+        }
+        return state;
+    }
+
+    @Override
+    public boolean matches(CharSequence text) {
+        return isAccepting(run(text, 0, text.length()));
+    }
+
+    /**
+     * Gets the indices of every pattern that matches all of text.
+     * @param text the text to check
+     * @return a new, possibly empty, sorted array of pattern indices
+     */
+    public int[] matchingPatterns(CharSequence text)
+    {
+        return accepts(run(text, 0, text.length()));
+    }
+
+    @Override
+    public String toString() {
+        return "MappedDFA{states=" + stateCount + ", classes=" + classCount + ", patterns=" + patternCount + '}';
+    }
+}
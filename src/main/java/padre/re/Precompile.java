@@ -0,0 +1,15 @@
+package padre.re;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a static field holding an RE or an array of RE as a pattern set that {@link Precompiler} should compile
+ * into a DFA at build time. Every RE in one field becomes one pattern of the same DFA, numbered in array order.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Precompile {
+}
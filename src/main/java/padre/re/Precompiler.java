@@ -0,0 +1,226 @@
+package padre.re;
+
+import padre.ds.GwtIncompatible;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+
+/**
+ * Compiles the pattern sets in static fields marked with {@link Precompile} into DFAs at build time, so no
+ * derivative exploration needs to happen when an application starts. It can write each DFA either as a resource
+ * in the binary form of {@link DFA#writeTo(java.io.OutputStream)}, to be loaded with {@link #load(Class, String)},
+ * or as Java source for a class with one static DFA per field, which needs no reflection, resources, or code
+ * generation at runtime and so also works on GWT.
+ * <br>
+ * This is meant to be run from the build after the classes holding the patterns have been compiled, such as in the
+ * {@code process-classes} phase by the exec-maven-plugin's {@code java} goal, with the project's classes on the
+ * classpath. The arguments are an optional {@code -source} flag, an output directory, and then the fully-qualified
+ * names of the classes to scan. Resources go in the output directory under each class' package path and are named
+ * {@code SimpleName.FIELD.dfa}; source goes in the output directory under the package path as
+ * {@code SimpleNameDFAs.java}.
+ * <br>
+ * padre's own build doesn't run this, since the library has no patterns of its own to precompile; a project that
+ * does would add something like this to its pom, writing resources straight into its compiled classes:
+ * <pre>
+ * &lt;plugin&gt;
+ *     &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *     &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *     &lt;executions&gt;&lt;execution&gt;
+ *         &lt;phase&gt;process-classes&lt;/phase&gt;
+ *         &lt;goals&gt;&lt;goal&gt;java&lt;/goal&gt;&lt;/goals&gt;
+ *         &lt;configuration&gt;
+ *             &lt;mainClass&gt;padre.re.Precompiler&lt;/mainClass&gt;
+ *             &lt;arguments&gt;
+ *                 &lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;
+ *                 &lt;argument&gt;com.example.Patterns&lt;/argument&gt;
+ *             &lt;/arguments&gt;
+ *         &lt;/configuration&gt;
+ *     &lt;/execution&gt;&lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ * Generated source has to be compiled after the classes holding the patterns, so {@code -source} suits a separate
+ * module (or a GWT build) that adds the output directory as a source root, such as with the build-helper-maven-plugin.
+ */
+@GwtIncompatible
+public final class Precompiler {
+    /**
+     * The longest String literal, in chars, that generated source will contain.
+     */
+    private static final int CHUNK = 8192;
+
+    private Precompiler()
+    {
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int a = 0;
+        boolean source = false;
+        if(args.length > 0 && "-source".equals(args[0]))
+        {
+            source = true;
+            a++;
+        }
+        if(args.length - a < 2)
+        {
+            System.err.println("Usage: Precompiler [-source] outputDirectory className...");
+            System.exit(1);
+        }
+        File output = new File(args[a++]);
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if(loader == null)
+            loader = Precompiler.class.getClassLoader();
+        for (; a < args.length; a++) {
+            Class<?> owner = Class.forName(args[a], true, loader);
+            if(source)
+                writeSource(owner, output);
+            else
+                writeResources(owner, output);
+        }
+    }
+
+    /**
+     * Gets the RE values in a static field marked with {@link Precompile}.
+     * @param field a static field holding an RE or an RE array
+     * @return the patterns in field, in order
+     * @throws IllegalArgumentException if field is not static or doesn't hold an RE or RE array
+     */
+    public static RE[] patterns(Field field) throws IllegalAccessException
+    {
+        if(!Modifier.isStatic(field.getModifiers()))
+            throw new IllegalArgumentException("Field " + field + " must be static to be precompiled");
+        field.setAccessible(true);
+        Object value = field.get(null);
+        if(value instanceof RE)
+            return new RE[]{(RE) value};
+        if(value instanceof RE[])
+            return (RE[]) value;
+        throw new IllegalArgumentException("Field " + field + " must hold an RE or RE[] to be precompiled");
+    }
+
+    /**
+     * Compiles every field of owner marked with {@link Precompile} and writes each as a binary resource under output.
+     * @param owner a class with fields marked with Precompile
+     * @param output the root directory for resources, such as {@code target/classes}
+     * @throws IOException if a file can't be written
+     */
+    public static void writeResources(Class<?> owner, File output) throws IOException, IllegalAccessException
+    {
+        File dir = packageDirectory(owner, output);
+        for (Field field : owner.getDeclaredFields()) {
+            if(!field.isAnnotationPresent(Precompile.class))
+                continue;
+            DFA dfa = DFA.compile(patterns(field));
+            FileOutputStream out = new FileOutputStream(new File(dir, owner.getSimpleName() + '.' + field.getName() + ".dfa"));
+            try {
+                dfa.writeTo(out);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Compiles every field of owner marked with {@link Precompile} and writes a Java source file, in the same package
+     * as owner, with one {@code public static final DFA} per field that has the same name as that field.
+     * @param owner a class with fields marked with Precompile
+     * @param output the root directory for generated source
+     * @throws IOException if the file can't be written
+     */
+    public static void writeSource(Class<?> owner, File output) throws IOException, IllegalAccessException
+    {
+        File dir = packageDirectory(owner, output);
+        String name = owner.getSimpleName() + "DFAs";
+        StringBuilder sb = new StringBuilder(4096);
+        Package pkg = owner.getPackage();
+        if(pkg != null && pkg.getName().length() > 0)
+            sb.append("package ").append(pkg.getName()).append(";\n\n");
+        sb.append("import padre.re.DFA;\n\n/**\n * Generated by padre.re.Precompiler from ").append(owner.getName())
+                .append("; do not edit.\n */\npublic final class ").append(name).append(" {\n    private ")
+                .append(name).append("() {\n    }\n");
+        for (Field field : owner.getDeclaredFields()) {
+            if(!field.isAnnotationPresent(Precompile.class))
+                continue;
+            char[] chars = DFA.compile(patterns(field)).toChars();
+            sb.append("\n    public static final DFA ").append(field.getName()).append(" = DFA.fromChars(");
+            for (int start = 0; start < chars.length; start += CHUNK) {
+                sb.append(start == 0 ? "\n            \"" : ",\n            \"");
+                for (int i = start, n = Math.min(chars.length, start + CHUNK); i < n; i++) {
+                    char c = chars[i];
+                    // unicode escapes are replaced before the source is tokenized, so a line break, quote or
+                    // backslash written as one would end or break the literal; those, and the other chars below
+                    // ' ', get a three-digit octal escape instead, which can't run into a digit after it
+                    if(c == '"' || c == '\\')
+                        sb.append('\\').append(c);
+                    else if(c >= ' ' && c < 0x7F)
+                        sb.append(c);
+                    else if(c < 0x80)
+                        sb.append('\\').append(Integer.toOctalString(0x200 | c), 1, 4);
+                    else
+                        sb.append("\\u").append(Integer.toHexString(0x10000 | c), 1, 5);
+                }
+                sb.append('"');
+            }
+            sb.append(");\n");
+        }
+        sb.append("}\n");
+        Writer out = new OutputStreamWriter(new FileOutputStream(new File(dir, name + ".java")), "UTF-8");
+        try {
+            out.write(sb.toString());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Loads the DFA that {@link #writeResources(Class, File)} wrote for the given field of owner, or compiles the
+     * field's patterns now if the resource can't be found (such as when the build didn't run the precompiler).
+     * @param owner the class that declares the field
+     * @param fieldName the name of a static field marked with {@link Precompile}
+     * @return a DFA for the field's patterns
+     */
+    public static DFA load(Class<?> owner, String fieldName)
+    {
+        InputStream in = owner.getResourceAsStream(owner.getSimpleName() + '.' + fieldName + ".dfa");
+        try {
+            if(in != null)
+            {
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) >= 0)
+                        bytes.write(buffer, 0, read);
+                    return DFA.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+                } finally {
+                    in.close();
+                }
+            }
+            return DFA.compile(patterns(owner.getDeclaredField(fieldName)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read precompiled DFA for " + owner.getName() + '.' + fieldName, e);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("No field " + fieldName + " in " + owner.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Could not read field " + fieldName + " in " + owner.getName(), e);
+        }
+    }
+
+    private static File packageDirectory(Class<?> owner, File output) throws IOException
+    {
+        Package pkg = owner.getPackage();
+        File dir = (pkg == null || pkg.getName().length() == 0) ? output
+                : new File(output, pkg.getName().replace('.', File.separatorChar));
+        if(!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Could not create directory " + dir);
+        return dir;
+    }
+}
@@ -1,5 +1,6 @@
 package padre.re;
 
+import padre.ds.CodePointSet;
 import padre.ds.ComBit;
 import padre.ds.GenericSet;
 
@@ -319,6 +320,9 @@ public interface RE {
         public Multiple(char... glyphs){
             this.glyphs = new ComBit(glyphs);
         }
+        public Multiple(ComBit glyphs){
+            this.glyphs = glyphs;
+        }
         /**
          * Gets the set of all chars (in the Unicode BMP) that this can match, as a compressed bitset (ComBit).
          *
@@ -396,6 +400,142 @@ public interface RE {
         }
     }
 
+    /**
+     * Matches one Unicode code point from a CodePointSet, which may include supplementary code points above the BMP.
+     * Since input is read one UTF-16 char at a time, a supplementary code point is matched as a high surrogate followed
+     * by a low surrogate; code points in the BMP are matched as one char, just like Multiple, so BMP-only sets and
+     * BMP-only input don't pay anything extra.
+     */
+    class CodePoints implements RE
+    {
+        public final CodePointSet codePoints;
+        /**
+         * The part of codePoints in the BMP.
+         */
+        public final ComBit bmp;
+        /**
+         * Indexed by (high surrogate - 0xD800), holds the Multiple of low surrogates that can follow that high surrogate,
+         * or null if it can't start a code point in codePoints.
+         */
+        private final RE[] lows;
+        private final ComBit sigma;
+        public CodePoints(CodePointSet codePoints)
+        {
+            this.codePoints = codePoints;
+            bmp = codePoints.bmp();
+            lows = new RE[1024];
+            if(codePoints.hasSupplementary())
+            {
+                ComBit[] bits = codePoints.surrogateLows();
+                ComBit highs = new ComBit(16);
+                for (int h = 0; h < 1024; h++) {
+                    if(bits[h] == null)
+                        continue;
+                    // high surrogates that allow the same lows share one ComBit, so they can share one Multiple too
+                    lows[h] = (h > 0 && bits[h] == bits[h - 1]) ? lows[h - 1] : new Multiple(bits[h]);
+                    highs.or(new ComBit(new char[]{(char) (0xD800 + h)}));
+                }
+                sigma = ComBit.union(bmp, highs);
+            }
+            else
+                sigma = bmp;
+        }
+
+        /**
+         * Gets the Multiple of low surrogates that can follow the given high surrogate, or null if none can.
+         * @param high a high surrogate, from 0xD800 to 0xDBFF inclusive
+         * @return the RE that matches the second half of a surrogate pair starting with high, or null
+         */
+        public RE lowsAfter(char high)
+        {
+            return (high >= '\uD800' && high <= '\uDBFF') ? lows[high - 0xD800] : null;
+        }
+
+        /**
+         * Gets the set of all chars (in the Unicode BMP) that this can match as its first char, as a compressed bitset
+         * (ComBit); this includes the high surrogates of any supplementary code points.
+         *
+         * @return the compressed bitset representing all chars this can match first
+         */
+        @Override
+        public ComBit sigma() {
+            return sigma;
+        }
+
+        /**
+         * True if this will consume further input, false if it is satisfied after consuming one char.
+         *
+         * @return true if this is greedy, false if it is not
+         */
+        @Override
+        public boolean isGreedy() {
+            return false;
+        }
+
+        /**
+         * True iff the RE is Phi or is a different RE that can be treated as equivalent to Phi because its rules
+         * prevent anything from matching.
+         *
+         * @return true if the RE cannot match anything, false otherwise.
+         */
+        @Override
+        public boolean isPhi() {
+            return codePoints.cardinality == 0;
+        }
+
+        /**
+         * False if the RE can potentially be unable to match the empty string, true otherwise.
+         *
+         * @return false if the RE can potentially be unable to match the empty string, true otherwise
+         */
+        @Override
+        public boolean isEpsilon() {
+            return false;
+        }
+
+        /**
+         * Very similar to isEpsilon except in how it handles choice and some Kleene star operations.
+         *
+         * @return true if the RE can match the empty string, false if it won't match an empty string
+         */
+        @Override
+        public boolean posEpsilon() {
+            return false;
+        }
+
+        /**
+         * Finds unnecessary sections of an RE that slow down processing and cleans them up where possible; a set with
+         * no supplementary code points becomes a plain Multiple.
+         *
+         * @return a new RE that should be equivalent to this in behavior but no more complex
+         */
+        @Override
+        public RE simplify() {
+            if(codePoints.cardinality == 0)
+                return soloPhi;
+            if(!codePoints.hasSupplementary())
+                return new Multiple(bmp);
+            return this;
+        }
+
+        /**
+         * Finds the set of RE values that can follow this RE when it is given the char c. A high surrogate that starts
+         * a supplementary code point in this is followed by the low surrogates that complete it.
+         *
+         * @param c the char that should be checked to see what can follow it
+         * @return the Set of RE values that can follow this combination of RE and char
+         */
+        @Override
+        public GenericSet<RE> partialDerive(char c) {
+            final RE next = lowsAfter(c);
+            if(next == null)
+                return bmp.contains(c) ? matchEmpty : null;
+            if(bmp.contains(c))
+                return GenericSet.with(soloEmpty, next);
+            return GenericSet.with(next);
+        }
+    }
+
     class Any implements RE
     {
         public Any()
@@ -503,11 +643,9 @@ public interface RE {
                 return noBits;
             if(pLen == 1)
                 return new ComBit(regs[0].sigma());
-            if(pLen == 2)
-                return ComBit.union(regs[0].sigma(), regs[1].sigma());
             ComBit working = ComBit.union(regs[0].sigma(), regs[1].sigma());
             for (int i = 2; i < pLen; i++) {
-                working = ComBit.union(working, regs[i].sigma());
+                working.or(regs[i].sigma());
             }
             return working;
         }
@@ -653,11 +791,9 @@ public interface RE {
                 return noBits;
             if(pLen == 1)
                 return new ComBit(regs[0].sigma());
-            if(pLen == 2)
-                return ComBit.union(regs[0].sigma(), regs[1].sigma());
             ComBit working = ComBit.union(regs[0].sigma(), regs[1].sigma());
             for (int i = 2; i < pLen; i++) {
-                working = ComBit.union(working, regs[i].sigma());
+                working.or(regs[i].sigma());
             }
             return working;
 
@@ -768,11 +904,11 @@ public interface RE {
             int rLen;
             if(regs == null || (rLen = regs.length) <= 0)
                 return nilMatch;
-            GenericSet<RE> fin = new GenericSet<RE>(64), res;
             if(rLen == 1)
             {
                 return regs[0].partialDerive(c);
             }
+            GenericSet<RE> fin = new GenericSet<RE>(64), res;
             boolean[] eps = new boolean[rLen - 1];
             for (int i = 0; i < rLen - 1; i++) {
                 eps[i] = regs[i].posEpsilon();
@@ -0,0 +1,561 @@
+package padre.re;
+
+import padre.ds.CodePointSet;
+import padre.ds.ComBit;
+import padre.ds.IntVLA;
+import padre.ds.OMap;
+
+/**
+ * A flat, array-backed form of one or more RE trees, meant to be used by the hot derivative loop instead of calling
+ * {@link RE#partialDerive(char)}, {@link RE#posEpsilon()} and {@link RE#isPhi()} through the RE interface. Every node
+ * is stored as three ints in {@link #code}: an opcode word (which also holds the node's precomputed flags) and two
+ * operands. Nodes are hash-consed, so structurally equal sub-expressions share one int id, and the sets of partial
+ * derivatives produced by {@link #derive(int, char, IntVLA)} are just lists of those ids. Derivation is a single
+ * switch over the opcode, which keeps the call sites monomorphic and the node data dense in memory.
+ * <br>
+ * Choice and Sequence are binary here; an n-ary RE.Choice or RE.Sequence is lowered to a right-nested chain of them.
+ * The smart constructors {@link #choice(boolean, int, int)}, {@link #sequence(int, int)} and {@link #star(boolean, int)}
+ * drop Phi and Empty operands where that can't change what is matched, so derivatives stay small.
+ */
+public class REProgram {
+    /**
+     * Opcodes stored in the low byte of a node's opcode word.
+     */
+    public static final int PHI = 0, EMPTY = 1, SINGLE = 2, MULTIPLE = 3, ANY = 4, CHOICE = 5, SEQUENCE = 6, STAR = 7;
+    /**
+     * Flag bits stored above the opcode in a node's opcode word. GREEDY is given by the RE; the rest are computed
+     * when the node is created.
+     */
+    public static final int GREEDY = 0x100, NULLABLE = 0x200, IS_PHI = 0x400, IS_EPSILON = 0x800, HAS_GREEDY = 0x1000;
+    /**
+     * The fixed node ids for Phi, Empty and Any, which are created first by every REProgram.
+     */
+    public static final int PHI_NODE = 0, EMPTY_NODE = 1, ANY_NODE = 2;
+    /**
+     * Compile flag for {@link #flags}: chars and character classes are closed over case folding as they are lowered,
+     * using {@link CaseFolding}, so matching ignores case without changing the input.
+     */
+    public static final int CASE_INSENSITIVE = 1;
+
+    /**
+     * The node storage; node n has its opcode word at {@code code[n * 3]} and its operands after that.
+     * Only the first {@code size * 3} items are meaningful.
+     */
+    public int[] code;
+    /**
+     * The number of nodes in this REProgram.
+     */
+    public int size;
+    /**
+     * The character classes referred to by MULTIPLE nodes; only the first {@code classCount} items are meaningful.
+     */
+    public ComBit[] classes;
+    public int classCount;
+    /**
+     * Compile flags, such as {@link #CASE_INSENSITIVE}, that affect how later calls to {@link #lower(RE)} treat
+     * their RE trees.
+     */
+    public int flags;
+
+    private int[] table;
+    private int tableMask;
+    private final OMap<ComBit, Integer> classIndices;
+
+    public REProgram()
+    {
+        this(64);
+    }
+
+    /**
+     * Creates an REProgram that can hold about the given number of nodes before growing.
+     * @param expectedNodes how many nodes this should be able to hold before resizing
+     */
+    public REProgram(int expectedNodes)
+    {
+        this(expectedNodes, 0);
+    }
+
+    /**
+     * Creates an REProgram that can hold about the given number of nodes before growing, with the given compile flags.
+     * @param expectedNodes how many nodes this should be able to hold before resizing
+     * @param flags compile flags, such as {@link #CASE_INSENSITIVE}, or 0 for none
+     */
+    public REProgram(int expectedNodes, int flags)
+    {
+        this.flags = flags;
+        expectedNodes = Math.max(expectedNodes, 8);
+        code = new int[expectedNodes * 3];
+        classes = new ComBit[8];
+        classIndices = new OMap<ComBit, Integer>(8);
+        int tableSize = Integer.highestOneBit(expectedNodes) << 2;
+        table = new int[tableSize];
+        tableMask = tableSize - 1;
+        intern(PHI | IS_PHI, 0, 0);
+        intern(EMPTY | NULLABLE | IS_EPSILON, 0, 0);
+        intern(ANY, 0, 0);
+    }
+
+    /**
+     * Convenience method that lowers a single RE into a new REProgram; the root of the RE will be the last node.
+     * @param re an RE to lower
+     * @return a new REProgram containing re
+     */
+    public static REProgram compile(RE re)
+    {
+        REProgram program = new REProgram();
+        program.lower(re);
+        return program;
+    }
+
+    /**
+     * Adds the given RE tree to this REProgram and returns the node id of its root. Calling this more than once adds
+     * more trees, sharing any nodes they have in common.
+     * @param re an RE to lower; null is treated as Phi
+     * @return the node id of the root of re
+     */
+    public int lower(RE re)
+    {
+        if(re == null || re instanceof RE.Phi)
+            return PHI_NODE;
+        if(re instanceof RE.Empty)
+            return EMPTY_NODE;
+        if(re instanceof RE.Any)
+            return ANY_NODE;
+        if(re instanceof RE.Single) {
+            final char glyph = ((RE.Single) re).glyph;
+            if((flags & CASE_INSENSITIVE) != 0)
+            {
+                ComBit folded = CaseFolding.close(glyph);
+                if(folded.cardinality > 1)
+                    return multiple(folded);
+            }
+            return single(glyph);
+        }
+        if(re instanceof RE.Multiple) {
+            final ComBit glyphs = ((RE.Multiple) re).glyphs;
+            return multiple((flags & CASE_INSENSITIVE) != 0 ? CaseFolding.close(glyphs) : glyphs);
+        }
+        if(re instanceof RE.CodePoints) {
+            CodePointSet cps = ((RE.CodePoints) re).codePoints;
+            if((flags & CASE_INSENSITIVE) != 0)
+                cps = cps.union(CodePointSet.from(CaseFolding.close(cps.bmp())));
+            return codePoints(cps);
+        }
+        if(re instanceof RE.Star) {
+            RE.Star st = (RE.Star) re;
+            // a Star with nothing to repeat can only match the empty string
+            if(st.re == null)
+                return EMPTY_NODE;
+            return star(st.greedy, lower(st.re));
+        }
+        if(re instanceof RE.Choice) {
+            RE.Choice ch = (RE.Choice) re;
+            RE[] regs = ch.regs;
+            // an empty Choice has nothing that can match, just like Phi
+            if(regs == null || regs.length == 0)
+                return PHI_NODE;
+            int node = lower(regs[regs.length - 1]);
+            for (int i = regs.length - 2; i >= 0; i--) {
+                node = choice(ch.greedy, lower(regs[i]), node);
+            }
+            return node;
+        }
+        if(re instanceof RE.Sequence) {
+            RE[] regs = ((RE.Sequence) re).regs;
+            if(regs == null || regs.length == 0)
+                return PHI_NODE;
+            int node = lower(regs[regs.length - 1]);
+            for (int i = regs.length - 2; i >= 0; i--) {
+                node = sequence(lower(regs[i]), node);
+            }
+            return node;
+        }
+        throw new IllegalArgumentException("Unknown RE type: " + re.getClass().getName());
+    }
+
+    /**
+     * Gets the node matching exactly the char glyph.
+     * @param glyph the char to match
+     * @return a node id
+     */
+    public int single(char glyph)
+    {
+        return intern(SINGLE, glyph, 0);
+    }
+
+    /**
+     * Gets the node matching any one char in glyphs. The class is stored as the interned ComBit equal to glyphs, so
+     * classes with the same contents share one index however they were built, and glyphs itself is never kept.
+     * @param glyphs the chars to match, as a ComBit
+     * @return a node id
+     */
+    public int multiple(ComBit glyphs)
+    {
+        if(glyphs.cardinality == 0)
+            return PHI_NODE;
+        if(glyphs.cardinality == 0x10000)
+            return ANY_NODE;
+        glyphs = ComBit.intern(glyphs);
+        Integer idx = classIndices.get(glyphs);
+        if(idx == null)
+        {
+            if(classCount == classes.length)
+            {
+                ComBit[] nc = new ComBit[classCount << 1];
+                System.arraycopy(classes, 0, nc, 0, classCount);
+                classes = nc;
+            }
+            idx = classCount;
+            classes[classCount++] = glyphs;
+            classIndices.put(glyphs, idx);
+        }
+        return intern(MULTIPLE, idx, 0);
+    }
+
+    /**
+     * Gets the node matching any one code point in set, which may include supplementary code points. The BMP part is
+     * one MULTIPLE node; each group of high surrogates that allow the same low surrogates becomes a SEQUENCE of a
+     * MULTIPLE of those highs and a MULTIPLE of the lows, so only sets that need surrogate pairs get them.
+     * @param set the code points to match
+     * @return a node id
+     */
+    public int codePoints(CodePointSet set)
+    {
+        int node = multiple(set.bmp());
+        if(!set.hasSupplementary())
+            return node;
+        ComBit[] lows = set.surrogateLows();
+        boolean[] done = new boolean[1024];
+        IntVLA highs = new IntVLA(16);
+        for (int h = 0; h < 1024; h++) {
+            if(done[h] || lows[h] == null)
+                continue;
+            highs.clear();
+            for (int g = h; g < 1024; g++) {
+                if(lows[g] == lows[h])
+                {
+                    done[g] = true;
+                    if(highs.size > 0 && highs.items[highs.size - 1] == 0xD800 + g)
+                        highs.items[highs.size - 1]++;
+                    else
+                    {
+                        highs.add(0xD800 + g);
+                        highs.add(0xD801 + g);
+                    }
+                }
+            }
+            node = choice(false, node, sequence(multiple(ComBit.fromRuns(highs.items, 0, highs.size)),
+                    multiple(lows[h])));
+        }
+        return node;
+    }
+
+    /**
+     * Gets the node that matches either left or right, removing Phi operands.
+     * @param greedy the greediness of the choice
+     * @param left a node id
+     * @param right a node id
+     * @return a node id
+     */
+    public int choice(boolean greedy, int left, int right)
+    {
+        if(left == PHI_NODE || left == right)
+            return right;
+        if(right == PHI_NODE)
+            return left;
+        int lw = code[left * 3], rw = code[right * 3];
+        return intern(CHOICE | (greedy ? GREEDY | HAS_GREEDY : 0)
+                | (lw & rw & IS_EPSILON) | ((lw | rw) & (NULLABLE | HAS_GREEDY)), left, right);
+    }
+
+    /**
+     * Gets the node that matches left followed by right, removing Empty operands and collapsing to Phi if either
+     * operand is Phi.
+     * @param left a node id
+     * @param right a node id
+     * @return a node id
+     */
+    public int sequence(int left, int right)
+    {
+        if(left == PHI_NODE || right == PHI_NODE)
+            return PHI_NODE;
+        if(left == EMPTY_NODE)
+            return right;
+        if(right == EMPTY_NODE)
+            return left;
+        int lw = code[left * 3], rw = code[right * 3];
+        return intern(SEQUENCE | (lw & rw & (NULLABLE | IS_EPSILON)) | ((lw | rw) & HAS_GREEDY), left, right);
+    }
+
+    /**
+     * Gets the node that matches inner repeated zero or more times.
+     * @param greedy the greediness of the repetition
+     * @param inner a node id
+     * @return a node id
+     */
+    public int star(boolean greedy, int inner)
+    {
+        int iw = code[inner * 3];
+        if((iw & (IS_PHI | IS_EPSILON)) != 0)
+            return EMPTY_NODE;
+        if((iw & 0xFF) == STAR)
+            return inner;
+        return intern(STAR | NULLABLE | (greedy ? GREEDY | HAS_GREEDY : 0) | (iw & HAS_GREEDY), inner, 0);
+    }
+
+    public int op(int node)
+    {
+        return code[node * 3] & 0xFF;
+    }
+
+    public int left(int node)
+    {
+        return code[node * 3 + 1];
+    }
+
+    public int right(int node)
+    {
+        return code[node * 3 + 2];
+    }
+
+    /**
+     * Equivalent to {@link RE#posEpsilon()}; true if the node can match the empty string.
+     * @param node a node id
+     * @return true if node can match the empty string
+     */
+    public boolean nullable(int node)
+    {
+        return (code[node * 3] & NULLABLE) != 0;
+    }
+
+    /**
+     * Equivalent to {@link RE#isPhi()}; true if the node cannot match anything.
+     * @param node a node id
+     * @return true if node cannot match anything, including the empty string
+     */
+    public boolean isPhi(int node)
+    {
+        return (code[node * 3] & IS_PHI) != 0;
+    }
+
+    /**
+     * Equivalent to {@link RE#isEpsilon()}; true if the node can only match the empty string.
+     * @param node a node id
+     * @return true if node matches the empty string and nothing else
+     */
+    public boolean isEpsilon(int node)
+    {
+        return (code[node * 3] & IS_EPSILON) != 0;
+    }
+
+    /**
+     * Equivalent to {@link RE#isGreedy()}; true if the node or any node it contains is greedy.
+     * @param node a node id
+     * @return true if node is greedy
+     */
+    public boolean isGreedy(int node)
+    {
+        return (code[node * 3] & HAS_GREEDY) != 0;
+    }
+
+    /**
+     * Finds the partial derivatives of node with respect to c and appends their node ids to out; this is the
+     * flat-array counterpart to {@link RE#partialDerive(char)}. No ids are appended if node can't consume c. The
+     * appended ids may contain duplicates; use {@link #deriveAll(int[], int, int, char, IntVLA)} to get a
+     * sorted, duplicate-free set.
+     * @param node the node id to derive
+     * @param c the char to consume
+     * @param out an IntVLA that will have node ids appended to it
+     */
+    public void derive(int node, char c, IntVLA out)
+    {
+        final int w = code[node * 3];
+        switch (w & 0xFF)
+        {
+            case SINGLE:
+                if(code[node * 3 + 1] == c)
+                    out.add(EMPTY_NODE);
+                break;
+            case MULTIPLE:
+                if(classes[code[node * 3 + 1]].contains(c))
+                    out.add(EMPTY_NODE);
+                break;
+            case ANY:
+                out.add(EMPTY_NODE);
+                break;
+            case CHOICE:
+                derive(code[node * 3 + 1], c, out);
+                derive(code[node * 3 + 2], c, out);
+                break;
+            case SEQUENCE: {
+                final int left = code[node * 3 + 1], right = code[node * 3 + 2], start = out.size;
+                derive(left, c, out);
+                final int[] items = out.items;
+                for (int i = start, n = out.size; i < n; i++) {
+                    items[i] = sequence(items[i], right);
+                }
+                if((code[left * 3] & NULLABLE) != 0)
+                    derive(right, c, out);
+                break;
+            }
+            case STAR: {
+                final int start = out.size;
+                derive(code[node * 3 + 1], c, out);
+                final int[] items = out.items;
+                for (int i = start, n = out.size; i < n; i++) {
+                    items[i] = sequence(items[i], node);
+                }
+                break;
+            }
+            // PHI and EMPTY can't consume anything
+        }
+    }
+
+    /**
+     * Derives every node in the given set with respect to c and appends the sorted, duplicate-free union of their
+     * partial derivatives to out, starting at out's current size.
+     * @param nodes an array of node ids
+     * @param offset the first index in nodes to use
+     * @param length how many node ids to use from nodes
+     * @param c the char to consume
+     * @param out an IntVLA that will have node ids appended to it
+     * @return the number of node ids appended to out
+     */
+    public int deriveAll(int[] nodes, int offset, int length, char c, IntVLA out)
+    {
+        final int start = out.size;
+        for (int i = offset, n = offset + length; i < n; i++) {
+            derive(nodes[i], c, out);
+        }
+        final int[] items = out.items;
+        java.util.Arrays.sort(items, start, out.size);
+        int j = start;
+        for (int i = start, n = out.size; i < n; i++) {
+            if(j == start || items[j - 1] != items[i])
+                items[j++] = items[i];
+        }
+        out.size = j;
+        return j - start;
+    }
+
+    /**
+     * Gets the set of chars that the given node could consume next, as a new ComBit.
+     * @param node a node id
+     * @return a new ComBit containing every char that node can consume as its first char
+     */
+    public ComBit first(int node)
+    {
+        final int w = code[node * 3];
+        switch (w & 0xFF)
+        {
+            case SINGLE:
+                return new ComBit(new char[]{(char) code[node * 3 + 1]});
+            case MULTIPLE:
+                return classes[code[node * 3 + 1]].copy();
+            case ANY:
+                return ComBit.all();
+            case CHOICE:
+                return first(code[node * 3 + 1]).or(first(code[node * 3 + 2]));
+            case SEQUENCE: {
+                final int left = code[node * 3 + 1];
+                if((code[left * 3] & NULLABLE) != 0)
+                    return first(left).or(first(code[node * 3 + 2]));
+                return first(left);
+            }
+            case STAR:
+                return first(code[node * 3 + 1]);
+            default:
+                return ComBit.none();
+        }
+    }
+
+    private int intern(int word, int left, int right)
+    {
+        int h = mix(word & (0xFF | GREEDY), left, right), idx = h & tableMask, found;
+        final int[] table = this.table, code = this.code;
+        while ((found = table[idx]) != 0)
+        {
+            int at = (found - 1) * 3;
+            if(((code[at] ^ word) & (0xFF | GREEDY)) == 0 && code[at + 1] == left && code[at + 2] == right)
+                return found - 1;
+            idx = (idx + 1) & tableMask;
+        }
+        if(size * 3 == code.length)
+        {
+            int[] nc = new int[code.length << 1];
+            System.arraycopy(code, 0, nc, 0, code.length);
+            this.code = nc;
+        }
+        int at = size * 3;
+        this.code[at] = word;
+        this.code[at + 1] = left;
+        this.code[at + 2] = right;
+        table[idx] = ++size;
+        if(size << 1 > tableMask)
+            rehash();
+        return size - 1;
+    }
+
+    private void rehash()
+    {
+        final int[] code = this.code;
+        int tableSize = table.length << 1, mask = tableSize - 1;
+        int[] nt = new int[tableSize];
+        for (int n = 0; n < size; n++) {
+            int at = n * 3, idx = mix(code[at] & (0xFF | GREEDY), code[at + 1], code[at + 2]) & mask;
+            while (nt[idx] != 0)
+                idx = (idx + 1) & mask;
+            nt[idx] = n + 1;
+        }
+        table = nt;
+        tableMask = mask;
+    }
+
+    private static int mix(int word, int left, int right)
+    {
+        int h = word * 0x9E3779B9 + left;
+        h = (h ^ h >>> 16) * 0x85EBCA6B + right;
+        h = (h ^ h >>> 13) * 0xC2B2AE35;
+        return h ^ h >>> 16;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("REProgram{");
+        for (int n = 0; n < size; n++) {
+            if(n > 0) sb.append(", ");
+            sb.append(n).append('=');
+            toString(n, sb);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Appends a readable form of the given node to sb.
+     * @param node a node id
+     * @param sb a StringBuilder to append to
+     * @return sb, for chaining
+     */
+    public StringBuilder toString(int node, StringBuilder sb)
+    {
+        final int w = code[node * 3];
+        switch (w & 0xFF)
+        {
+            case PHI: return sb.append("Phi");
+            case EMPTY: return sb.append("Empty");
+            case ANY: return sb.append("Any");
+            case SINGLE: return sb.append('\'').append((char) code[node * 3 + 1]).append('\'');
+            case MULTIPLE: return sb.append('[').append(classes[code[node * 3 + 1]].contents()).append(']');
+            case CHOICE:
+                sb.append('(');
+                toString(code[node * 3 + 1], sb).append('|');
+                return toString(code[node * 3 + 2], sb).append(')');
+            case SEQUENCE:
+                sb.append('(');
+                toString(code[node * 3 + 1], sb).append(' ');
+                return toString(code[node * 3 + 2], sb).append(')');
+            default:
+                return toString(code[node * 3 + 1], sb).append((w & GREEDY) != 0 ? "*" : "*?");
+        }
+    }
+}
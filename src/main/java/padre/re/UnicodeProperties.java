@@ -0,0 +1,582 @@
+package padre.re;
+
+import padre.ds.CodePointSet;
+import padre.ds.ComBit;
+import padre.ds.IntVLA;
+
+/**
+ * Unicode general categories (such as {@code Lu} or {@code L}) and scripts (such as {@code Latin} or {@code Han}), for
+ * use like {@code \p{...}} in other regex engines. Every property is stored as a compact String of run lengths that
+ * is only decoded the first time that property is requested, so nothing needs to scan {@link Character#getType(int)}
+ * over every code point at runtime, and the results are the same on every JVM (and on GWT) no matter which version of
+ * Unicode the runtime knows. The tables match Unicode 13.0.
+ * <br>
+ * Each String holds alternating gaps and lengths of the ranges in one property, in code point order, each offset by
+ * 0x20 so short runs are printable; values that don't fit in 15 bits use two chars, the first with its top bit set.
+ * FOLD_GROUPS, the groups of chars that {@link CaseFolding} treats as the same letter, is stored the same way.
+ */
+public final class UnicodeProperties {
+    private UnicodeProperties()
+    {
+    }
+
+    static final String[] CATEGORY_NAMES = {
+            "Lu", "Ll", "Lt", "Lm", "Lo", "Mn", "Me", "Mc", "Nd", "Nl", "No", "Zs", "Zl", "Zp", "Cc", "Cf",
+            "Co", "Cs", "Pd", "Ps", "Pe", "Pc", "Po", "Sm", "Sc", "Sk", "So", "Pi", "Pf"
+    };
+    static final String[] CATEGORY_RUNS = {
+            "a:\u00857!'A!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!\"!!!!!!!!!!!!!!!\"!!!!!!!!!!"
+                    + "!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!\"!!!!#\"!!!\"!#\"$!\"!##\"!\"!!!!!\"!!\"!!\"!#!!!\"#!'!\"!"
+                    + "\"!\"!!!!!!!!!!!!!!!\"!!!!!!!!!!!!!!!!!\"!\"!!#!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!!!!!!!!'\"!\"\"!!$!!!!!!!!\u0141!!!#!(!&!!#!!!\"!1!)C!\"##!!!!!!!!!!!!!!!!!!!!!!!%!\"!!\"\"SP!"
+                    + "!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!)!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!\"!!!!!!!"
+                    + "!!!!!\"!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!!!!!\"F\u0B69F!!%!\u02F2v\u08BAK\"#\u0160!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + ")!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!)((&*((((&+!!!!!!!((h$,$,$,%+$\u0126!$!##\"#\"!#%&!!!!!!$\"$*\"%!]!\u0A9COQ!!#\"!!!!!!$!!\"!(#"
+                    + "!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!(!!!$!\u796D!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!3!!!!!!!!!!!!!!!!!!!!!!!!!!!\u00A7!!!"
+                    + "!!!!!!!!!!#!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!*!!!!\"!!!!!!!!$!!!\"!!!"
+                    + "#!!!!!!!!!!!!!!!!!!!!%!%!!!!!!!!!!#!!$!!K!\u574B:\u04E5H\u00A8D\u07CCS\u0C0D@\u55A0@\u65C0::::::"
+                    + "!!\"\"!\"\"\"$!(:::\"!$\"(!';\"!$!%!!#';:::::::::::>9A9A9A9A9A!\u1155B",
+            "\u0081:Z!I8!(!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!\"!!!!!!!!!!!!!!!\"!!!!!!!!!"
+                    + "!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!\"!!!!#\"!!!\"!#\"$!\"!##\"!\"!!!!!\"!!\"!!\"!#!!!\"\"\"#&!"
+                    + "\"!\"!!!!!!!!!!!!!!!!\"!!!!!!!!!!!!!!!!!\"\"!!!#!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!!!!!!!!!'\"!\"\"!!$!!!!!!!!e!;\u00E1!!!#!##2!;C!\"##!!!!!!!!!!!!!!!!!!!!!!!%!!\"!\"\"SP!!!!!!!"
+                    + "!!!!!!!!!!!!!!!!!!!!!!!!!!!)!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!\"!!!!!!!!!!!!"
+                    + "\"!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!PI\u0B67K\"#\u0318&\u08A2)\u0097L_-!B\u0086!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!)!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!!)(&*((((&*((((.\"((((((%!\"&!##!\"($\"\"((*#!\"\u0132!#\"#!;!$!$!\"\"($$!U!\u0ACBO\"!#\"!!!!!"
+                    + "!$!!\"!&%!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!"
+                    + "!!!!!!!!!!!\"'!!!$!,F!!%!\u7933!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!3!!!!!!!!!!!!!!!!!!!"
+                    + "!!!!!!!!\u00A7!!!!!!!!!!!!#!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!(!!!!"
+                    + "\"!!!!!!!!!$!!!\"!!#!!!!!!!!!!!!!!!!!!!!%!%!!!!!!!!!!!#!$!!!K!#!\u0355K%)'p\u4F60',%\u0449:"
+                    + "\u04EDH\u00A8D\u07E4S\u0BED@\u55A0@\u65BA::'!2:::$!!!'!+:::::::::::::::::<<9!&:9!&:9!&:9!&:9!&!!"
+                    + "\u1176B",
+            "\u01E5!\"!\"!F!\u1DB5(((((,!/!O!",
+            "\u02D02$,.%'!!!\u00A5!%!\u01FE!\u0106!\u00C4\"\u012D\"$!?!)!#!\u0168!\u04F4!\u009F!\u0255!\u06FA"
+                    + "!\u008B!\u0283!\u01F0&\u00CE_-!BE\u02D1!-!0-\u0BFF\"\u0111!\u00DF!\u01F5!K%%!\u0081\"}#\u6F36!"
+                    + "\u0502&\u012E!\u0092!<\"\u0099)p!7!\u008F\"\u01F5!6!\u00A9!\u008C!5\"\u0087$)!\u5426!M\"\u6BC0$"
+                    + "\u046F-`\"!!\u7173'\u082D!",
+            "\u00CA!/!\u0120!$$\u00F0!\u035B;$$M@!*C\"!\u0083!!8\"*#\"!0!!>=y+!8A56J9'+U5!2\\V#!2!'*0/$(\"\""
+                    + "\"6!'!!#$#!0!-\"!#.\"*!(&$\"\"6!'!\"!\"!\"?$!!3#0)!#!6!'!\"!%#!2!/\"7!+(\"\"\"6!'!\"!%#!>\"!#/!1"
+                    + "!!&##!$#\"!!!\"#\"###,6!T(!#!7!0#!:#%\">!$(!#!7!*!%#!@!!\"/\"1)!#!I\"!0!%#(#8&%2#8!)!!\"'ZP!\",&"
+                    + "[\"!!!%!8!!!*!\")!\"%7$@!_(!D;%\u0093K4!0&$$#!#\"'#$-,!\u0091\u0169!$\"'!!!$\"I!$\"A!$\"'!!!$\"/"
+                    + "!Y!$\"cE0\u0091\u028C\"1!:%k&('-!$.2.2.-!#/TH!cC!U'%\"B!!%f*?Q>\"%+L$:V7)U\u00D0O1'W>-\"*L:DI#*>"
+                    + "\u0091$!&!\"#!\u045A$\u0C17X87)'!'!'!'!'!'!'!'\u0247!U!$v(!!z$!%K!~1@P0\u0220\u19E0`\u521D#5!"
+                    + "\u0497cH(\u012C$0*\"b!Qf\u00C9!\u0087!#'!#!$!7=T.R^&#!!\"+<*79='OM%\")*%!I7#!(40!&#!#R!!#\"\"%\""
+                    + "!!!8\"#+'!.&\"&\"&)'!'\u00B1C=\u2BC4,7$Q\u2124\u018E\"\u008Ac!!*!-!%!!!\"!\"!\u008CA\u018B2`\"VH"
+                    + ",\u0094%!\u00A7\u0089*!M\"?#&\"&\"&\"#C,!:!3!\"!/\".B\u009B\u01A5=#QO@-4!(&F*>\"D$(\u00A0n\u0082"
+                    + "H(T\u00BC\u0157)6*(\u00B8&\"!!L!\"#!\"7*7)?a3!\"*6*:fX&\"`!/$!#!=J=#=C(!<;V*6*3-2\u008Ei\u00D7D"
+                    + "\u017CJ&\"n=*!(6\u008A5;7,UkM@9:D=!\"!(C#!,P.$5!!!C2!9t'!!!$!/!*'OF(\"\"\"6!'!\"!%#!2!,%\u00BEU2"
+                    + "$4#>P4\"!!\u00D8OI$DP4![K-!g;\u0105L\u00F3(\"!\"(!\"!8/!!!~(\"G0!!!<!*H'!5!+N3!BY\u0127)!E1!Q>"
+                    + "\u0090'!\"!F5!9&!\"!@.!\u01673\u00DD!o\u03BA\u0106\u00E4\u0ADC\u044F\u0FF1\u0267\u21D9\u0259'?"
+                    + "\u0091>2PS5%3\u0390k%!\u00CF\u1818(\u04F6J)\u2317\u013FQ#1$(\u01AC\u0924\u008B%-#)'*\u2486MA!"
+                    + "\u0191L\u0534\u00E5\u055B$!;!\"!!\"!!*!$!!!!&!$!!!!!!#!\"!!\"!!!!!!!!!!\"!!\"$!'!$!$!!!*!1%#!%!1"
+                    + "\u1164\u8001\u26FEB\u1055+\u00FE\"\u16A2.\u1D51\u0C3F\u023E\u0602\u136B",
+            "\u0320\u0090\u0133%\u0129M!!!\"!\"!!h+P50!\u0085'\"&\"\"!$C!>;{+Z))!8$!)!#!%K#\u0097/!@W!!!$($!#"
+                    + "'*\"=!Z!$$(!4\":!\"\"Y!$\"$\"\"##!>\"#!+\"Y!$%!\"$!4\"6&!!Z!\"!!$(!'\"+\">!]!,!R!#!Y#%#!$'\"+\"="
+                    + "!Z!\"!&!%\"4\"<\"Y\"$$(!4\"=!h!'#!!z!\"',(\u0082!\")+&j\";!!!!!W.!%!\"%+!D)!\u0086$!&!\"\"\"9\"$"
+                    + "#0$-!\"\"&!/!\u02DF#\u03D2#=#=\">\"`\"!'(!\"+)!M#\u0097\"B!\u0096#$\")!&#\u00FB\"\"!Z!!'!!!!\"(&"
+                    + "*\"!P.!\"_$P!!%!!%!H),\"@$\"\"!#X!!\"#!!#Z(\"\"\u00B8#!-!'$!&!#\"\u00E6Z!%\u02F0-$!#,\u0C1E#"
+                    + "\u00AD!\u0080@\u024A$\u008B\"\u75F4!$*@\"p\"\u0130!#!$!9\"%!\u00B7\":2-!F(9+N#P!\"$\"\"G!c&\"\""
+                    + "\"\",!(!O!S!!#\"\"%\"!!J\"(!\u010E!\"!$!\u4F50!\u0301000\u03ED!\u0102!\u00B5%\u06A6#!\"%$H#$!"
+                    + "\u00C5\"\u025D$\u01A3\"\u00B9+\u00D0!V/X#Q$\"\"e#D%!(^!,\"T)*$\"!\u007F#\"!!\"&!\u00C0!#(5\"Y\"#"
+                    + "!E'#%\u00E3(\"#!!7!t&!!$\"!\"\u010E$&\"!\";\"u(\"!!\"\u008A!!!\"&!!\u0085#\"$!%\u0123)!\"\u0120"
+                    + "\"!!$!\u00B0$\"\"$!@*H&\"$(!)&\"#N-!\"\u01B6'!&!!r6\"'!\"!\"\u009A&#!!\"!'!!h\"#!!!\u017B\""
+                    + "\u4C1B%['\u0438!_$q!\u4CD8\"\u14E8#1(\"'>$\u00B4#\u07DBW$R(!.!6%!/\u0570'!1\"'!\"!%\u0125'\u01D5"
+                    + "$\u0600'\u008D'\u8018\u17D5\u0110",
+            "\u04A8\"\u1654!\u063E$!#\u8001\u05AB#",
+            "\u0923!W!\"#($!\"R\"Z#&\"\"\"*!K!Z#b!Z#(!!\"U\"Z!!!&\"\"\"*!\u0086\"!\"##!#*!I#]$]\"Z!!%\"\"!\")"
+                    + "\"K\"Z#%#!#*!J\"k#&(2\"\u016A\"_!\u00CB\"$!&!\"\"9\"*#\"'5\"\"&\"!*#\u0739!'(!\"\u017A$\"#$\"!&"
+                    + "\u0100\"Z!!!)!!\"(&\u00B1!P!%!!%!\"]!>!$\"\"!\\!\"#!!#\"P((\"\u00CB!5!\u1356\"\u7813\"\"!x\"R0"
+                    + "\u00AE\"O!P\"$\"\"#\u008E\"\"\"8!M!!!\u008D!\"\"%!\u010D\"!\"!\"!!\u6433!!!\u009F!M#$\"\u0093!8"
+                    + "\"[!P#)\"-!}##\"!!\u00CA#?\"Z\"!$\"\"\"#)!*\"\u00F1#(\"#!\u008A#&!!$\"!\u010D#&$\"!\u0091#(\"!!"
+                    + "\u008D!!\"&!\u0089\"$!\u0125#)!\u0117&!\"$!\"!!!\u00AE#($$!t!=\"^!\u01B7!.!\u008A!'!\"!\u00F5%$"
+                    + "\"!!\u017E\"\u507AW\u0088\"\u6193\"&&",
+            "P*\u0646*\u00A6*\u00E6*\u01BC*\u0096*\u0096*\u0096*\u0096*\u0096*\u0096*\u0096*\u0096*\u0096*"
+                    + "\u0080*\u0096*f*\u0136*f*\u0766*F*\u014C*\u00A0*\u00C6*&*\u00D6*v*\u00A6*&*\u8001\u09E6*\u02C6*F"
+                    + "*\u00E6*6*v*\u01B6*\u5336*\u05A6*\u08A6*\u034C*\u00A0*\\*\u00B0*\u0136*\u0176*\u0096*\u0196*"
+                    + "\u0086*\u0086*\u01C6*\u0086*\u0316*\u0116*f*\u4CD6*\u0106*\u6C94R\u0960*\u01C6*\u0676*\u12B6*",
+            "\u170E#\u0A8FC\"$\u0E9E!9).#\u76CB*\u5A70U\u01EC!(!\u00A6%\u204A\u008F",
+            "\u00D2\"%!\"#\u0955&\u0198&\u0098#\u00A5'\u00F9'1)\u01D1*\u04554\u0493*\u0200!\u06B5!#&&*\u00E60"
+                    + "I!\u02F6\\n6\u0296>\u0589!\u04B4$\u00AA*>(!/@*G/\u7590&\u58F1Ma$1\"\u0175;D$\u0554(9'G)k%6&"
+                    + "\u00C0\"\"0\"N`)T\">#k%\u0088(8(I'\u016A&\u0180?\u00BE*J$\u0090'\u00A64\u019B4\u0565\"\u01CE)"
+                    + "\u03873\u03735\u4BA6'\u033E7\u64694\u008C9\u156E)\u03C1[!#!$lM!/\u03E2-",
+            "@!\u009F!\u15FF!\u099F+D!O!\u0FC0!",
+            "\u2048!",
+            "\u2049!",
+            " @\u007FA",
+            "\u00CD!\u0572&6!\u00E0!Q!\u01F2!\u0F4B!\u081C%:%Q%!*\u8001\u5EAF!\u0119#\u10E1!/!\u2382)\u8001"
+                    + "\u0887$\u14EF(\u8018\u2EA6!>\u0080",
+            "\u8001\u6020\u1920\u801C\u0720\u8002\u001E\"\u8002\u001E",
+            "\u8001\u5820\u0820",
+            "M!\u057C!S!\u0E61!\u0425!\u0829&\u0E21!\"!?\"$!\u01FB!3!\u008F!\u8001\u4DB0\"E!*!\u00C9!\u0FBF!",
+            "H!R!?!\u0EDE!!!\u077E!\u099E!#!F!W!/!\u029A!!!>!\u045E!!!!!!!!!!!!!p!@!!!!!!!!!\u01B4!!!!!!!!!!!"
+                    + "!!!!!!!!!!`!!!A!\u0445!!!!!!!9!\u01E5!!!!!!!!!#!!!!!!!\"!\u8001\u4D41!\u00F7!=!!!!!!!!!!!!!!!#!1"
+                    + "!!!!!\u00CA!R!?!#!\"!",
+            "I!S!?!\u0EDD!!!\u077E!\u09C9!W!/!\u029A!!!>!\u045E!!!!!!!!!!!!!p!@!!!!!!!!!\u01B4!!!!!!!!!!!!!!!"
+                    + "!!!!!!`!!!A!\u0445!!!!!!!\u01FF!!!!!!!!!#!!!!!!!\"\"\u8001\u4D3E!\u00F9!=!!!!!!!!!!!!!!!#!1!!!!!"
+                    + "\u00CA!S!?!\"!\"!",
+            "\u007F!\u1FFF\"3!\u8001\u5DFE\"8#\u010F!",
+            "A#!#\"!!!!\"*\"#\";!d!%!.\"'!\u02DE!(!\u01F2&I!V!\"!\"!L\"4\"!\"-!\"\"j$\u0086!K.\u0109#V/?!"
+                    + "\u0125\"*!\u00AC!\u0098!\u0099!\u01A6!,!\u018F!z!*\"\u00C8/!!\u0090!j%$\"\u008F&\u00CB!\u0284)"
+                    + "\u0325!\u009C#g\"\u00BD#!#E&!$\u0159\"\u00F8\"\u00A0'!&\u00CC'\u00BB$[%^\"`(+!\u0362\"((()\"$\"#"
+                    + "#+!!!*\u0CBA$!\"\u0090!\u00AF\"$#\"!\")!\"!!\"\"*%!*\"$!!!-\"!\u01CE#Y!\u00DD!\u7422\"\u012D#"
+                    + "\u0083!*!\u0093&\u019C$v\"H#!!Q\"O!\u0081-0\"\u009C$\u009E\"0\"\u0119!\u5244'\"!6!4\"\"$##!$'#&!"
+                    + "!\"\u00B5#!#\"!!!!\"*\"#\";!D!\"\"\u01BA#\u02BC!P!\u01BE!\u0307!\u00E7!?!\u0130)F!\u0090'b'y$"
+                    + "\u03D8%\u010D'\u008D\"!$\u009E$P\"o$$!-!!#x&\u008B!\u01C1%*\"!!\u0088!\u011A7\u0089#<-\u00EF#"
+                    + "\u011C!\u0128#\u00BB!|(s#!%\u01BE%J\"\u02A5\"\u0126!\u0490%\u4619\"\u00A5!a%(!\u0372$\u0167!"
+                    + "\u4CDC!\u1E07%\u0EF2\"",
+            "K!0#]!!!M!$!E!?!\u031E!\u022F#\u1A5B!-!G#-#\u00AB!G%&!d%%\"$!\"!\"!'!?\"\"!!!?\u012C@\"z!>9H&"
+                    + "\u01F5!)!V(\u008F!\u0170%\"?*0\u0120\u00A36_$@\"\u0122P5\"&\u8001\u4FFC!\u0358!!#\u00C4!0#]!!!"
+                    + "\u00A3!&$\u8001\u56F4!9!?!9!?!9!?!9!?!9!\u174C\"",
+            "D!\u009D$\u0509!\u009B!\u0212\"\u0212\"'!\u0115!\u0127!\u0265!\u09BB!\u08E4@\u8001\u0798!\u55E3!"
+                    + "\u008C!\u00BA!\u00FB\"#\"\u2016$\u8001\u433E!\u09D0!",
+            "~!!!g!&!$!#!\u0229$,.%'!!!1\u0095!.\"\u1C57!!#+#-#-#-\"\u10BC\"\u76837)\"\u0087\"\u03F0!.\""
+                    + "\u50660\u039C!!!\u00C2!\u8001\u7437%",
+            "\u00C6!\"!$!!!\u03F1!\u012A\"\u009F\"\u00EE!*!3\"\u0117!\u0223!\u0195!\u00A2&!!\u00A4!\u00EF!I!"
+                    + "\u01A7#/!!#\"&4!!!!!\u00A5(!&!\"%$\u00E5\"\u0310*\u02F3!\u02F2!\u00BDB\u0181*))\u05A3\"!$!\"*!!"
+                    + "\"&&!!!!!!$!+\".!!\"!!Z\")%\"$!\"!\"!'!?\"\"!!!?\u012C($4\"'\"q!>9H&e9+qn6\u00D7!)!V(\u008F!"
+                    + "\u0118LL`\u0120\u0220P5\"&G\"@!\u0089\u0105&\u0185\"N:!y,\u00F6:,(!-\",!5\"&\"\u0170\"$*@D<?+>(!"
+                    + "/@*G/\u0160\u19E0`\u56B0W\u0381$*\"!!\u025D#\u53A3!\u0206!#!$\"-\"\u0159)Y1\"#!-#!OM\u069A\""
+                    + "\u026F!\u0C96!\u08B5($1\u4B6A$%!\u5176!\u1383\u0116*G\"\\%#6\"'>$[7b#!\u00DAw\u04C9\u0220W$R(!.!"
+                    + "\"\u06E8!\u0B7C!\u00A1!\u02F1L$\u0084,/\"/!/!E7\u00C1X=-L$)'\".&\u00BA\u011B%\u02F8(-#-#\u0094,y"
+                    + "',4,$X(*&H(>\"\"n\u0099!r!\u00A7,.\"%##%')9'')#-'I\u00B3!W",
+            "\u00CB!\u1F8C!\"\"\"!9!\u0DE8!!!$!\"!/!#!",
+            "\u00DB!\u1F7D!#!<!\u0DE8!!!$!\"!/!#!",
+    };
+    static final String[] SCRIPT_NAMES = {
+            "COMMON", "LATIN", "GREEK", "CYRILLIC", "ARMENIAN", "HEBREW", "ARABIC", "SYRIAC", "THAANA",
+            "DEVANAGARI", "BENGALI", "GURMUKHI", "GUJARATI", "ORIYA", "TAMIL", "TELUGU", "KANNADA",
+            "MALAYALAM", "SINHALA", "THAI", "LAO", "TIBETAN", "MYANMAR", "GEORGIAN", "HANGUL", "ETHIOPIC",
+            "CHEROKEE", "CANADIAN_ABORIGINAL", "OGHAM", "RUNIC", "KHMER", "MONGOLIAN", "HIRAGANA",
+            "KATAKANA", "BOPOMOFO", "HAN", "YI", "OLD_ITALIC", "GOTHIC", "DESERET", "INHERITED", "TAGALOG",
+            "HANUNOO", "BUHID", "TAGBANWA", "LIMBU", "TAI_LE", "LINEAR_B", "UGARITIC", "SHAVIAN", "OSMANYA",
+            "CYPRIOT", "BRAILLE", "BUGINESE", "COPTIC", "NEW_TAI_LUE", "GLAGOLITIC", "TIFINAGH",
+            "SYLOTI_NAGRI", "OLD_PERSIAN", "KHAROSHTHI", "BALINESE", "CUNEIFORM", "PHOENICIAN", "PHAGS_PA",
+            "NKO", "SUNDANESE", "BATAK", "LEPCHA", "OL_CHIKI", "VAI", "SAURASHTRA", "KAYAH_LI", "REJANG",
+            "LYCIAN", "CARIAN", "LYDIAN", "CHAM", "TAI_THAM", "TAI_VIET", "AVESTAN", "EGYPTIAN_HIEROGLYPHS",
+            "SAMARITAN", "MANDAIC", "LISU", "BAMUM", "JAVANESE", "MEETEI_MAYEK", "IMPERIAL_ARAMAIC",
+            "OLD_SOUTH_ARABIAN", "INSCRIPTIONAL_PARTHIAN", "INSCRIPTIONAL_PAHLAVI", "OLD_TURKIC", "BRAHMI",
+            "KAITHI", "MEROITIC_HIEROGLYPHS", "MEROITIC_CURSIVE", "SORA_SOMPENG", "CHAKMA", "SHARADA",
+            "TAKRI", "MIAO", "CAUCASIAN_ALBANIAN", "BASSA_VAH", "DUPLOYAN", "ELBASAN", "GRANTHA",
+            "PAHAWH_HMONG", "KHOJKI", "LINEAR_A", "MAHAJANI", "MANICHAEAN", "MENDE_KIKAKUI", "MODI", "MRO",
+            "OLD_NORTH_ARABIAN", "NABATAEAN", "PALMYRENE", "PAU_CIN_HAU", "OLD_PERMIC", "PSALTER_PAHLAVI",
+            "SIDDHAM", "KHUDAWADI", "TIRHUTA", "WARANG_CITI", "AHOM", "ANATOLIAN_HIEROGLYPHS", "HATRAN",
+            "MULTANI", "OLD_HUNGARIAN", "SIGNWRITING", "ADLAM", "BHAIKSUKI", "MARCHEN", "NEWA", "OSAGE",
+            "TANGUT", "MASARAM_GONDI", "NUSHU", "SOYOMBO", "ZANABAZAR_SQUARE", "HANIFI_ROHINGYA",
+            "OLD_SOGDIAN", "SOGDIAN", "DOGRA", "GUNJALA_GONDI", "MAKASAR", "MEDEFAIDRIN", "ELYMAIC",
+            "NANDINAGARI", "NYIAKENG_PUACHUE_HMONG", "WANCHO", "YEZIDI", "CHORASMIAN", "DIVES_AKURU",
+            "KHITAN_SMALL_SCRIPT"
+    };
+    static final String[] SCRIPT_RUNS = {
+            " a:&:O!/!%7!?!\u01E1G%%\"4\u0094!)!&!!!\u029D!&!.!#!@!\u00BC!\u0224!\u00A1\"\u04F9!\u01B5$\u0142"
+                    + "!\u060F#g\"\u00EB\"!!\u04ED!-!'$!&!#\"!\u0325,\"w!+#+!/1@`F!#\"&!;!1I#$\u02B79+5\u03C0\u0120"
+                    + "\u0294\"@!\u0089\u0220s\u01BD,$%!!!9/($${\"#!z\"\u00B30@D\\`?qO!x\u00C8\u19E0`\u5920B\u0086#"
+                    + "\u00C5*\u0114!\u00C0!\u01AB!.\"\u51F2\"\u00F0*6C!3!$\u00B3!!@:&:+*!M\"`'!'*%\u0122#$M#)p-SM"
+                    + "\u0104;\u6D06\"\u4CDC$\u137C\u0116*G\"^#1(\"'>$[\u01174,w)9\u00A7u!g!\"\"!\"\"\"$!,!!!'!a!$\"(!'"
+                    + "!<!$!%!!#'!\u0174\"\u0144\"R\u1491dl]\u02E2L$\u0084,/\"/!/!E*\u00CEX:!\"-L$)'\".&\u00BA\u03F8(-#"
+                    + "-#\u0094,y',4,$X(*&H(>\"\"n\u0099!r!\u00A7,.\"%##%')9'')#-'I\u00B3!WE*\u8018\u0427!>\u0080",
+            "a:&:O!/!%7!?!\u01E1G%\u1A3BF&Q%$%-!fa\u0120\u0191!-!0-\u00AD\"&!;!1I\u0AF7@\u7AC2\u0086#U\")J+"
+                    + "\u0350K!)!$\u4FB6'\u043A:&:",
+            "\u0390$!#\"$!!$!!!!#!!!4!_.0\u1946%R%$%t!\u01606\"&\"F\"&\"(!!!!!!!?\"U!/!.\"&!3\"#!)\u0147!"
+                    + "\u8001\u0A5E!\u55FAo1!\u8001\u507Ff",
+            "\u0420\u00A5\"\u00C9\u1770)\u00C2!l!\u1087@\u7860\u0080\u57AE\"",
+            "\u0551F\"R\"#\u8001\u75A3%",
+            "\u05B1W(;$&\u8001\u7548:!%!!!\"!\"!*",
+            "\u0620%!&!.!!!!!@!*+:!\u008C!BpP\u01405!2+/!=\u8001\u7270\u00921\u018B2`\"VH.\u0092%!\u00A7"
+                    + "\u0F83?\u8001\u5FA1$!;!\"!!\"!!*!$!!!!&!$!!!!!!#!\"!!\"!!!!!!!!!!\"!!\"$!'!$!$!!!*!1%#!%!1T\"",
+            "\u0720.!\\\"#\u0130+",
+            "\u07A0R",
+            "\u0920q$/\":\u8001\u1F80@",
+            "\u09A0$!(\"\"\"6!'!!#$\")\"\"\"$(!$\"!%\"9",
+            "\u0A21#!&$\"\"6!'!\"!\"!\"\"!!%$\"\"##!'$!!'1",
+            "\u0AA1#!)!#!6!'!\"!%\"*!#!#\"!/$\",''",
+            "\u0B21#!(\"\"\"6!'!\"!%\")\"\"\"#'#$\"!%\"2",
+            "\u0BA2\"!&##!$#\"!!!\"#\"###,$%##!$\"!&!.5\u8002\u13E5R-!",
+            "\u0C20-!#!7!0#(!#!$'\"!#%$\"*')",
+            "\u0CA0-!#!7!*!%\")!#!$'\"'!!$\"*!\"",
+            "\u0D20-!#!S!#!&$0\":",
+            "\u0DA1#!2#8!)!!\"'#!$&!!!(&*\"#\u8002\u040C4",
+            "\u0E21Z%<",
+            "\u0EA1\"!!!%!8!!!7\"%!!!&\"*\"$",
+            "\u0F20h!D$G!D!/!'$\"",
+            "\u1020\u00C0\u8001\u1960?\u0081@",
+            "\u10C0F!!%!\"K!$\u0BB0K\"#\u1060F!!%!",
+            "\u1120\u0120\u1E4E\"\u0121~\u0091?a?\u7701=\u02A3\u2BC4,7$Q\u27C4?#&\"&\"&\"#",
+            "\u1220i!$\"'!!!$\"I!$\"A!$\"'!!!$\"/!Y!$\"c\"@#:\u1A067)'!'!'!'!'!'!'!'\u7D42&\"&\"&)'!'",
+            "\u13C0v\"&\u8001\u1792p",
+            "\u1420\u02A0\u0250f",
+            "\u16A0=",
+            "\u16C0k#+",
+            "\u17A0~\"*&*\u0206@",
+            "\u1820\"\"!!)!*&y'K\u8001\u7DD5-",
+            "\u3061v&#\u8002\u7F81\u013EQ#\u40CD!",
+            "\u30C1z\"#\u01100\u00F0O!x\u8001\u4C2E*!M\u8001\u3082!\u0183$",
+            "\u030A\"\u2E39K\u0090@",
+            "\u2EA0:!y,\u00F6O!!!9).$\u03E4\u19E0`\u521D\u5923\u018E\"\u008A\u7536\"\u8001\u102E\u8001\u26FEB"
+                    + "\u1055+\u00FE\"\u16A2.\u1D51\u0C3F\u023E\u0602\u136B",
+            "\u8001\u2020\u04AD#W",
+            "\u8002\u0320D)#",
+            "\u8002\u0350;",
+            "\u8002\u0420p",
+            "\u0320\u0090\u0135\"\u01E4+:!\u0300$\u117B1\u022F#!-!'$!&!#\"\u00E6Z!%\u022C\"\u00E2A\u0F59$"
+                    + "\u008B\"\u8001\u4D8500.\u03EF!\u0102!\u107A!\u8001\u3E4B#1(\"'>$\u8018\u2F72\u0110",
+            "\u1720-!'",
+            "\u17405",
+            "\u17604",
+            "\u1780-!#!\"",
+            "\u1920?!,$,$!#,",
+            "\u1970>\"%",
+            "\u8002 ,!:!3!\"!/\".B\u009B",
+            "\u8002\u03A0>!!",
+            "\u8002\u0470P",
+            "\u8002\u04A0>\"*",
+            "\u8002\u0820&\"!!L!\"#!\"!",
+            "\u2820\u0120",
+            "\u1A20<\"\"",
+            "\u0402.\u28B0\u0094%'",
+            "\u19A0L$:&+#\"",
+            "\u2C20O!O\u8003\u33C1'!1\"'!\"!%",
+            "\u2D50X'\".!",
+            "\u8001\u2820M",
+            "\u8002\u03C0D$.",
+            "\u8002\u0A20$!\"%(!#!=\"#$*')",
+            "\u1B20l$M",
+            "\u8002\u2020\u03BA\u0086\u008F!%+\u00E4",
+            "\u8002\u0920<#!",
+            "\u8001\u2860X",
+            "\u07E0[\"#",
+            "\u1BA0`\u0120(",
+            "\u1BE0T($",
+            "\u1C20X#/##",
+            "\u1C70P",
+            "\u8001\u2520\u014C",
+            "\u8001\u28A0f(,",
+            "\u8001\u2920N!!",
+            "\u8001\u2950D+!",
+            "\u8002\u02A0=",
+            "\u8002\u02C0Q",
+            "\u8002\u0940:%!",
+            "\u8001\u2A20W).\"*\"$",
+            "\u1A40_!=\"+&*&.",
+            "\u8001\u2AA0c8%",
+            "\u8002\u0B20V#'",
+            "\u8002\u3020\u044F!)",
+            "\u0820N\"/",
+            "\u0860<\"!",
+            "\u8001\u24F0P\u7AD0!",
+            "\u8001\u26C0x\u8001\u4128\u0259",
+            "\u8001\u29A0n\"*$\"",
+            "\u8001\u2B007\u00E9N\"*",
+            "\u8002\u08606!)",
+            "\u8002\u0A80@",
+            "\u8002\u0B606\"(",
+            "\u8002\u0B803%(",
+            "\u8002\u0C20i",
+            "\u8002\u1020n$>/!",
+            "\u8002\u10A0b+!",
+            "\u8002\u09A0@",
+            "\u8002\u09C08$4\"N",
+            "\u8002\u10F09'*",
+            "\u8002\u1120U!2",
+            "\u8002\u11A0\u0080",
+            "\u8002\u16A0Y'*",
+            "\u8002\u6F20k$Y'1",
+            "\u8002\u0550T+!",
+            "\u8002\u6AF0>\"&",
+            "\u8003\u3C20\u008B%-#)'*\"$",
+            "\u8002\u0520H",
+            "\u8002\u1320$!(\"\"\"6!'!\"!%\")\"\"\"#\"!&!%'\"'#%",
+            "\u8002\u6B20f**!'!5%3",
+            "\u8002\u12202!L",
+            "\u8002\u0620\u0157)6*(",
+            "\u8002\u1170G",
+            "\u8002\u0AE0G$,",
+            "\u8003\u6820\u00E5\"0",
+            "\u8002\u1620e+*",
+            "\u8002\u6A60?!*$\"",
+            "\u8002\u0AA0@",
+            "\u8002\u08A0?()",
+            "\u8002\u0880@",
+            "\u8002\u1AE0Y",
+            "\u8002\u0370K",
+            "\u8002\u0BA02'$,'",
+            "\u8002\u15A0V\"F",
+            "\u8002\u12D0[%*",
+            "\u8002\u14A0h(*",
+            "\u8002\u18C0s,!",
+            "\u8002\u1720;\"/$0",
+            "\u8002\u4420\u0267",
+            "\u8002\u09003!\"%%",
+            "\u8002\u12A0'!!!$!/!+",
+            "\u8002\u0CA0S-S'&",
+            "\u8003\u5820\u02AC/%!/",
+            "\u8003\u6920l$*$\"",
+            "\u8002\u1C20)!M!.*=",
+            "\u8002\u1C90@\"6!.",
+            "\u8002\u1420|!%",
+            "\u8002\u04D0D$D",
+            "\u8002\u7000!?\u1818(\u0320\u0220)",
+            "\u8002\u1D20'!\"!L#!!\"!)(*",
+            "\u8002\u7001!\u41AE\u01AC",
+            "\u8002\u1A70s",
+            "\u8002\u1A20h",
+            "\u8002\u0D20H(*",
+            "\u8002\u0F20H",
+            "\u8002\u0F50J",
+            "\u8002\u1820\\",
+            "\u8002\u1D80&!\"!E!\"!&'*",
+            "\u8002\u1F009",
+            "\u8002\u6E60{",
+            "\u8002\u10007",
+            "\u8002\u19C0(\"N\"+",
+            "\u8003\u6120M#.\"*$\"",
+            "\u8003\u62E0Z%!",
+            "\u8002\u0EA0J!#\"\"",
+            "\u8002\u0FD0<",
+            "\u8002\u1920'\"!\"(!\"!>!\"\",)*",
+            "\u8002\u7004!\u1B3B\u01F6",
+    };
+    static final String FOLD_GROUPS =
+            "\"a@\"!@\"!@\"!@\"!@\"!@\"!@\"!@$!@\u0107\u0108\"!@#!@\u20FF\"!@\"!@\"!@\"!@\"!@\"!@\"!@#!@"
+                    + "\u014C\"!@\"!@\"!@\"!@\"!@\"!@\"!@#{\u0307\u0327\"+@\"!@\"!@\"!@\"!@#!@\u2086\"!@\"!@\"!@\"!@\"!"
+                    + "@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"\"@\"!@\"!@\"!@\"!@\"!@\"!@\"!\u1DDF\"@\u0099"
+                    + "\"!!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\""
+                    + "\"!\"\"!\"\"!\"\"!\"\"!\"$!\"\"!\"\"!\"#!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"#!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"#!\"\"!\"\"!\"#\u00E3\"!\u00F2\"!!\"\"!\"\"\u00EE\"!!\"\"\u00ED\"!\u00ED\"!!\"#o\"!\u00EA\"!"
+                    + "\u00EB\"!!\"\"\u00ED\"!\u00EF\"!\u0081\"!\u00F3\"!\u00F1\"!!\"\"\u00C3\"\"\u00F3\"!\u00F5\"!"
+                    + "\u00A2\"!\u00F6\"!!\"\"!\"\"!\"\"\u00FA\"!!\"\"\u00FA\"#!\"\"\u00FA\"!!\"\"\u00F9\"!\u00F9\"!!\""
+                    + "\"!\"\"\u00FB\"!!\"$!\"#X#%!\"##!\"##!\"\"#!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"#!\"\"!\"\"!\""
+                    + "\"!\"\"!\"\"!\"\"!\"\"!\"\"!##!\"\"#!\"$!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"$!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"(\u2A4B\"!"
+                    + "!\"#\u2A48\"!\u2A5F\"!\u2A5F\"!!\"#e\"!g\"!!\"\"!\"\"!\"\"!\"\"!\"\"\u2A3F\"!\u2A3C\"!\u2A3E\"*"
+                    + "\u8001\u256F\"%\u8001\u256B\"$\u8001\u2548\"!\u8001\u2564\"$\u8001\u2564\"!\u2A17\"!\u8001\u2561"
+                    + "\"%\u2A1D\",\u2A07\"%\u8001\u2563\"%\u8001\u254A\"6\u8001\u2535\"!\u8001\u2532$\u00C7t\u0094"
+                    + "\u1C99\"K!\"\"!\"$!\"%\u00A2\"!\u00A2\"!\u00A2\"\"\u0094\"'F\"\"E\"!E\"!E\"\"`\"\"_\"!_\"\"@#!@^"
+                    + "\"!@\"!@#!@\u0080\"!@\"!@$!@Y|#\"@v\"!@\"\"@\"!@\"!@#!@V#!@p#\"?@\"!@\"!@#!@O\"!@\"!@#!@\u1D9D\""
+                    + "!@\"!@\"D(\")!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"$'\"%!\"#!\"&p\"!p\"!p\"!"
+                    + "p\"!p\"!p\"!p\"!p\"!p\"!p\"!p\"!p\"!p\"!p\"!p\"!p\"!@\"!@#!@\u188E\"!@#!@\u188D\"!@\"!@\"!@\"!@"
+                    + "\"!@\"!@\"!@\"!@\"!@#!@\u1884\"!@\"!@#!@\u1882$!@\u1882\u1883\"!@\"!@\"!@\"!@\"!@\"!@\"!@#!@"
+                    + "\u187C\"!@\"!@\"!@\"!@\"!@\"Q!#\"!\u1845\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"*!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\""
+                    + "\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"/\"!!\"\"!\"\"!\"\"!\"\"!\"\"!\"\""
+                    + "!\"#!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"#P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\""
+                    + "!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\""
+                    + "!P\"!P\"!P\"\u0B6A\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80"
+                    + "\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!"
+                    + "\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80"
+                    + "\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"!\u1C80\"\"\u1C80\"&\u1C80\"#"
+                    + "\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0"
+                    + "\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!"
+                    + "\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0"
+                    + "\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!\u0BE0\"!"
+                    + "\u0BE0\"#\u0BE0\"!\u0BE0\"!\u0BE0\"\u02C1\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001"
+                    + "\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0"
+                    + "\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!"
+                    + "\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001"
+                    + "\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0"
+                    + "\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!"
+                    + "\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001"
+                    + "\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0"
+                    + "\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!"
+                    + "\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001"
+                    + "\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0"
+                    + "\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!"
+                    + "\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001\u17F0\"!\u8001"
+                    + "\u17F0\"!(\"!(\"!(\"!(\"!(\"!(#\u08B3\u8001\u09E2\u8001\u09E3\"\u0111\u8001\u0A24\"$\u0F06\"1"
+                    + "\u8001\u0A58\"\u0092!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!#\"![\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\",!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\""
+                    + "\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\""
+                    + "\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"(\"!(\"!(\"!(\"!(\"!(\"!(\"!(\")("
+                    + "\"!(\"!(\"!(\"!(\"!(\"+(\"!(\"!(\"!(\"!(\"!(\"!(\"!(\")(\"!(\"!(\"!(\"!(\"!(\"!(\"!(\")(\"!(\"!("
+                    + "\"!(\"!(\"!(\",(\"\"(\"\"(\"\"(\")(\"!(\"!(\"!(\"!(\"!(\"!(\"!(\")j\"!j\"!v\"!v\"!v\"!v\"!\u0084"
+                    + "\"!\u0084\"!\u00A0\"!\u00A0\"!\u0090\"!\u0090\"!\u009E\"!\u009E\"#(\"!(\"!(\"!(\"!(\"!(\"!(\"!("
+                    + "\")(\"!(\"!(\"!(\"!(\"!(\"!(\"!(\")(\"!(\"!(\"!(\"!(\"!(\"!(\"!(\")(\"!(\"\")\"0)\"-(\"!(\"/(\"!"
+                    + "(\"$'\".)\"\u015F<\"N0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"!0\"4!\"\u0353:"
+                    + "\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:\"!:"
+                    + "\"!:\"\u0751P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!"
+                    + "P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!P\"!"
+                    + "P\"!P\"R!\"'!\"\"!\"\"!\"'!\"#!\"+!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\")!\""
+                    + "\"!\"%!\"\u796E!\"\"!\"\"!\"\"!\"\"!\"$!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"4!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\""
+                    + "\u00A8!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"$!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"+!\"\"!\"#!\"\"!\"\"!\"\"!\"\"!\"%!\"%!\"\"!\"\"P\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!\"\"!"
+                    + "\"\"!\"+\u03C0\"!!\"\"!\"\"!\"\"!\"\"!\"\"!\"$!\"%!\"\"!\"L!\"\u574C@\"!@\"!@\"!@\"!@\"!@\"!@\"!"
+                    + "@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@\"!@";
+
+    private static final CodePointSet[] categories = new CodePointSet[CATEGORY_NAMES.length],
+            scripts = new CodePointSet[SCRIPT_NAMES.length];
+    private static final ComBit[] categoryBits = new ComBit[CATEGORY_NAMES.length],
+            scriptBits = new ComBit[SCRIPT_NAMES.length];
+    /**
+     * Groups of categories by first letter, then unassigned code points (Cn), which aren't in any table.
+     */
+    private static final CodePointSet[] groups = new CodePointSet[8];
+    private static final ComBit[] groupBits = new ComBit[8];
+    private static final String GROUP_LETTERS = "LMNPSZC";
+
+    private static CodePointSet decode(String runs)
+    {
+        IntVLA bounds = new IntVLA(runs.length());
+        int pos = 0;
+        for (int i = 0, n = runs.length(); i < n; ) {
+            int v = runs.charAt(i++);
+            if(v >= 0x8000)
+                v = (v & 0x7FFF) << 15 | runs.charAt(i++);
+            pos += v - 0x20;
+            bounds.add(pos);
+        }
+        return CodePointSet.ofRanges(bounds.toArray());
+    }
+
+    private static CodePointSet category(int index)
+    {
+        if(categories[index] == null)
+            categories[index] = decode(CATEGORY_RUNS[index]);
+        return categories[index];
+    }
+
+    private static CodePointSet script(int index)
+    {
+        if(scripts[index] == null)
+            scripts[index] = decode(SCRIPT_RUNS[index]);
+        return scripts[index];
+    }
+
+    /**
+     * Gets the group of categories that start with the letter at index in GROUP_LETTERS, or Cn at index 7.
+     */
+    private static CodePointSet group(int index)
+    {
+        if(groups[index] == null)
+        {
+            if(index == 7)
+            {
+                CodePointSet assigned = CodePointSet.none();
+                for (int i = 0; i < CATEGORY_NAMES.length; i++) {
+                    assigned = assigned.union(category(i));
+                }
+                groups[index] = assigned.negate();
+            }
+            else
+            {
+                final char letter = GROUP_LETTERS.charAt(index);
+                CodePointSet union = (letter == 'C') ? group(7) : CodePointSet.none();
+                for (int i = 0; i < CATEGORY_NAMES.length; i++) {
+                    if(CATEGORY_NAMES[i].charAt(0) == letter)
+                        union = union.union(category(i));
+                }
+                groups[index] = union;
+            }
+        }
+        return groups[index];
+    }
+
+    /**
+     * Finds the property with the given name, encoded as (kind << 16 | index), or -1 if there is none.
+     * Kind 0 is a category, 1 is a group of categories (or Cn), and 2 is a script.
+     */
+    private static int find(String name)
+    {
+        if(name.length() == 1)
+        {
+            final int g = GROUP_LETTERS.indexOf(name.charAt(0));
+            if(g >= 0)
+                return 1 << 16 | g;
+        }
+        if(name.equals("Cn"))
+            return 1 << 16 | 7;
+        for (int i = 0; i < CATEGORY_NAMES.length; i++) {
+            if(CATEGORY_NAMES[i].equals(name))
+                return i;
+        }
+        // scripts ignore case, spaces, hyphens and underscores, so "Old_Italic", "OLD ITALIC" and "oldItalic" match
+        final String key = name.replace("_", "").replace(" ", "").replace("-", "");
+        for (int i = 0; i < SCRIPT_NAMES.length; i++) {
+            if(SCRIPT_NAMES[i].replace("_", "").equalsIgnoreCase(key))
+                return 2 << 16 | i;
+        }
+        return -1;
+    }
+
+    private static int resolve(String name)
+    {
+        int found = find(name);
+        if(found < 0)
+        {
+            final int eq = name.indexOf('=');
+            if(eq >= 0)
+                found = find(name.substring(eq + 1));
+            else if(name.startsWith("Is") || name.startsWith("is"))
+                found = find(name.substring(2));
+        }
+        if(found < 0)
+            throw new IllegalArgumentException("Unknown Unicode property: " + name);
+        return found;
+    }
+
+    /**
+     * Gets every code point with the given property, including supplementary ones. The name can be a two-letter
+     * general category like {@code Lu}, a one-letter group of categories like {@code L}, or a script name like
+     * {@code Latin}, optionally prefixed by {@code Is} or by a key and {@code =}, as in {@code script=Greek}.
+     * @param name the name of a Unicode general category or script
+     * @return the CodePointSet of that property, decoded the first time it is requested
+     * @throws IllegalArgumentException if name is not a known category or script
+     */
+    public static synchronized CodePointSet codePoints(String name)
+    {
+        final int found = resolve(name);
+        switch (found >>> 16)
+        {
+            case 0: return category(found & 0xFFFF);
+            case 1: return group(found & 0xFFFF);
+            default: return script(found & 0xFFFF);
+        }
+    }
+
+    /**
+     * Gets the chars in the BMP that have the given property, as an interned ComBit; see {@link #codePoints(String)}
+     * for the names that can be used.
+     * @param name the name of a Unicode general category or script
+     * @return the canonical frozen ComBit of that property's BMP code points
+     * @throws IllegalArgumentException if name is not a known category or script
+     */
+    public static synchronized ComBit bmp(String name)
+    {
+        final int found = resolve(name), index = found & 0xFFFF;
+        final ComBit[] cache = (found >>> 16 == 0) ? categoryBits : (found >>> 16 == 1) ? groupBits : scriptBits;
+        if(cache[index] == null)
+            cache[index] = ComBit.intern(codePoints(name).bmp());
+        return cache[index];
+    }
+
+    /**
+     * Gets an RE that matches one code point with the given property, like {@code \p{name}}; this is a Multiple if
+     * the property has no supplementary code points, or a CodePoints otherwise. See {@link #codePoints(String)} for
+     * the names that can be used.
+     * @param name the name of a Unicode general category or script
+     * @return an RE matching one code point with that property
+     * @throws IllegalArgumentException if name is not a known category or script
+     */
+    public static RE property(String name)
+    {
+        final CodePointSet set = codePoints(name);
+        if(set.hasSupplementary())
+            return new RE.CodePoints(set);
+        return new RE.Multiple(bmp(name));
+    }
+}
@@ -73,4 +73,113 @@ public class ComBitTest {
         assertTrue(inter.negate().equals(combined.negate()));
     }
 
+    @Test
+    public void testIndexedContains()
+    {
+        // many runs, so contains() uses the binary-searched index
+        char[] odd = new char[200];
+        for (int i = 0; i < odd.length; i++) {
+            odd[i] = (char)(i * 3 + 1);
+        }
+        ComBit cb = new ComBit(odd);
+        for (char c = 0; c < 700; c++) {
+            assertTrue(cb.contains(c) == (c % 3 == 1 && c < 600));
+        }
+        cb.negate();
+        for (char c = 0; c < 700; c++) {
+            assertTrue(cb.contains(c) == (c % 3 != 1 || c >= 600));
+        }
+        assertTrue(cb.contains('\uFFFF'));
+    }
+    @Test
+    public void testInPlace()
+    {
+        ComBit caps = new ComBit("ACDEG".toCharArray()), some = new ComBit("ABCxy".toCharArray());
+        assertTrue(caps.copy().andNot(some).equals(new ComBit("DEG".toCharArray())));
+        assertTrue(caps.copy().xor(some).equals(new ComBit("BDEGxy".toCharArray())));
+        assertTrue(ComBit.unionInto(some, caps, some).equals(new ComBit("ABCDEGxy".toCharArray())));
+        assertTrue(ComBit.variadicIntersection(caps, some, new ComBit("CGz".toCharArray()))
+                .equals(new ComBit("CG".toCharArray())));
+        ComBit neg = caps.copy().negate();
+        assertTrue(neg.or(caps).cardinality == 0x10000);
+    }
+    @Test
+    public void testRunQueries()
+    {
+        ComBit cb = new ComBit("ACDEGxyz".toCharArray());
+        ComBit.RunCursor rc = cb.runs();
+        assertTrue(rc.next() && rc.start == 'A' && rc.end == 'B');
+        assertTrue(rc.next() && rc.start == 'C' && rc.end == 'F');
+        assertTrue(rc.next() && rc.start == 'G' && rc.end == 'H');
+        assertTrue(rc.next() && rc.start == 'x' && rc.end == '{');
+        assertFalse(rc.next());
+        assertTrue(cb.rank('E') == 3);
+        assertTrue(cb.select(3) == 'E');
+        assertTrue(cb.nextSetBit('H') == 'x');
+        assertTrue(cb.nextSetBit('{') == -1);
+        assertTrue(new ComBit("CDy".toCharArray()).isSubsetOf(cb));
+        assertFalse(new ComBit("CDw".toCharArray()).isSubsetOf(cb));
+        assertTrue(cb.intersects(new ComBit("BFy".toCharArray())));
+        assertFalse(cb.intersects(new ComBit("BFw".toCharArray())));
+        assertTrue(cb.copy().negate().nextSetBit('C') == 'F');
+    }
+    @Test
+    public void testIntern()
+    {
+        ComBit digits = new ComBit("0123456789".toCharArray());
+        assertTrue(ComBit.intern(digits) == ComBit.DIGIT);
+        assertFalse(digits.isFrozen());
+        // different encodings of the same contents are equal and hash the same
+        ComBit all = ComBit.all(), built = ComBit.fromRuns(new int[]{0, 0x10000}, 0, 2);
+        assertTrue(all.equals(built));
+        assertTrue(all.hashCode() == built.hashCode());
+        assertTrue(ComBit.intern(all) == ComBit.intern(built));
+        assertTrue(ComBit.intern(new ComBit(" \t\n\u000B\f\r".toCharArray())) == ComBit.SPACE);
+        assertFalse(ComBit.DOT.contains('\n'));
+        try {
+            ComBit.WORD.negate();
+            assertTrue(false);
+        } catch (UnsupportedOperationException expected) {
+        }
+        // the list methods inherited from CharVLA can't change a frozen ComBit either
+        try {
+            ComBit.WORD.add(5);
+            assertTrue(false);
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            ComBit.DIGIT.clear();
+            assertTrue(false);
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            CharVLA.CharListIterator it = ComBit.SPACE.iterator();
+            it.nextChar();
+            it.remove();
+            assertTrue(false);
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            ComBit.SPACE.listIterator(ComBit.SPACE.size()).add('x');
+            assertTrue(false);
+        } catch (UnsupportedOperationException expected) {
+        }
+        assertTrue(ComBit.DIGIT.contains('5') && !ComBit.WORD.contains('\u0005'));
+        ComBit copy = ComBit.WORD.copy();
+        copy.negate();
+        assertFalse(copy.contains('a'));
+    }
+    @Test
+    public void testAsciiMask()
+    {
+        long[] mask = ComBit.WORD.asciiMask();
+        assertTrue(mask[0] == 0x03FF000000000000L);
+        assertTrue(mask[1] == 0x07FFFFFE87FFFFFEL);
+        ComBit cb = new ComBit("az".toCharArray());
+        assertTrue(cb.contains('a'));
+        cb.negate();
+        assertFalse(cb.contains('a'));
+        assertTrue(cb.contains('b'));
+        assertTrue(ComBit.union(cb, new ComBit("a".toCharArray())).contains('a'));
+    }
 }
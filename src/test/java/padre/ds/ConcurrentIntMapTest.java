@@ -0,0 +1,123 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentIntMapTest {
+    @Test
+    public void testReadDuringResize() throws InterruptedException
+    {
+        // starts small so the threads race through several resizes
+        final ConcurrentIntMap<String> map = new ConcurrentIntMap<String>(4);
+        final String[][] shared = new String[4][5000];
+        // how many keys each writer has added; a key below that count must always be found afterward
+        final AtomicIntegerArray published = new AtomicIntegerArray(4);
+        final AtomicInteger running = new AtomicInteger(4);
+        final int[] missing = {-1};
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 5000; i++) {
+                        String mine = new StringBuilder("s").append(i).toString();
+                        String found = map.putIfAbsent(i * 3, mine);
+                        shared[id][i] = found == null ? mine : found;
+                        if(map.get(i * 3) != shared[id][i])
+                            shared[id][i] = null;
+                        published.set(id, i + 1);
+                    }
+                    running.decrementAndGet();
+                }
+            });
+        }
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // walks back and forth over the published keys while the writers keep growing the table
+                int j = 0;
+                while (running.get() > 0) {
+                    int limit = 0;
+                    for (int t = 0; t < 4; t++) {
+                        limit = Math.max(limit, published.get(t));
+                    }
+                    if(limit == 0)
+                        continue;
+                    j = (j + 7) % limit;
+                    if(map.get(j * 3) == null)
+                    {
+                        missing[0] = j;
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+        }
+        reader.join();
+        assertEquals(-1, missing[0]);
+        assertEquals(5000, map.size());
+        for (int i = 0; i < 5000; i++) {
+            for (int t = 0; t < threads.length; t++) {
+                assertTrue(shared[t][i] == map.get(i * 3));
+            }
+        }
+        assertEquals("s0", map.put(0, "zero"));
+        assertEquals("zero", map.get(0));
+        assertFalse(map.containsKey(1));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testPutRace() throws InterruptedException
+    {
+        // one thread puts and the other adds if absent, on the same keys in the same order, so they often collide
+        final ConcurrentIntMap<String> map = new ConcurrentIntMap<String>(4);
+        final int n = 20000;
+        final String[] fromPut = new String[n], fromAbsent = new String[n];
+        Thread putter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < n; i++) {
+                    fromPut[i] = map.put(i + 1, "put");
+                }
+            }
+        }), absent = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < n; i++) {
+                    fromAbsent[i] = map.putIfAbsent(i + 1, "absent");
+                }
+            }
+        });
+        putter.start();
+        absent.start();
+        putter.join();
+        absent.join();
+        assertEquals(n, map.size());
+        for (int i = 0; i < n; i++) {
+            // put always wins in the end; whichever call went first saw no value, and the other saw the first one's
+            assertEquals("put", map.get(i + 1));
+            if(fromPut[i] == null)
+                assertEquals("put", fromAbsent[i]);
+            else
+            {
+                assertEquals("absent", fromPut[i]);
+                assertTrue(fromAbsent[i] == null);
+            }
+        }
+    }
+}
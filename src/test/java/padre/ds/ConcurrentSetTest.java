@@ -0,0 +1,77 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentSetTest {
+    @Test
+    public void testIntern() throws InterruptedException
+    {
+        final ConcurrentSet<String> set = new ConcurrentSet<String>(4, 64);
+        final String[][] canonical = new String[4][1000];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        // a new String each time, so only interning can make them identical
+                        canonical[id][i] = set.intern(new StringBuilder("c").append(i).toString());
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+        }
+        assertEquals(1000, set.size());
+        for (int i = 0; i < 1000; i++) {
+            for (int t = 1; t < threads.length; t++) {
+                assertTrue(canonical[0][i] == canonical[t][i]);
+            }
+        }
+        assertTrue(set.remove("c5"));
+        assertFalse(set.contains("c5"));
+    }
+
+    @Test
+    public void testSize() throws InterruptedException
+    {
+        final ConcurrentSet<Integer> set = new ConcurrentSet<Integer>(8, 16);
+        assertTrue(set.add(1));
+        assertFalse(set.add(1));
+        assertFalse(set.remove(2));
+        assertEquals(1, set.size());
+        set.clear();
+        assertEquals(0, set.size());
+        // each thread adds and then interns each key of its own range, removing a third of them along the way
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int base = t * 10000;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 3000; i++) {
+                        set.add(base + i);
+                        set.intern(base + i);
+                        if(i % 3 == 0)
+                            set.remove(base + i / 3);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+        }
+        assertEquals(threads.length * 2000, set.size());
+        assertEquals(set.size(), set.toArrayList().size());
+        set.clear();
+        assertEquals(0, set.size());
+    }
+}
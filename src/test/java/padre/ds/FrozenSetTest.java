@@ -0,0 +1,31 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrozenSetTest {
+    @Test
+    public void testFreeze()
+    {
+        GenericSet<String> set = new GenericSet<String>();
+        for (int i = 0; i < 500; i++) {
+            set.add("f" + i);
+        }
+        // "Aa" and "BB" have the same hash code
+        set.add("Aa");
+        set.add("BB");
+        FrozenSet<String> frozen = set.freeze();
+        assertEquals(set.size, frozen.size);
+        assertEquals(set.hashCode(), frozen.hashCode());
+        for (String s : set) {
+            assertTrue(frozen.contains(s));
+        }
+        assertFalse(frozen.contains("f500"));
+        assertFalse(frozen.contains("C#"));
+        assertTrue(frozen.equals(frozen.thaw().freeze()));
+        assertEquals(0, new GenericSet<String>().freeze().size);
+    }
+}
@@ -0,0 +1,98 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GenericSetTest {
+    @Test
+    public void testSmall()
+    {
+        GenericSet<String> set = new GenericSet<String>(64);
+        assertTrue(set.add("a"));
+        assertTrue(set.add("b"));
+        assertFalse(set.add("a"));
+        assertTrue(set.remove("a"));
+        assertFalse(set.contains("a"));
+        assertEquals("b", set.first());
+        for (int i = 0; i < 100; i++) {
+            set.add("s" + i);
+        }
+        assertEquals(101, set.size);
+        assertTrue(set.contains("s99"));
+        assertTrue(set.contains("b"));
+        GenericSet<String> copy = new GenericSet<String>(set);
+        assertTrue(copy.equals(set));
+        assertEquals(set.hashCode(), copy.hashCode());
+        int count = 0;
+        for (String s : GenericSet.with("x", "y", "z")) {
+            count++;
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    public void testIncremental()
+    {
+        GenericSet<String> set = new GenericSet<String>();
+        set.setIncremental(true);
+        for (int i = 0; i < 30000; i++) {
+            assertTrue(set.add("k" + i));
+            if(i >= 2)
+                assertFalse(set.add("k" + (i >> 1)));
+            if(i % 3 == 0)
+                assertTrue(set.remove("k" + i / 3));
+        }
+        assertEquals(20000, set.size);
+        for (int i = 0; i < 30000; i++) {
+            assertEquals(i >= 10000, set.contains("k" + i));
+        }
+        int count = 0;
+        for (String k : set) {
+            count++;
+        }
+        assertEquals(20000, count);
+        assertEquals(set, new GenericSet<String>(set));
+    }
+
+    @Test
+    public void testForEachKey()
+    {
+        final GenericSet<String> small = GenericSet.with("a", "b", "c");
+        final StringBuilder sb = new StringBuilder();
+        // nested loops over the same set would trip over its shared iterators
+        small.forEachKey(new ObjConsumer<String>() {
+            @Override
+            public void accept(final String outer) {
+                small.forEachKey(new ObjConsumer<String>() {
+                    @Override
+                    public void accept(String inner) {
+                        if(outer.compareTo(inner) < 0) sb.append(outer).append(inner);
+                    }
+                });
+            }
+        });
+        assertEquals(6, sb.length());
+
+        // in the middle of an incremental resize, forEachKey reads both tables and doesn't move anything along
+        GenericSet<String> growing = new GenericSet<String>();
+        growing.setIncremental(true);
+        int n = 0;
+        while (growing.oldKeyTable == null || n < 5000) {
+            growing.add("k" + n++);
+        }
+        Object[] old = growing.oldKeyTable;
+        final GenericSet<String> seen = new GenericSet<String>();
+        growing.forEachKey(new ObjConsumer<String>() {
+            @Override
+            public void accept(String item) {
+                assertTrue(seen.add(item));
+            }
+        });
+        assertTrue(old == growing.oldKeyTable);
+        assertEquals(n, seen.size);
+        assertEquals(growing, seen);
+    }
+}
@@ -0,0 +1,48 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedSetTest {
+    static int hashes;
+
+    static class Counted {
+        final int value;
+
+        Counted(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            hashes++;
+            return value * 0x9E3779B9;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Counted && ((Counted) o).value == value;
+        }
+    }
+
+    @Test
+    public void testHashesOnce()
+    {
+        hashes = 0;
+        HashedSet<Counted> set = new HashedSet<Counted>(4);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.add(new Counted(i)));
+        }
+        // each key is hashed once when added, however often it is pushed or rehashed
+        assertEquals(1000, hashes);
+        assertEquals(1000, set.size);
+        assertFalse(set.add(new Counted(5)));
+        assertTrue(set.remove(new Counted(5)));
+        assertFalse(set.contains(new Counted(5)));
+        assertTrue(set.contains(new Counted(999)));
+        assertEquals(999, set.size);
+    }
+}
@@ -0,0 +1,34 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntIntMapTest {
+    @Test
+    public void testPutGet()
+    {
+        IntIntMap ints = new IntIntMap(4);
+        for (int i = -500; i < 500; i++) {
+            ints.put(i * 31, i);
+        }
+        assertEquals(1000, ints.size);
+        assertEquals(7, ints.get(7 * 31, -1));
+        assertEquals(0, ints.get(0, -1));
+        assertEquals(-1, ints.get(1, -1));
+        assertEquals(7, ints.getAndIncrement(7 * 31, 0, 10));
+        assertEquals(17, ints.get(7 * 31, -1));
+        assertEquals(0, ints.getAndIncrement(1, 0, 1));
+        assertEquals(1, ints.get(1, -1));
+        int count = 0;
+        for (IntIntMap.Entry e : ints) {
+            count++;
+        }
+        assertEquals(ints.size, count);
+        assertTrue(new IntIntMap(ints).equals(ints));
+        assertEquals(3, ints.remove(3 * 31, -1));
+        assertFalse(ints.containsKey(3 * 31));
+    }
+}
@@ -0,0 +1,25 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntLongMapTest {
+    @Test
+    public void testPutGet()
+    {
+        IntLongMap longs = new IntLongMap(4);
+        for (int i = -500; i < 500; i++) {
+            longs.put(i * 31, (long) i << 32);
+        }
+        assertEquals(1000, longs.size);
+        assertEquals(-5L << 32, longs.get(-5 * 31, 0L));
+        assertEquals(3L << 32, longs.remove(3 * 31, -1L));
+        assertFalse(longs.containsKey(3 * 31));
+        assertTrue(longs.containsValue(4L << 32));
+        assertEquals(4 * 31, longs.findKey(4L << 32, -1));
+        assertTrue(new IntLongMap(longs).equals(longs));
+    }
+}
@@ -0,0 +1,91 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IntMapTest {
+    @Test
+    public void testIncremental()
+    {
+        IntMap<String> map = new IntMap<String>(4);
+        map.setIncremental(true);
+        for (int i = 0; i < 30000; i++) {
+            map.put(i, "v" + i);
+            // keys below i / 3 have been removed; i / 2 was added earlier and may still be in the old table
+            if(i >= 2)
+                assertEquals("v" + (i >> 1), map.get(i >> 1));
+            if(i % 3 == 0)
+                assertEquals("v" + i / 3, map.remove(i / 3));
+        }
+        assertEquals(20000, map.size);
+        for (int i = 0; i < 30000; i++) {
+            assertEquals(i < 10000 ? null : "v" + i, map.get(i));
+        }
+        int count = 0;
+        for (IntMap.Entry<String> e : map.entries()) {
+            assertEquals("v" + e.key, e.value);
+            count++;
+        }
+        assertEquals(20000, count);
+        assertTrue(new IntMap<String>(map).equals(map));
+    }
+
+    @Test
+    public void testForEach()
+    {
+        final IntMap<String> map = new IntMap<String>();
+        for (int i = -50; i < 50; i++) {
+            map.put(i, "v" + i);
+        }
+        final int[] sum = new int[1];
+        // nested loops over the same map would trip over the shared iterators of entries()
+        map.forEachEntry(new IntObjConsumer<String>() {
+            @Override
+            public void accept(final int key, String value) {
+                assertEquals("v" + key, value);
+                map.forEachKey(new IntConsumer() {
+                    @Override
+                    public void accept(int other) {
+                        if(other == -key) sum[0]++;
+                    }
+                });
+            }
+        });
+        assertEquals(99, sum[0]);
+
+        // in the middle of an incremental resize, the loops read both tables and don't move anything along
+        final IntMap<String> growing = new IntMap<String>(4);
+        growing.setIncremental(true);
+        int n = 0;
+        while (growing.oldKeyTable == null || n < 5000) {
+            growing.put(n, "v" + n);
+            n++;
+        }
+        int[] old = growing.oldKeyTable;
+        final int[] counts = new int[3];
+        growing.forEachEntry(new IntObjConsumer<String>() {
+            @Override
+            public void accept(int key, String value) {
+                assertEquals("v" + key, value);
+                counts[0]++;
+            }
+        });
+        growing.forEachKey(new IntConsumer() {
+            @Override
+            public void accept(int key) {
+                counts[1]++;
+            }
+        });
+        growing.forEachValue(new ObjConsumer<String>() {
+            @Override
+            public void accept(String item) {
+                counts[2]++;
+            }
+        });
+        assertTrue(old == growing.oldKeyTable);
+        assertArrayEquals(new int[]{n, n, n}, counts);
+    }
+}
@@ -0,0 +1,253 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OMapTest {
+    /**
+     * Checks map against a plain list of keys in order and a HashMap of values, walking the order with forEachKey, which
+     * steps over tombstones without removing them.
+     */
+    static void check(OMap<Integer, Integer> map, final ArrayList<Integer> order, HashMap<Integer, Integer> values)
+    {
+        assertEquals(order.size(), map.size());
+        assertEquals(values.size(), map.size());
+        final int[] i = {0};
+        map.forEachKey(new ObjConsumer<Integer>() {
+            @Override
+            public void accept(Integer item) {
+                assertEquals(order.get(i[0]++), item);
+            }
+        });
+        assertEquals(order.size(), i[0]);
+        if(!order.isEmpty())
+        {
+            assertEquals(order.get(0), map.firstKey());
+            assertEquals(order.get(order.size() - 1), map.lastKey());
+        }
+    }
+
+    /**
+     * Also checks every key by index, which removes tombstones, and the values through the entry iterator.
+     */
+    static void checkFully(OMap<Integer, Integer> map, ArrayList<Integer> order, HashMap<Integer, Integer> values)
+    {
+        check(map, order, values);
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(order.get(i), map.keyAt(i));
+        }
+        int i = 0;
+        for (Map.Entry<Integer, Integer> e : map.entrySet()) {
+            assertEquals(order.get(i++), e.getKey());
+            assertEquals(values.get(e.getKey()), e.getValue());
+        }
+        assertEquals(order.size(), i);
+    }
+
+    @Test
+    public void testModel()
+    {
+        // keys are 0 to 63, or null; a small key range keeps hits, moves, and removals all common
+        Random random = new Random(0x1234L);
+        OMap<Integer, Integer> map = new OMap<Integer, Integer>();
+        ArrayList<Integer> order = new ArrayList<Integer>();
+        HashMap<Integer, Integer> values = new HashMap<Integer, Integer>();
+        for (int step = 0; step < 30000; step++) {
+            int r = random.nextInt(65);
+            Integer k = r == 64 ? null : r, v = step;
+            boolean present = values.containsKey(k);
+            switch (random.nextInt(10))
+            {
+                case 0:
+                case 1:
+                    assertEquals(values.put(k, v), map.put(k, v));
+                    if(!present) order.add(k);
+                    break;
+                case 2:
+                    assertEquals(values.remove(k), map.remove(k));
+                    order.remove(k);
+                    break;
+                case 3:
+                    assertEquals(values.put(k, v), map.putAndMoveToFirst(k, v));
+                    order.remove(k);
+                    order.add(0, k);
+                    break;
+                case 4:
+                    assertEquals(values.put(k, v), map.putAndMoveToLast(k, v));
+                    order.remove(k);
+                    order.add(k);
+                    break;
+                case 5:
+                    assertEquals(values.get(k), map.getAndMoveToFirst(k));
+                    if(present)
+                    {
+                        order.remove(k);
+                        order.add(0, k);
+                    }
+                    break;
+                case 6:
+                    assertEquals(values.get(k), map.getAndMoveToLast(k));
+                    if(present)
+                    {
+                        order.remove(k);
+                        order.add(k);
+                    }
+                    break;
+                case 7:
+                    if(order.isEmpty()) break;
+                    if(random.nextBoolean())
+                        assertEquals(values.remove(order.remove(0)), map.removeFirst());
+                    else
+                        assertEquals(values.remove(order.remove(order.size() - 1)), map.removeLast());
+                    break;
+                case 8:
+                    if(order.isEmpty()) break;
+                    int idx = random.nextInt(order.size());
+                    assertEquals(values.remove(order.remove(idx)), map.removeAt(idx));
+                    break;
+                default:
+                    assertEquals(values.get(k), map.get(k));
+                    assertEquals(present, map.containsKey(k));
+            }
+            if(step % 97 == 0)
+                checkFully(map, order, values);
+            else
+                check(map, order, values);
+            if(step % 1000 == 999)
+            {
+                // a clone is independent of the original, and trimming keeps contents and order
+                OMap<Integer, Integer> copy = map.clone();
+                checkFully(copy, order, values);
+                copy.put(-1, -1);
+                copy.removeFirst();
+                assertFalse(map.containsKey(-1));
+                map.trim();
+                checkFully(map, order, values);
+            }
+        }
+    }
+
+    @Test
+    public void testIteratorRemove()
+    {
+        OMap<Integer, Integer> map = new OMap<Integer, Integer>();
+        ArrayList<Integer> order = new ArrayList<Integer>();
+        HashMap<Integer, Integer> values = new HashMap<Integer, Integer>();
+        // prepending leaves room at the front of the order, and removing leaves tombstones mid-order
+        for (int i = 0; i < 300; i++) {
+            map.putAndMoveToFirst(i, i);
+            order.add(0, i);
+            values.put(i, i);
+        }
+        for (int i = 0; i < 300; i += 7) {
+            map.remove(i);
+            order.remove((Integer) i);
+            values.remove(i);
+        }
+        int seen = 0;
+        for (Iterator<Integer> it = map.keySet().iterator(); it.hasNext(); ) {
+            Integer k = it.next();
+            assertEquals(order.get(seen), k);
+            if(k % 3 == 0)
+            {
+                it.remove();
+                order.remove(seen);
+                values.remove(k);
+                // keyAt squeezes out the tombstones, moving every entry in the order under the iterator
+                if(!order.isEmpty())
+                    assertEquals(order.get(order.size() >> 1), map.keyAt(order.size() >> 1));
+            }
+            else
+                seen++;
+        }
+        assertEquals(order.size(), seen);
+        checkFully(map, order, values);
+        seen = 0;
+        for (Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Integer> e = it.next();
+            Integer k = e.getKey();
+            assertEquals(order.get(seen), k);
+            assertEquals(values.get(k), e.getValue());
+            if((k & 1) == 0)
+            {
+                // the entry points into the tables, so it is only read before removal
+                it.remove();
+                order.remove(seen);
+                values.remove(k);
+                assertEquals(order.isEmpty() ? null : order.get(0), map.keyAt(0));
+            }
+            else
+                seen++;
+        }
+        checkFully(map, order, values);
+        map.trim();
+        checkFully(map, order, values);
+    }
+
+    @Test
+    public void testForEachEntry()
+    {
+        OMap<String, Integer> ordered = new OMap<String, Integer>();
+        for (int i = 9; i >= 0; i--) {
+            ordered.put("k" + i, i);
+        }
+        final StringBuilder sb = new StringBuilder();
+        ordered.forEachEntry(new ObjObjConsumer<String, Integer>() {
+            @Override
+            public void accept(String key, Integer value) {
+                sb.append(key).append(value);
+            }
+        });
+        assertEquals("k99k88k77k66k55k44k33k22k11k00", sb.toString());
+        final int[] sum = new int[1];
+        ordered.forEachValue(new ObjConsumer<Integer>() {
+            @Override
+            public void accept(Integer item) {
+                sum[0] += item;
+            }
+        });
+        assertEquals(45, sum[0]);
+    }
+
+    @Test
+    public void testChurn()
+    {
+        // an LRU cache of 100 entries: hits move to the end, misses evict the first entry
+        OMap<Integer, Integer> lru = new OMap<Integer, Integer>(100);
+        for (int i = 0; i < 100; i++) {
+            lru.put(i, i);
+        }
+        for (int i = 0; i < 5000; i++) {
+            int k = (i * 37) % 150;
+            if(lru.getAndMoveToLast(k) == null)
+            {
+                lru.removeFirst();
+                lru.put(k, k);
+            }
+            assertEquals(k, (int) lru.lastKey());
+        }
+        assertEquals(100, lru.size());
+        lru.putAndMoveToFirst(-1, -1);
+        lru.remove(lru.keyAt(50));
+        assertEquals(-1, (int) lru.firstKey());
+        int count = 0;
+        Integer previous = null;
+        for (Integer k : lru.keySet()) {
+            assertEquals(k, lru.get(k));
+            assertEquals(k, lru.keyAt(count++));
+            previous = k;
+        }
+        assertEquals(100, count);
+        assertEquals(previous, lru.lastKey());
+        assertTrue(lru.containsKey(-1));
+    }
+}
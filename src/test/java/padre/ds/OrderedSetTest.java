@@ -0,0 +1,33 @@
+package padre.ds;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OrderedSetTest {
+    @Test
+    public void testOrdered()
+    {
+        OrderedSet<String> set = OrderedSet.with("c", "a", "b");
+        assertFalse(set.add("a"));
+        assertTrue(set.remove("c"));
+        assertTrue(set.add("c"));
+        for (int i = 0; i < 100; i++) {
+            set.add("o" + i);
+            set.remove("o" + (i - 1));
+        }
+        assertEquals("{a, b, c, o99}", set.toString());
+        assertEquals("a", set.first());
+        Iterator<String> it = set.iterator();
+        it.next();
+        it.remove();
+        assertFalse(set.contains("a"));
+        assertTrue(set.equalsInOrder(OrderedSet.with("b", "c", "o99")));
+        assertFalse(set.equalsInOrder(OrderedSet.with("c", "b", "o99")));
+        assertTrue(set.equals(OrderedSet.with("c", "b", "o99")));
+    }
+}
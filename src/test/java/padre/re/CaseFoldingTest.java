@@ -0,0 +1,53 @@
+package padre.re;
+
+import org.junit.Test;
+import padre.ds.ComBit;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CaseFoldingTest {
+    /**
+     * Closes each char in glyphs on its own and unions the results, which close(ComBit) must agree with.
+     */
+    static ComBit closeEach(ComBit glyphs)
+    {
+        ComBit result = new ComBit(new char[0]);
+        for (int c = glyphs.nextSetBit(0); c >= 0; c = glyphs.nextSetBit(c + 1)) {
+            result = ComBit.union(result, CaseFolding.close((char) c));
+        }
+        return result;
+    }
+
+    @Test
+    public void testClose()
+    {
+        assertEquals(new ComBit('K', 'k', '\u212A'), CaseFolding.close('\u212A'));
+        assertTrue(CaseFolding.close('S').contains('\u017F'));
+        assertTrue(CaseFolding.close('\u1E9E').contains('\u00DF'));
+        assertEquals(3, CaseFolding.close('\u03C3').cardinality);
+        assertEquals(1, CaseFolding.close('7').cardinality);
+        assertEquals(1, CaseFolding.close('\u4E00').cardinality);
+    }
+
+    @Test
+    public void testCloseSets()
+    {
+        Random random = new Random(0x5EEDL);
+        ComBit digits = new ComBit("0123456789".toCharArray());
+        assertSame(digits, CaseFolding.close(digits));
+        for (int i = 0; i < 300; i++) {
+            // a third of the sets are only ASCII, and the rest reach far enough to hold Greek, Cyrillic, and U+212A
+            final int limit = i % 3 == 0 ? 128 : 0x2200;
+            char[] chars = new char[1 + random.nextInt(12)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) (j == 0 && limit > 128 ? 128 + random.nextInt(limit - 128) : random.nextInt(limit));
+            }
+            ComBit glyphs = new ComBit(chars);
+            assertEquals(closeEach(glyphs), CaseFolding.close(glyphs));
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package padre.re;
+
+import org.junit.Test;
+import padre.ds.CodePointSet;
+import padre.ds.ComBit;
+import padre.ds.IntVLA;
+import padre.ds.MathUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DFATest {
+    // a[bcdz]*e
+    static RE abe = new RE.Sequence(new RE.Single('a'),
+            new RE.Star(true, new RE.Choice(true, new RE.Single('b'), new RE.Multiple('c', 'd', 'b', 'z'))),
+            new RE.Single('e'));
+    // .*e
+    static RE anyE = new RE.Sequence(new RE.Star(true, new RE.Any()), new RE.Single('e'));
+    @Precompile
+    static RE[] both = {abe, anyE};
+    // puts line breaks, a quote and a backslash in the minterm ranges, which generated source has to escape
+    @Precompile
+    static RE breaks = new RE.Sequence(new RE.Multiple('\n', '\r', '"', '\\'), new RE.Single('\u2028'));
+
+    @Test
+    public void testProgram()
+    {
+        REProgram program = new REProgram();
+        int root = program.lower(abe);
+        assertEquals(root, program.lower(abe));
+        assertFalse(program.nullable(root));
+        assertTrue(program.nullable(program.lower(new RE.Star(false, abe))));
+        IntVLA out = new IntVLA();
+        program.derive(root, 'a', out);
+        assertEquals(1, out.size);
+        out.clear();
+        program.derive(root, 'b', out);
+        assertEquals(0, out.size);
+    }
+
+    @Test
+    public void testMatches()
+    {
+        DFA dfa = DFA.compile(abe, anyE);
+        assertTrue(dfa.matches("ae"));
+        assertTrue(dfa.matches("abzdce"));
+        assertTrue(dfa.matches("xe"));
+        assertFalse(dfa.matches("ab"));
+        assertFalse(dfa.matches(""));
+        assertArrayEquals(new int[]{0, 1}, dfa.matchingPatterns("abe"));
+        assertArrayEquals(new int[]{1}, dfa.matchingPatterns("bbe"));
+        assertArrayEquals(new int[0], dfa.matchingPatterns("abex"));
+    }
+
+    @Test
+    public void testBytecode() throws Exception
+    {
+        DFA dfa = DFA.compile(abe, anyE);
+        // generate() rather than matcher(), which would quietly hand back the DFA itself if generation failed
+        DFAMatcher generated = DFABytecode.generate(dfa);
+        assertFalse(generated instanceof DFA);
+        String[] texts = {"", "ae", "abzdce", "xe", "ab", "abe", "bbe", "abex", "aeae", "\uFFFFe"};
+        for (int i = 0; i < texts.length; i++) {
+            assertEquals(dfa.run(texts[i], 0, texts[i].length()), generated.run(texts[i], 0, texts[i].length()));
+            assertEquals(dfa.matches(texts[i]), generated.matches(texts[i]));
+        }
+    }
+
+    @Test
+    public void testSerialization() throws IOException
+    {
+        DFA dfa = DFA.compile(abe, anyE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        dfa.writeTo(bytes);
+        assertEquals(dfa.binarySize(), bytes.size());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        DFA loaded = DFA.readFrom(buffer);
+        assertEquals(0, buffer.remaining());
+        assertEquals(dfa.stateCount, loaded.stateCount);
+        assertArrayEquals(dfa.transitions, loaded.transitions);
+        for (int i = 0; i < dfa.classCount; i++) {
+            assertTrue(dfa.minterms[i].equals(loaded.minterms[i]));
+        }
+        assertArrayEquals(new int[]{0, 1}, loaded.matchingPatterns("abzde"));
+        assertFalse(loaded.matches("abzd"));
+    }
+
+    @Test
+    public void testMapped() throws IOException
+    {
+        DFA dfa = DFA.compile(abe, anyE);
+        File file = File.createTempFile("padre", ".dfa");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            dfa.writeTo(out);
+        } finally {
+            out.close();
+        }
+        MappedDFA mapped = MappedDFA.map(file);
+        String[] texts = {"", "ae", "abzdce", "xe", "ab", "abe", "bbe", "abex", "aeae"};
+        for (int i = 0; i < texts.length; i++) {
+            assertEquals(dfa.run(texts[i], 0, texts[i].length()), mapped.run(texts[i], 0, texts[i].length()));
+            assertArrayEquals(dfa.matchingPatterns(texts[i]), mapped.matchingPatterns(texts[i]));
+        }
+    }
+
+    @Test
+    public void testPrecompile() throws Exception
+    {
+        DFA dfa = DFA.compile(both);
+        DFA fromChars = DFA.fromChars(new String(dfa.toChars()));
+        assertArrayEquals(dfa.transitions, fromChars.transitions);
+        assertArrayEquals(new int[]{0, 1}, fromChars.matchingPatterns("abzde"));
+        File dir = File.createTempFile("padre", "");
+        assertTrue(dir.delete());
+        Precompiler.writeResources(DFATest.class, dir);
+        File written = new File(dir, "padre/re/DFATest.both.dfa");
+        assertEquals(dfa.binarySize(), written.length());
+        assertTrue(written.delete());
+        assertTrue(new File(dir, "padre/re/DFATest.breaks.dfa").delete());
+        Precompiler.writeSource(DFATest.class, dir);
+        File source = new File(dir, "padre/re/DFATestDFAs.java");
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if(javac != null)
+        {
+            String classpath = new File(DFA.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+            assertEquals(0, javac.run(null, null, null, "-nowarn", "-classpath", classpath, "-d", dir.getPath(), source.getPath()));
+            URLClassLoader loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, DFA.class.getClassLoader());
+            DFA compiled = (DFA) loader.loadClass("padre.re.DFATestDFAs").getField("both").get(null);
+            assertArrayEquals(dfa.transitions, compiled.transitions);
+            assertArrayEquals(dfa.toChars(), compiled.toChars());
+            DFA breaksDFA = DFA.compile(breaks);
+            String chars = new String(breaksDFA.toChars());
+            assertTrue(chars.indexOf('\n') >= 0 && chars.indexOf('"') >= 0 && chars.indexOf('\\') >= 0);
+            compiled = (DFA) loader.loadClass("padre.re.DFATestDFAs").getField("breaks").get(null);
+            assertArrayEquals(breaksDFA.toChars(), compiled.toChars());
+            assertTrue(compiled.matches("\r\u2028"));
+            assertTrue(new File(dir, "padre/re/DFATestDFAs.class").delete());
+        }
+        assertTrue(source.delete());
+        assertArrayEquals(dfa.transitions, Precompiler.load(DFATest.class, "both").transitions);
+    }
+
+    @Test
+    public void testCodePoints()
+    {
+        // any emoji in U+1F600 to U+1F64F, or 'x', then 'e'
+        CodePointSet faces = CodePointSet.ofRanges(0x1F600, 0x1F650, 'x', 'y');
+        RE re = new RE.Sequence(new RE.CodePoints(faces), new RE.Single('e'));
+        DFA dfa = DFA.compile(re);
+        assertTrue(dfa.matches("xe"));
+        assertTrue(dfa.matches("\uD83D\uDE00e"));
+        assertTrue(dfa.matches("\uD83D\uDE4Fe"));
+        assertFalse(dfa.matches("\uD83D\uDE50e"));
+        assertFalse(dfa.matches("\uD83De"));
+        assertTrue(new RE.CodePoints(faces).simplify() instanceof RE.CodePoints);
+        assertTrue(new RE.CodePoints(CodePointSet.of('a', 'b')).simplify() instanceof RE.Multiple);
+    }
+
+    @Test
+    public void testUnicodeProperties()
+    {
+        assertTrue(UnicodeProperties.bmp("Lu").contains('\u00C9'));
+        assertFalse(UnicodeProperties.bmp("Lu").contains('\u00E9'));
+        assertTrue(UnicodeProperties.bmp("L") == UnicodeProperties.bmp("IsL"));
+        assertTrue(UnicodeProperties.codePoints("Greek").contains(0x3A9));
+        assertTrue(UnicodeProperties.codePoints("script=Han").contains(0x20000));
+        DFA dfa = DFA.compile(new RE.Sequence(UnicodeProperties.property("Lu"),
+                new RE.Star(true, UnicodeProperties.property("L"))));
+        assertTrue(dfa.matches("Abc"));
+        assertFalse(dfa.matches("abc"));
+        // U+1D400, MATHEMATICAL BOLD CAPITAL A, is a supplementary letter
+        assertTrue(dfa.matches("A\uD835\uDC00"));
+    }
+
+    @Test
+    public void testCaseInsensitive()
+    {
+        assertTrue(CaseFolding.close('k').contains('\u212A'));
+        assertEquals(1, CaseFolding.close('7').cardinality);
+        DFA dfa = DFA.compile(REProgram.CASE_INSENSITIVE,
+                new RE.Sequence(new RE.Single('s'), new RE.Multiple('t', 'u'), new RE.Single('\u00E9')));
+        assertTrue(dfa.matches("ST\u00C9"));
+        assertTrue(dfa.matches("\u017Fu\u00E9"));
+        assertFalse(dfa.matches("sv\u00E9"));
+        assertFalse(DFA.compile(new RE.Single('s')).matches("S"));
+    }
+
+    @Test
+    public void testMinterms()
+    {
+        ComBit letters = ComBit.fromRuns(new int[]{'a', 'z' + 1}, 0, 2);
+        ComBit[] parts = DFA.minterms(letters, ComBit.WORD, new ComBit(new char[]{'q'}));
+        // [^0-9A-Z_a-z], [0-9A-Z_], [a-pr-z], and q
+        assertEquals(4, parts.length);
+        assertTrue(parts[0].contains('\0'));
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            total += parts[i].cardinality;
+        }
+        assertEquals(0x10000, total);
+        assertEquals(1, DFA.minterms().length);
+    }
+
+    @Test
+    public void testMintermsManyLeaves()
+    {
+        // minterms gives leaf k the key MathUtils.nextLong((k + 1) * 0x9E3779B97F4A7C15L); any 65 such keys have a
+        // subset that XORs to 0, the same signature as chars in no leaf, so 'a' in just that subset of leaves must
+        // still get its own class instead of sharing one with '!'
+        long[] basis = new long[64];
+        BitSet[] madeFrom = new BitSet[64];
+        BitSet dependent = null;
+        for (int k = 0; dependent == null; k++) {
+            long v = MathUtils.nextLong((k + 1) * 0x9E3779B97F4A7C15L);
+            BitSet from = new BitSet();
+            from.set(k);
+            for (int b = 63; b >= 0 && v != 0L; b--) {
+                if((v >>> b & 1L) == 0L)
+                    continue;
+                if(basis[b] == 0L)
+                {
+                    basis[b] = v;
+                    madeFrom[b] = from;
+                    break;
+                }
+                v ^= basis[b];
+                from.xor(madeFrom[b]);
+            }
+            if(v == 0L)
+                dependent = from;
+        }
+        final int count = Math.max(65, dependent.length());
+        ComBit[] leaves = new ComBit[count];
+        RE[] alts = new RE[count];
+        for (int k = 0; k < count; k++) {
+            final char own = (char) (0x100 + k);
+            leaves[k] = new ComBit(dependent.get(k) ? new char[]{'a', own} : new char[]{own});
+            alts[k] = new RE.Multiple(leaves[k]);
+        }
+        ComBit[] parts = DFA.minterms(leaves);
+        // every part must hold exactly the chars that are in one set of leaves
+        HashMap<BitSet, Integer> partOf = new HashMap<BitSet, Integer>();
+        for (int p = 0; p < parts.length; p++) {
+            for (int c = parts[p].nextSetBit(0); c >= 0; c = parts[p].nextSetBit(c + 1)) {
+                BitSet in = new BitSet(count);
+                for (int k = 0; k < count; k++) {
+                    if(leaves[k].contains((char) c))
+                        in.set(k);
+                }
+                Integer old = partOf.put(in, p);
+                assertTrue(old == null || old == p);
+            }
+        }
+        assertEquals(parts.length, partOf.size());
+        assertEquals(count + 2, parts.length);
+        DFA dfa = DFA.compile(new RE.Choice(true, alts));
+        assertTrue(dfa.matches("a"));
+        assertTrue(dfa.matches("\u0140"));
+        assertFalse(dfa.matches("!"));
+    }
+}
@@ -0,0 +1,96 @@
+package padre.re;
+
+import padre.ds.IntVLA;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class REProgramTest {
+    // (ab|a)*c
+    static RE abc = new RE.Sequence(
+            new RE.Star(true, new RE.Choice(true, new RE.Sequence(new RE.Single('a'), new RE.Single('b')), new RE.Single('a'))),
+            new RE.Single('c'));
+    // [xy].*
+    static RE xy = new RE.Sequence(new RE.Multiple('x', 'y'), new RE.Star(false, new RE.Any()));
+
+    /**
+     * Runs text through the program one char at a time with deriveAll, keeping the set of live nodes.
+     */
+    static boolean programMatches(REProgram program, int root, String text)
+    {
+        IntVLA current = new IntVLA(), next = new IntVLA();
+        current.add(root);
+        for (int i = 0; i < text.length() && current.size > 0; i++) {
+            next.clear();
+            program.deriveAll(current.items, 0, current.size, text.charAt(i), next);
+            IntVLA t = current;
+            current = next;
+            next = t;
+        }
+        for (int i = 0; i < current.size; i++) {
+            if(program.nullable(current.items[i]))
+                return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void testDerive()
+    {
+        REProgram program = new REProgram();
+        int root = program.lower(abc);
+        IntVLA out = new IntVLA();
+        // 'a' can start either alternative, giving b(ab|a)*c and (ab|a)*c
+        program.derive(root, 'a', out);
+        assertEquals(2, out.size);
+        out.clear();
+        program.derive(root, 'c', out);
+        assertEquals(1, out.size);
+        assertEquals(REProgram.EMPTY_NODE, out.get(0));
+        out.clear();
+        program.derive(root, 'b', out);
+        assertEquals(0, out.size);
+        // derivatives are hash-consed, so deriving the same way twice gives the same ids
+        IntVLA again = new IntVLA();
+        program.derive(root, 'a', out);
+        program.derive(root, 'a', again);
+        assertArrayEquals(again.toArray(), out.toArray());
+    }
+
+    @Test
+    public void testDeriveAll()
+    {
+        REProgram program = new REProgram();
+        int root = program.lower(abc);
+        IntVLA out = new IntVLA();
+        out.add(-1);
+        int[] roots = {root, root, program.lower(xy)};
+        // duplicate roots give duplicate derivatives, which deriveAll removes
+        assertEquals(2, program.deriveAll(roots, 0, 3, 'a', out));
+        assertEquals(-1, out.get(0));
+        assertTrue(out.get(1) < out.get(2));
+        out.clear();
+        assertEquals(1, program.deriveAll(roots, 1, 2, 'x', out));
+        assertTrue(program.nullable(out.get(0)));
+        assertEquals(0, program.deriveAll(roots, 0, 3, 'z', out));
+    }
+
+    @Test
+    public void testMatches()
+    {
+        REProgram program = new REProgram();
+        int abcRoot = program.lower(abc), xyRoot = program.lower(xy);
+        String[] abcTexts = {"", "c", "ac", "abc", "aac", "abababac", "abaac", "abbc", "ab", "cc"},
+                xyTexts = {"", "x", "y", "yzzz", "xabc", "zx", "ax"};
+        boolean[] abcMatches = {false, true, true, true, true, true, true, false, false, false},
+                xyMatches = {false, true, true, true, true, false, false};
+        for (int i = 0; i < abcTexts.length; i++) {
+            assertEquals(abcTexts[i], abcMatches[i], programMatches(program, abcRoot, abcTexts[i]));
+        }
+        for (int i = 0; i < xyTexts.length; i++) {
+            assertEquals(xyTexts[i], xyMatches[i], programMatches(program, xyRoot, xyTexts[i]));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package padre.re;
+
+import org.junit.Before;
+import org.junit.Test;
+import padre.ds.CodePointSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the shipped tables in UnicodeProperties, including the case folding groups, against what
+ * {@link UnicodeTables} generates from the running JVM. That only means something when the JVM knows the same Unicode
+ * version as the tables, so on any other JVM these are skipped rather than failed.
+ */
+public class UnicodePropertiesTest {
+    @Before
+    public void requireUnicode13()
+    {
+        // U+08BE was assigned in Unicode 13.0, and U+0870 in 14.0
+        assumeTrue(Character.isDefined(0x08BE) && !Character.isDefined(0x0870));
+    }
+
+    @Test
+    public void testTables()
+    {
+        assertArrayEquals(UnicodeTables.CATEGORY_NAMES, UnicodeProperties.CATEGORY_NAMES);
+        assertArrayEquals(UnicodeTables.scriptNames(), UnicodeProperties.SCRIPT_NAMES);
+        assertArrayEquals(UnicodeTables.categoryRuns(), UnicodeProperties.CATEGORY_RUNS);
+        assertArrayEquals(UnicodeTables.scriptRuns(UnicodeProperties.SCRIPT_NAMES), UnicodeProperties.SCRIPT_RUNS);
+        assertEquals(UnicodeTables.foldGroups(), UnicodeProperties.FOLD_GROUPS);
+    }
+
+    @Test
+    public void testEveryCodePoint()
+    {
+        // decodes every table through the public API, then checks each code point against Character
+        final CodePointSet[] byType = new CodePointSet[32], byGroup = new CodePointSet[32];
+        for (int i = 0; i < UnicodeTables.CATEGORY_TYPES.length; i++) {
+            final String name = UnicodeTables.CATEGORY_NAMES[i];
+            byType[UnicodeTables.CATEGORY_TYPES[i]] = UnicodeProperties.codePoints(name);
+            byGroup[UnicodeTables.CATEGORY_TYPES[i]] = UnicodeProperties.codePoints(name.substring(0, 1));
+        }
+        byType[Character.UNASSIGNED] = UnicodeProperties.codePoints("Cn");
+        byGroup[Character.UNASSIGNED] = UnicodeProperties.codePoints("C");
+        final Character.UnicodeScript[] all = Character.UnicodeScript.values();
+        final CodePointSet[] byScript = new CodePointSet[all.length];
+        CodePointSet anyScript = CodePointSet.none();
+        for (int i = 0; i < all.length; i++) {
+            if(all[i] != Character.UnicodeScript.UNKNOWN)
+                anyScript = anyScript.union(byScript[i] = UnicodeProperties.codePoints(all[i].name()));
+        }
+        for (int cp = 0; cp <= Character.MAX_CODE_POINT; cp++) {
+            final int type = Character.getType(cp);
+            assertTrue(byType[type].contains(cp));
+            assertTrue(byGroup[type].contains(cp));
+            final Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+            if(script == Character.UnicodeScript.UNKNOWN)
+                assertFalse(anyScript.contains(cp));
+            else
+                assertTrue(byScript[script.ordinal()].contains(cp));
+        }
+        // containing every code point that should be there is only half of it; matching the ranges rules out extras
+        for (int i = 0; i < UnicodeTables.CATEGORY_TYPES.length; i++) {
+            assertEquals(CodePointSet.ofRanges(UnicodeTables.categoryBounds(UnicodeTables.CATEGORY_TYPES[i]).toArray()),
+                    byType[UnicodeTables.CATEGORY_TYPES[i]]);
+        }
+        for (int i = 0; i < all.length; i++) {
+            if(byScript[i] != null)
+                assertEquals(CodePointSet.ofRanges(UnicodeTables.scriptBounds(all[i].name()).toArray()), byScript[i]);
+        }
+        assertEquals(CodePointSet.ofRanges(UnicodeTables.categoryBounds(Character.UNASSIGNED).toArray()),
+                byType[Character.UNASSIGNED]);
+    }
+}
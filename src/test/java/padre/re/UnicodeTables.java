@@ -0,0 +1,273 @@
+package padre.re;
+
+import padre.ds.IntVLA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Rebuilds the run-length tables in {@link UnicodeProperties} from the running JVM's {@link Character#getType(int)}
+ * and {@link Character.UnicodeScript}, and the case folding groups {@link CaseFolding} uses from its case mappings,
+ * which padre itself doesn't call at runtime (UnicodeScript needs Java 7, and none of them give the same answers on
+ * every JVM or on GWT). When Unicode is updated, run {@link #main(String[])} on a
+ * JVM that knows the new version and paste its output over the table declarations in UnicodeProperties;
+ * UnicodePropertiesTest checks the shipped tables against this on every JVM with the same Unicode version.
+ */
+public final class UnicodeTables {
+    private UnicodeTables()
+    {
+    }
+
+    /**
+     * The general category names in UnicodeProperties' order, which is the order of the constants in Character.
+     */
+    static final String[] CATEGORY_NAMES = {
+            "Lu", "Ll", "Lt", "Lm", "Lo", "Mn", "Me", "Mc", "Nd", "Nl", "No", "Zs", "Zl", "Zp", "Cc", "Cf",
+            "Co", "Cs", "Pd", "Ps", "Pe", "Pc", "Po", "Sm", "Sc", "Sk", "So", "Pi", "Pf"
+    };
+    /**
+     * The Character.getType() value of each entry in CATEGORY_NAMES.
+     */
+    static final byte[] CATEGORY_TYPES = {
+            Character.UPPERCASE_LETTER, Character.LOWERCASE_LETTER, Character.TITLECASE_LETTER,
+            Character.MODIFIER_LETTER, Character.OTHER_LETTER, Character.NON_SPACING_MARK,
+            Character.ENCLOSING_MARK, Character.COMBINING_SPACING_MARK, Character.DECIMAL_DIGIT_NUMBER,
+            Character.LETTER_NUMBER, Character.OTHER_NUMBER, Character.SPACE_SEPARATOR,
+            Character.LINE_SEPARATOR, Character.PARAGRAPH_SEPARATOR, Character.CONTROL, Character.FORMAT,
+            Character.PRIVATE_USE, Character.SURROGATE, Character.DASH_PUNCTUATION,
+            Character.START_PUNCTUATION, Character.END_PUNCTUATION, Character.CONNECTOR_PUNCTUATION,
+            Character.OTHER_PUNCTUATION, Character.MATH_SYMBOL, Character.CURRENCY_SYMBOL,
+            Character.MODIFIER_SYMBOL, Character.OTHER_SYMBOL, Character.INITIAL_QUOTE_PUNCTUATION,
+            Character.FINAL_QUOTE_PUNCTUATION
+    };
+
+    /**
+     * @return the name of every script the JVM knows except UNKNOWN, in the JVM's order
+     */
+    static String[] scriptNames()
+    {
+        ArrayList<String> names = new ArrayList<String>();
+        for (Character.UnicodeScript script : Character.UnicodeScript.values()) {
+            if(script != Character.UnicodeScript.UNKNOWN)
+                names.add(script.name());
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Encodes range bounds (alternating starts and exclusive ends) in the format UnicodeProperties decodes: alternating
+     * gaps and range lengths, each stored as by {@link #pack(IntVLA)}.
+     */
+    static String encode(IntVLA bounds)
+    {
+        IntVLA gaps = new IntVLA(bounds.size);
+        int pos = 0;
+        for (int i = 0; i < bounds.size; i++) {
+            gaps.add(bounds.get(i) - pos);
+            pos = bounds.get(i);
+        }
+        return pack(gaps);
+    }
+
+    /**
+     * Stores each non-negative value plus 0x20, so small values are printable, with sums of 0x8000 or more split into
+     * two chars, the first with its top bit set.
+     */
+    static String pack(IntVLA values)
+    {
+        StringBuilder sb = new StringBuilder(values.size);
+        for (int i = 0; i < values.size; i++) {
+            final int v = values.get(i) + 0x20;
+            if(v >= 0x8000)
+                sb.append((char) (0x8000 | v >>> 15)).append((char) (v & 0x7FFF));
+            else
+                sb.append((char) v);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the start and end (exclusive) of each range of code points with the given Character.getType() value
+     */
+    static IntVLA categoryBounds(int type)
+    {
+        IntVLA bounds = new IntVLA(64);
+        boolean in = false;
+        for (int cp = 0; cp <= Character.MAX_CODE_POINT; cp++) {
+            if((Character.getType(cp) == type) != in)
+            {
+                bounds.add(cp);
+                in = !in;
+            }
+        }
+        if(in) bounds.add(Character.MAX_CODE_POINT + 1);
+        return bounds;
+    }
+
+    /**
+     * @return the start and end (exclusive) of each range of code points in the script with the given name
+     */
+    static IntVLA scriptBounds(String name)
+    {
+        final Character.UnicodeScript script = Character.UnicodeScript.valueOf(name);
+        IntVLA bounds = new IntVLA(64);
+        boolean in = false;
+        for (int cp = 0; cp <= Character.MAX_CODE_POINT; cp++) {
+            if((Character.UnicodeScript.of(cp) == script) != in)
+            {
+                bounds.add(cp);
+                in = !in;
+            }
+        }
+        if(in) bounds.add(Character.MAX_CODE_POINT + 1);
+        return bounds;
+    }
+
+    static String[] categoryRuns()
+    {
+        String[] runs = new String[CATEGORY_TYPES.length];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = encode(categoryBounds(CATEGORY_TYPES[i]));
+        }
+        return runs;
+    }
+
+    static String[] scriptRuns(String[] names)
+    {
+        String[] runs = new String[names.length];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = encode(scriptBounds(names[i]));
+        }
+        return runs;
+    }
+
+    /**
+     * Groups every BMP char with the others that are the same letter ignoring case, where two chars are the same letter
+     * if {@code Character.toLowerCase(Character.toUpperCase(c))} is the same for both (following that through chains),
+     * and encodes the groups with more than one member for CaseFolding. Groups are in order of their smallest member,
+     * and each is its member count, the gap from the previous group's smallest member to its own, then the offset of
+     * each other member from its smallest, in order; each value is stored as by {@link #pack(IntVLA)}.
+     */
+    static String foldGroups()
+    {
+        final int[] parent = new int[0x10000];
+        for (int c = 0; c < 0x10000; c++) {
+            parent[c] = c;
+        }
+        for (int c = 0; c < 0x10000; c++) {
+            int a = root(parent, c), b = root(parent, Character.toLowerCase(Character.toUpperCase((char) c)));
+            if(a != b)
+                parent[Math.max(a, b)] = Math.min(a, b);
+        }
+        // sorting by (root << 16 | char) puts each group together, starting with its root, its smallest member
+        final long[] members = new long[0x10000];
+        final int[] count = new int[0x10000];
+        for (int c = 0; c < 0x10000; c++) {
+            final int r = root(parent, c);
+            members[c] = (long) r << 16 | c;
+            count[r]++;
+        }
+        Arrays.sort(members);
+        IntVLA values = new IntVLA(4096);
+        int previous = 0;
+        for (int i = 0; i < members.length; i++) {
+            final int r = (int) (members[i] >>> 16), c = (int) members[i] & 0xFFFF;
+            if(count[r] < 2)
+                continue;
+            if(c == r)
+            {
+                values.add(count[r]);
+                values.add(r - previous);
+                previous = r;
+            }
+            else
+                values.add(c - r);
+        }
+        return pack(values);
+    }
+
+    private static int root(int[] parent, int c)
+    {
+        while (parent[c] != c)
+            c = parent[c] = parent[parent[c]];
+        return c;
+    }
+
+    /**
+     * Appends s the way UnicodeProperties lays out its tables, as concatenated literals of at most 96 chars of source
+     * each, never splitting an escape; the first line's indent must already be in out.
+     */
+    static void literal(StringBuilder out, String s)
+    {
+        StringBuilder line = new StringBuilder(128);
+        out.append('"');
+        for (int j = 0; j < s.length(); j++) {
+            final char c = s.charAt(j);
+            final String token = (c == '"' || c == '\\') ? "\\" + c
+                    : (c >= ' ' && c < 0x7F) ? String.valueOf(c)
+                    : "\\u" + Integer.toHexString(0x10000 | c).substring(1).toUpperCase();
+            if(line.length() + token.length() > 96)
+            {
+                out.append(line).append("\"\n                    + \"");
+                line.setLength(0);
+            }
+            line.append(token);
+        }
+        out.append(line).append('"');
+    }
+
+    /**
+     * Appends a String array declaration the way UnicodeProperties lays it out: names as plain literals packed into
+     * lines of at most 108 columns, and run strings as by {@link #literal(StringBuilder, String)}.
+     */
+    static void declare(StringBuilder out, String name, String[] items, boolean runs)
+    {
+        out.append("    static final String[] ").append(name).append(" = {\n");
+        if(runs)
+        {
+            for (int i = 0; i < items.length; i++) {
+                out.append("            ");
+                literal(out, items[i]);
+                out.append(",\n");
+            }
+        }
+        else
+        {
+            StringBuilder line = new StringBuilder("           ");
+            for (int i = 0; i < items.length; i++) {
+                final String token = " \"" + items[i] + (i + 1 < items.length ? "\"," : "\"");
+                if(line.length() + token.length() > 108)
+                {
+                    out.append(line).append('\n');
+                    line.setLength(0);
+                    line.append("           ");
+                }
+                line.append(token);
+            }
+            out.append(line).append('\n');
+        }
+        out.append("    };\n");
+    }
+
+    /**
+     * @return the table declarations of UnicodeProperties, as Java source, for the running JVM's Unicode version
+     */
+    static String source()
+    {
+        StringBuilder out = new StringBuilder(32768);
+        String[] scripts = scriptNames();
+        declare(out, "CATEGORY_NAMES", CATEGORY_NAMES, false);
+        declare(out, "CATEGORY_RUNS", categoryRuns(), true);
+        declare(out, "SCRIPT_NAMES", scripts, false);
+        declare(out, "SCRIPT_RUNS", scriptRuns(scripts), true);
+        out.append("    static final String FOLD_GROUPS =\n            ");
+        literal(out, foldGroups());
+        out.append(";\n");
+        return out.toString();
+    }
+
+    public static void main(String[] args)
+    {
+        System.out.print(source());
+    }
+}